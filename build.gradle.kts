@@ -2,6 +2,7 @@ plugins {
     java
     id("org.springframework.boot") version "3.4.10"
     id("io.spring.dependency-management") version "1.1.7"
+    id("org.graalvm.buildtools.native") version "0.10.6" apply false
 }
 
 group = "com.restaurant"
@@ -38,10 +39,12 @@ dependencies {
 
     // Rate Limiting
     implementation("com.bucket4j:bucket4j-core:8.10.1")
+    implementation("com.bucket4j:bucket4j-postgresql:8.10.1")
 
     compileOnly("org.projectlombok:lombok")
     developmentOnly("org.springframework.boot:spring-boot-devtools")
-    runtimeOnly("org.postgresql:postgresql")
+    implementation("org.postgresql:postgresql")
+    runtimeOnly("io.micrometer:micrometer-registry-prometheus")
     annotationProcessor("org.springframework.boot:spring-boot-configuration-processor")
     annotationProcessor("org.projectlombok:lombok")
     testImplementation("org.springframework.boot:spring-boot-starter-test")
@@ -58,6 +61,38 @@ dependencies {
     testImplementation("org.mockito:mockito-junit-jupiter")
 }
 
+// Startup-optimized build: ./gradlew bootJar -Paot runs Spring AOT processing at build time,
+// start the jar with -Dspring.aot.enabled=true. Bean conditions (replica-routing.enabled,
+// service-trace.enabled, ...) are evaluated during the build; pass the deployment's values
+// with -PaotArgs="--replica-routing.enabled=true --spring.profiles.active=production".
+if (project.hasProperty("aot")) {
+    apply(plugin = "org.graalvm.buildtools.native")
+}
+
+tasks.withType<org.springframework.boot.gradle.tasks.aot.ProcessAot>().configureEach {
+    (findProperty("aotArgs") as String?)?.let { args(it.split(" ").filter(String::isNotBlank)) }
+}
+
 tasks.withType<Test> {
     useJUnitPlatform()
 }
+
+tasks.test {
+    useJUnitPlatform {
+        excludeTags("benchmark")
+    }
+}
+
+// Load benchmarks, e.g. SupplyConfirmationBenchmarkTest (Testcontainers, needs Docker)
+tasks.register<Test>("benchmark") {
+    description = "Runs the tests tagged 'benchmark'."
+    group = "verification"
+    testClassesDirs = sourceSets.test.get().output.classesDirs
+    classpath = sourceSets.test.get().runtimeClasspath
+    useJUnitPlatform {
+        includeTags("benchmark")
+    }
+    testLogging {
+        showStandardStreams = true
+    }
+}
@@ -0,0 +1,64 @@
+#!/usr/bin/env sh
+# Time from JVM launch to the first successful GET /actuator/health (DB included), for the
+# plain jar and the startup-optimized variants. Median of RUNS starts per variant.
+# Needs JDK 21 and a migrated PostgreSQL given by SPRING_DATASOURCE_URL/USERNAME/PASSWORD.
+#
+#   SPRING_DATASOURCE_URL=jdbc:postgresql://localhost:5432/restaurant scripts/startup-benchmark.sh [runs]
+set -eu
+
+RUNS=${1:-5}
+PORT=${BENCH_PORT:-18080}
+WORK=build/startup-benchmark
+rm -rf "$WORK"
+mkdir -p "$WORK"
+
+build() { # name gradle-args...
+    name=$1
+    shift
+    ${GRADLE:-./gradlew} -q bootJar "$@"
+    java -Djarmode=tools -jar build/libs/restaurant-system-*.jar extract --destination "$WORK/$name" >/dev/null
+    mv "$WORK/$name"/restaurant-system-*.jar "$WORK/$name/app.jar"
+}
+
+train() { # name java-args...
+    name=$1
+    shift
+    # Starts the context and exits right after refresh; classes loaded so far go into the archive
+    java -XX:ArchiveClassesAtExit="$WORK/$name/app.jsa" -Dspring.context.exit=onRefresh "$@" \
+        -jar "$WORK/$name/app.jar" >"$WORK/$name-training.log" 2>&1 || true
+}
+
+measure() { # label java-args...
+    label=$1
+    shift
+    times=""
+    i=0
+    while [ "$i" -lt "$RUNS" ]; do
+        start=$(date +%s%N)
+        java "$@" --server.port="$PORT" >"$WORK/last-run.log" 2>&1 &
+        pid=$!
+        until curl -sf "http://localhost:$PORT/actuator/health" >/dev/null 2>&1; do
+            kill -0 "$pid" 2>/dev/null || { echo "$label: application exited, see $WORK/last-run.log"; exit 1; }
+            sleep 0.02
+        done
+        end=$(date +%s%N)
+        kill "$pid"
+        wait "$pid" 2>/dev/null || true
+        times="$times $(((end - start) / 1000000))"
+        i=$((i + 1))
+    done
+    median=$(echo "$times" | tr ' ' '\n' | grep . | sort -n | awk '{a[NR]=$1} END {print a[int((NR + 1) / 2)]}')
+    printf '%-28s median %6d ms   (runs:%s)\n' "$label" "$median" "$times"
+}
+
+build plain
+cp build/libs/restaurant-system-*.jar "$WORK/plain.jar"
+train plain
+build aot -Paot
+train aot -Dspring.aot.enabled=true
+
+measure "jar" -jar "$WORK/plain.jar"
+measure "extracted + CDS" -XX:SharedArchiveFile="$WORK/plain/app.jsa" -jar "$WORK/plain/app.jar"
+measure "extracted + CDS, lazy docs" -XX:SharedArchiveFile="$WORK/plain/app.jsa" -jar "$WORK/plain/app.jar" \
+    --startup.lazy-docs=true
+measure "AOT + CDS" -XX:SharedArchiveFile="$WORK/aot/app.jsa" -Dspring.aot.enabled=true -jar "$WORK/aot/app.jar"
@@ -0,0 +1,65 @@
+package com.restaurant.system.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Adds a saturation gauge (active / maximum connections) next to the stock hikaricp.* meters,
+ * including the pools hidden behind ReplicaRoutingDataSource.
+ */
+@Slf4j
+@Configuration
+public class HikariPoolMetricsConfig {
+
+    @Bean
+    public MeterBinder hikariPoolSaturationMetrics(ObjectProvider<DataSource> dataSources) {
+        return registry -> collectPools(dataSources).forEach((poolName, pool) ->
+                Gauge.builder("hikaricp.connections.saturation", pool, HikariPoolMetricsConfig::saturation)
+                        .description("Share of the pool's maximum connections currently in use")
+                        .tag("pool", poolName)
+                        .register(registry));
+    }
+
+    private static Map<String, HikariDataSource> collectPools(ObjectProvider<DataSource> dataSources) {
+        Map<String, HikariDataSource> pools = new LinkedHashMap<>();
+        dataSources.orderedStream().forEach(dataSource -> {
+            if (dataSource instanceof ReplicaRoutingDataSource routing) {
+                routing.getResolvedDataSources().values().forEach(target -> addPool(pools, target));
+            } else {
+                addPool(pools, dataSource);
+            }
+        });
+        return pools;
+    }
+
+    private static void addPool(Map<String, HikariDataSource> pools, DataSource dataSource) {
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                HikariDataSource hikari = dataSource.unwrap(HikariDataSource.class);
+                pools.putIfAbsent(hikari.getPoolName(), hikari);
+            }
+        } catch (SQLException e) {
+            log.debug("Data source {} is not a Hikari pool: {}", dataSource, e.getMessage());
+        }
+    }
+
+    private static double saturation(HikariDataSource dataSource) {
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        int max = dataSource.getMaximumPoolSize();
+        if (pool == null || max <= 0) {
+            return 0.0;
+        }
+        return (double) pool.getActiveConnections() / max;
+    }
+}
@@ -0,0 +1,213 @@
+package com.restaurant.system.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.restaurant.system.exception.ConflictException;
+import com.restaurant.system.exception.ErrorDetails;
+import com.restaurant.system.service.IdempotencyService;
+import com.restaurant.system.service.IdempotencyService.StoredResponse;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Principal;
+import java.time.OffsetDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+// Makes retried POSTs with an Idempotency-Key header safe: the first request runs, repeats with
+// the same key and body get its stored response back (marked with Idempotent-Replayed: true)
+@Component
+@RequiredArgsConstructor
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String KEY_HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    // Outcomes of the moment rather than of the request (lost optimistic lock, held lock, rate limit)
+    private static final Set<Integer> RETRYABLE_STATUSES = Set.of(
+            HttpStatus.REQUEST_TIMEOUT.value(),
+            HttpStatus.CONFLICT.value(),
+            HttpStatus.LOCKED.value(),
+            HttpStatus.TOO_EARLY.value(),
+            HttpStatus.TOO_MANY_REQUESTS.value());
+
+    private final IdempotencyService idempotencyService;
+    private final ObjectMapper objectMapper;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    @Value("${idempotency.paths:/api/orders,/api/orders/*/items,/api/sales,/api/reservations}")
+    private List<String> paths;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!"POST".equals(request.getMethod()) || request.getHeader(KEY_HEADER) == null) {
+            return true;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return paths.stream().noneMatch(pattern -> pathMatcher.match(pattern, path));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        String key = request.getHeader(KEY_HEADER).trim();
+        if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            writeError(request, response, HttpStatus.BAD_REQUEST,
+                    KEY_HEADER + " must be 1 to " + MAX_KEY_LENGTH + " characters");
+            return;
+        }
+
+        // Keys are per user, so two tablets cannot collide on (or read) each other's keys
+        Principal principal = request.getUserPrincipal();
+        byte[] body = request.getInputStream().readAllBytes();
+        String keyHash = sha256((principal != null ? principal.getName() : "") + "\n" + key);
+        String requestHash = sha256(request.getMethod() + " " + request.getRequestURI() + "\n"
+                + new String(body, StandardCharsets.UTF_8));
+
+        Optional<StoredResponse> stored;
+        try {
+            stored = idempotencyService.begin(keyHash, requestHash);
+        } catch (ConflictException e) {
+            writeError(request, response, HttpStatus.CONFLICT, e.getMessage());
+            return;
+        }
+        if (stored.isPresent()) {
+            replay(stored.get(), response);
+            return;
+        }
+
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        boolean completed = false;
+        try {
+            filterChain.doFilter(new CachedBodyRequest(request, body), wrapper);
+            // Server errors and retryable statuses are not final: a retry with the same key runs the request again
+            if (isFinal(wrapper.getStatus())) {
+                idempotencyService.complete(keyHash,
+                        new StoredResponse(wrapper.getStatus(), wrapper.getContentType(), wrapper.getContentAsByteArray()));
+                completed = true;
+            }
+        } finally {
+            if (!completed) {
+                idempotencyService.release(keyHash);
+            }
+            wrapper.copyBodyToResponse();
+        }
+    }
+
+    private static boolean isFinal(int status) {
+        return status < 500 && !RETRYABLE_STATUSES.contains(status);
+    }
+
+    private void replay(StoredResponse stored, HttpServletResponse response) throws IOException {
+        response.setStatus(stored.status());
+        if (stored.contentType() != null) {
+            response.setContentType(stored.contentType());
+        }
+        response.setHeader(REPLAYED_HEADER, "true");
+        if (stored.body() != null) {
+            response.setContentLength(stored.body().length);
+            response.getOutputStream().write(stored.body());
+        }
+    }
+
+    private void writeError(HttpServletRequest request, HttpServletResponse response,
+                            HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), ErrorDetails.builder()
+                .status(status.value())
+                .message(message)
+                .error(status.getReasonPhrase())
+                .path(request.getRequestURI())
+                .timestamp(OffsetDateTime.now())
+                .build());
+    }
+
+    private static String sha256(String value) {
+        try {
+            return HexFormat.of().formatHex(
+                    MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // The body was read for the fingerprint, so the controller gets it from memory
+    private static class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream input = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return input.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                // The whole body is already in memory: it is available at once and read in one go
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    try {
+                        readListener.onDataAvailable();
+                        if (isFinished()) {
+                            readListener.onAllDataRead();
+                        }
+                    } catch (IOException e) {
+                        readListener.onError(e);
+                    }
+                }
+
+                @Override
+                public int read() {
+                    return input.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return input.read(b, off, len);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            return new BufferedReader(new InputStreamReader(getInputStream(), StandardCharsets.UTF_8));
+        }
+    }
+}
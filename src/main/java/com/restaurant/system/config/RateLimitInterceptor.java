@@ -1,23 +1,49 @@
 package com.restaurant.system.config;
 
 import io.github.bucket4j.Bandwidth;
-import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.ConsumptionProbe;
+import io.github.bucket4j.distributed.BucketProxy;
+import io.github.bucket4j.distributed.jdbc.BucketTableSettings;
+import io.github.bucket4j.distributed.jdbc.PrimaryKeyMapper;
+import io.github.bucket4j.distributed.jdbc.SQLProxyConfiguration;
+import io.github.bucket4j.distributed.proxy.ProxyManager;
+import io.github.bucket4j.distributed.proxy.optimization.Optimizations;
+import io.github.bucket4j.postgresql.PostgreSQLSelectForUpdateBasedProxyManager;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.HandlerInterceptor;
 
+import javax.sql.DataSource;
 import java.time.Duration;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Buckets live in rate_limit_buckets, so the limit holds for the whole cluster, not per node.
+ * Concurrent requests for one client on a node share a single round trip (batching), and once a
+ * client has run dry it is rejected from memory until its bucket refills, so a brute force
+ * costs one query per refill period and node instead of one per request.
+ */
 @Slf4j
 @Component
 public class RateLimitInterceptor implements HandlerInterceptor {
 
-    private final Map<String, Bucket> cache = new ConcurrentHashMap<>();
+    private final ProxyManager<String> proxyManager;
+    private final JdbcTemplate jdbcTemplate;
+
+    private final LinkedHashMap<String, LocalBucket> cache = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, LocalBucket> eldest) {
+            return size() > localCacheSize;
+        }
+    };
 
     @Value("${rate-limit.auth-attempts:5}")
     private int authAttempts;
@@ -25,6 +51,18 @@ public class RateLimitInterceptor implements HandlerInterceptor {
     @Value("${rate-limit.auth-duration-minutes:15}")
     private int authDurationMinutes;
 
+    @Value("${rate-limit.local-cache-size:10000}")
+    private int localCacheSize;
+
+    public RateLimitInterceptor(DataSource dataSource, JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        SQLProxyConfiguration<String> configuration = SQLProxyConfiguration.builder()
+                .withTableSettings(BucketTableSettings.customSettings("rate_limit_buckets", "id", "state"))
+                .withPrimaryKeyMapper(PrimaryKeyMapper.STRING)
+                .build(dataSource);
+        this.proxyManager = new PostgreSQLSelectForUpdateBasedProxyManager<>(configuration);
+    }
+
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
         String requestURI = request.getRequestURI();
@@ -32,36 +70,67 @@ public class RateLimitInterceptor implements HandlerInterceptor {
         // Apply rate limiting only to auth endpoints
         if (requestURI.contains("/api/auth/signin") || requestURI.contains("/api/auth/refresh")) {
             String clientIP = getClientIP(request);
-            Bucket bucket = cache.computeIfAbsent(clientIP, k -> createBucket());
-
-            if (bucket.tryConsume(1)) {
-                return true;
-            } else {
-                log.warn("Rate limit exceeded for IP: {}", clientIP);
-                response.setStatus(429);
-                response.setContentType("application/json");
+            LocalBucket local = localBucket("auth:" + clientIP);
+
+            long waitNanos = local.blockedUntil - System.nanoTime();
+            if (waitNanos <= 0) {
+                ConsumptionProbe probe;
                 try {
-                    response.getWriter().write("{\"message\": \"Too many requests. Try again later.\"}");
-                } catch (Exception e) {
-                    log.error("Error writing rate limit response", e);
+                    probe = local.bucket.tryConsumeAndReturnRemaining(1);
+                } catch (RuntimeException e) {
+                    // Sign-in needs the database too, so there is nothing to protect while it is away
+                    log.warn("Rate limit store unavailable, letting request through: {}", e.getMessage());
+                    return true;
+                }
+                if (probe.isConsumed()) {
+                    return true;
                 }
-                return false;
+                waitNanos = probe.getNanosToWaitForRefill();
+                local.blockedUntil = System.nanoTime() + waitNanos;
             }
+
+            log.warn("Rate limit exceeded for IP: {}", clientIP);
+            response.setStatus(429);
+            response.setHeader("Retry-After", String.valueOf(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos))));
+            response.setContentType("application/json");
+            try {
+                response.getWriter().write("{\"message\": \"Too many requests. Try again later.\"}");
+            } catch (Exception e) {
+                log.error("Error writing rate limit response", e);
+            }
+            return false;
         }
 
         return true;
     }
 
-    // Create bucket with configurable attempts and duration
-    private Bucket createBucket() {
-        log.info("Creating bucket with {} attempts per {} minutes", authAttempts, authDurationMinutes);
+    // A bucket untouched for a whole refill period is full again, so dropping its row changes nothing
+    @Scheduled(cron = "${rate-limit.purge-cron:0 55 * * * *}")
+    public int purgeIdle() {
+        int deleted = jdbcTemplate.update(
+                "DELETE FROM rate_limit_buckets WHERE updated_at < now() - make_interval(mins => ?)",
+                authDurationMinutes);
+        if (deleted > 0) {
+            log.debug("Purged {} idle rate limit buckets", deleted);
+        }
+        return deleted;
+    }
 
+    // The proxy carries the batching state, so one instance per key is kept on each node
+    private synchronized LocalBucket localBucket(String key) {
+        return cache.computeIfAbsent(key, k -> new LocalBucket(proxyManager.builder()
+                .withOptimization(Optimizations.batching())
+                .build(k, this::bucketConfiguration)));
+    }
+
+    // Create bucket with configurable attempts and duration
+    private BucketConfiguration bucketConfiguration() {
         Bandwidth limit = Bandwidth.builder()
                 .capacity(authAttempts)
                 .refillIntervally(authAttempts, Duration.ofMinutes(authDurationMinutes))
                 .build();
 
-        return Bucket.builder()
+        return BucketConfiguration.builder()
                 .addLimit(limit)
                 .build();
     }
@@ -70,10 +139,19 @@ public class RateLimitInterceptor implements HandlerInterceptor {
     private String getClientIP(HttpServletRequest request) {
         String xForwardedFor = request.getHeader("X-Forwarded-For");
         if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
-            return xForwardedFor.split(",")[0];
+            return xForwardedFor.split(",")[0].trim();
         }
-        String clientIP = request.getRemoteAddr();
-        log.info("Rate limit key for user: {}", clientIP);
         return request.getRemoteAddr();
     }
+
+    private static class LocalBucket {
+
+        private final BucketProxy bucket;
+        // System.nanoTime() until which this client is known to be out of tokens
+        private volatile long blockedUntil = System.nanoTime();
+
+        LocalBucket(BucketProxy bucket) {
+            this.bucket = bucket;
+        }
+    }
 }
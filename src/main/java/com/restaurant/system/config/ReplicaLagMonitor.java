@@ -0,0 +1,73 @@
+package com.restaurant.system.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Periodically measures replay lag of every replica and takes lagging or unreachable
+ * replicas out of the routing rotation.
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+
+    // 0 when the replica has replayed everything it received, otherwise seconds since the last replayed commit
+    private static final String LAG_QUERY =
+            "SELECT CASE WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+            "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0) END";
+
+    private final ReplicaRoutingDataSource routingDataSource;
+    private final Map<String, DataSource> replicas;
+    private final double maxLagSeconds;
+    private final Map<String, Double> lagSeconds = new ConcurrentHashMap<>();
+
+    public ReplicaLagMonitor(ReplicaRoutingDataSource routingDataSource,
+                             Map<String, DataSource> replicas,
+                             double maxLagSeconds,
+                             MeterRegistry meterRegistry) {
+        this.routingDataSource = routingDataSource;
+        this.replicas = replicas;
+        this.maxLagSeconds = maxLagSeconds;
+
+        replicas.keySet().forEach(name -> {
+            lagSeconds.put(name, 0.0);
+            Gauge.builder("datasource.replica.lag", lagSeconds, lags -> lags.getOrDefault(name, Double.NaN))
+                    .description("Replay lag of the replica in seconds (NaN when unreachable)")
+                    .baseUnit("seconds")
+                    .tag("pool", name)
+                    .register(meterRegistry);
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${replica-routing.lag-check-interval-ms:5000}")
+    public void checkReplicas() {
+        replicas.forEach((name, dataSource) -> {
+            double lag = measureLag(name, dataSource);
+            lagSeconds.put(name, lag);
+            routingDataSource.markReplicaHealth(name, !Double.isNaN(lag) && lag <= maxLagSeconds);
+        });
+    }
+
+    public double getLagSeconds(String name) {
+        return lagSeconds.getOrDefault(name, Double.NaN);
+    }
+
+    private double measureLag(String name, DataSource dataSource) {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(LAG_QUERY)) {
+            return rs.next() ? rs.getDouble(1) : Double.NaN;
+        } catch (Exception e) {
+            log.warn("Cannot measure lag of replica {}: {}", name, e.getMessage());
+            return Double.NaN;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.restaurant.system.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Configuration
+@EnableConfigurationProperties(ReplicaRoutingProperties.class)
+@ConditionalOnProperty(prefix = "replica-routing", name = "enabled", havingValue = "true")
+public class ReplicaRoutingConfig {
+
+    // spring.datasource.hikari.* (pool size, timeouts) applies to the primary pool as without routing
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties, MeterRegistry meterRegistry) {
+        HikariDataSource primary = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        primary.setPoolName(ReplicaRoutingDataSource.PRIMARY);
+        primary.setMetricRegistry(meterRegistry);
+        return primary;
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(HikariDataSource primaryDataSource,
+                                                             ReplicaRoutingProperties routingProperties,
+                                                             MeterRegistry meterRegistry) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (ReplicaRoutingProperties.Replica replica : routingProperties.getReplicas()) {
+            replicas.put(replica.getName(), createReplicaPool(replica, meterRegistry));
+        }
+
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas, meterRegistry);
+    }
+
+    // Lazy proxy delays the physical connection (and thus routing) until the first statement,
+    // when the transaction's read-only flag is already known
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(ReplicaRoutingDataSource replicaRoutingDataSource,
+                                               ReplicaRoutingProperties routingProperties,
+                                               MeterRegistry meterRegistry) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicaRoutingDataSource.getResolvedDataSources().forEach((key, dataSource) -> {
+            if (!ReplicaRoutingDataSource.PRIMARY.equals(key)) {
+                replicas.put((String) key, dataSource);
+            }
+        });
+        return new ReplicaLagMonitor(replicaRoutingDataSource, replicas,
+                routingProperties.getMaxLagSeconds(), meterRegistry);
+    }
+
+    private HikariDataSource createReplicaPool(ReplicaRoutingProperties.Replica replica, MeterRegistry meterRegistry) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName(replica.getName());
+        dataSource.setJdbcUrl(replica.getUrl());
+        dataSource.setUsername(replica.getUsername());
+        dataSource.setPassword(replica.getPassword());
+        dataSource.setMaximumPoolSize(replica.getMaximumPoolSize());
+        dataSource.setReadOnly(true);
+        // Do not block startup on an unreachable replica - the lag monitor keeps it out of rotation
+        dataSource.setInitializationFailTimeout(-1);
+        dataSource.setMetricRegistry(meterRegistry);
+        return dataSource;
+    }
+}
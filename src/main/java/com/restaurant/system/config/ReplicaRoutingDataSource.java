@@ -0,0 +1,108 @@
+package com.restaurant.system.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends read-only transactions to a healthy replica (round-robin) and everything else to the primary.
+ * Must be wrapped in a LazyConnectionDataSourceProxy so the lookup happens after the
+ * transaction's read-only flag has been bound.
+ */
+@Slf4j
+public final class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+
+    public static final String PRIMARY = "primary";
+
+    private final List<String> replicaNames;
+    // Created for this data source, so it closes them; the primary is a bean of its own
+    private final Map<String, DataSource> replicas;
+    private final Map<String, Boolean> replicaHealth = new LinkedHashMap<>();
+    private final Map<String, Counter> routedConnections = new HashMap<>();
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    private volatile List<String> healthyReplicas;
+
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, MeterRegistry meterRegistry) {
+        Map<Object, Object> targets = new HashMap<>(replicas);
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+
+        this.replicas = Map.copyOf(replicas);
+        this.replicaNames = List.copyOf(replicas.keySet());
+        this.replicaNames.forEach(name -> replicaHealth.put(name, true));
+        this.healthyReplicas = replicaNames;
+
+        routedConnections.put(PRIMARY, routedCounter(meterRegistry, PRIMARY));
+        replicaNames.forEach(name -> routedConnections.put(name, routedCounter(meterRegistry, name)));
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String key = PRIMARY;
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            List<String> candidates = healthyReplicas;
+            if (!candidates.isEmpty()) {
+                key = candidates.get(Math.floorMod(nextReplica.getAndIncrement(), candidates.size()));
+            }
+        }
+        routedConnections.get(key).increment();
+        return key;
+    }
+
+    @Override
+    public void destroy() {
+        replicas.forEach((name, dataSource) -> {
+            if (dataSource instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    log.warn("Cannot close replica pool {}: {}", name, e.getMessage());
+                }
+            }
+        });
+    }
+
+    public List<String> getReplicaNames() {
+        return replicaNames;
+    }
+
+    public List<String> getHealthyReplicas() {
+        return healthyReplicas;
+    }
+
+    public synchronized void markReplicaHealth(String name, boolean healthy) {
+        Boolean previous = replicaHealth.put(name, healthy);
+        if (previous == null || previous == healthy) {
+            return;
+        }
+        if (healthy) {
+            log.info("Replica {} is back in rotation", name);
+        } else {
+            log.warn("Replica {} removed from rotation, reads fall back to {}", name,
+                    replicaHealth.containsValue(true) ? "remaining replicas" : PRIMARY);
+        }
+        healthyReplicas = replicaHealth.entrySet().stream()
+                .filter(Map.Entry::getValue)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    private static Counter routedCounter(MeterRegistry meterRegistry, String pool) {
+        return Counter.builder("datasource.routing.connections")
+                .description("Connections handed out by the routing data source")
+                .tag("pool", pool)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,31 @@
+package com.restaurant.system.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "replica-routing")
+public class ReplicaRoutingProperties {
+
+    // Route @Transactional(readOnly = true) to replicas only when explicitly enabled
+    private boolean enabled = false;
+
+    // Replica is taken out of rotation when its replay lag exceeds this value
+    private double maxLagSeconds = 5.0;
+
+    private long lagCheckIntervalMs = 5000;
+
+    private List<Replica> replicas = new ArrayList<>();
+
+    @Data
+    public static class Replica {
+        private String name;
+        private String url;
+        private String username;
+        private String password;
+        private int maximumPoolSize = 10;
+    }
+}
@@ -0,0 +1,45 @@
+package com.restaurant.system.config;
+
+import com.restaurant.system.util.SqlStatementCounter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+// Records how many SQL statements each endpoint issues, tagged like http.server.requests
+@Component
+@RequiredArgsConstructor
+public class RequestMetricsFilter extends OncePerRequestFilter {
+
+    // Statement counter snapshot at the start of the request, read by StatementBudgetResponseAdvice
+    public static final String STATEMENTS_BEFORE_ATTRIBUTE = RequestMetricsFilter.class.getName() + ".STATEMENTS_BEFORE";
+
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        long statementsBefore = SqlStatementCounter.current();
+        request.setAttribute(STATEMENTS_BEFORE_ATTRIBUTE, statementsBefore);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            DistributionSummary.builder("http.server.requests.db.statements")
+                    .description("SQL statements issued per HTTP request")
+                    .tag("method", request.getMethod())
+                    .tag("uri", pattern != null ? pattern.toString() : "UNKNOWN")
+                    .register(meterRegistry)
+                    .record(SqlStatementCounter.current() - statementsBefore);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.restaurant.system.config;
+
+import com.restaurant.system.util.LoggingAspect;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(ServiceTraceProperties.class)
+@ConditionalOnProperty(prefix = "service-trace", name = "enabled", havingValue = "true")
+public class ServiceTraceConfig {
+
+    @Bean
+    public LoggingAspect loggingAspect(ServiceTraceProperties properties) {
+        return new LoggingAspect(properties);
+    }
+}
@@ -0,0 +1,24 @@
+package com.restaurant.system.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "service-trace")
+public class ServiceTraceProperties {
+
+    // When disabled the aspect is not registered at all, so service calls are not intercepted
+    private boolean enabled = false;
+
+    // Share of calls (0.0 - 1.0) that are traced when no per-method rate matches
+    private double defaultSampleRate = 0.01;
+
+    // Keys: "OrderServiceImpl.createOrder" or "OrderServiceImpl" (all methods of the class)
+    private Map<String, Double> sampleRates = new HashMap<>();
+
+    // Rendered arguments longer than this are truncated
+    private int maxArgumentLength = 256;
+}
@@ -0,0 +1,28 @@
+package com.restaurant.system.config;
+
+import com.restaurant.system.util.StatementCountingDataSource;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+@Configuration
+@EnableConfigurationProperties(StatementBudgetProperties.class)
+public class SqlStatementMetricsConfig {
+
+    // All data access goes through the "dataSource" bean (the routing proxy when replica routing is on),
+    // so wrapping it counts Hibernate and JdbcTemplate statements alike, each exactly once
+    @Bean
+    public static BeanPostProcessor statementCountingDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return "dataSource".equals(beanName) && bean instanceof DataSource dataSource
+                        ? new StatementCountingDataSource(dataSource)
+                        : bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,43 @@
+package com.restaurant.system.config;
+
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * startup.lazy-docs=true creates the OpenAPI / Swagger UI beans on the first docs request
+ * instead of during startup. With an AOT build (-Paot) the flag is applied when the jar is
+ * built, so it has to be passed to processAot as well.
+ */
+@Configuration
+public class StartupConfig {
+
+    private static final String[] DOCS_PACKAGES = {"org.springdoc.", "io.swagger."};
+
+    @Bean
+    public static BeanFactoryPostProcessor lazyApiDocs(Environment environment) {
+        return beanFactory -> {
+            if (!environment.getProperty("startup.lazy-docs", Boolean.class, false)) {
+                return;
+            }
+            for (String name : beanFactory.getBeanDefinitionNames()) {
+                Class<?> type = beanFactory.getType(name, false);
+                if (type != null && (isDocs(type) || type == SwaggerConfig.class)) {
+                    BeanDefinition definition = beanFactory.getBeanDefinition(name);
+                    definition.setLazyInit(true);
+                }
+            }
+        };
+    }
+
+    private static boolean isDocs(Class<?> type) {
+        for (String prefix : DOCS_PACKAGES) {
+            if (type.getName().startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,34 @@
+package com.restaurant.system.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "statement-budget")
+public class StatementBudgetProperties {
+
+    private boolean enabled = true;
+
+    // LOG only warns; FAIL throws StatementBudgetExceededException before the transaction commits
+    // (meant for dev and tests)
+    private Mode mode = Mode.LOG;
+
+    // Default limits; 0 or less disables the check
+    private int maxPerRequest = 30;
+    private int maxPerMethod = 20;
+
+    // Overrides, keys: "GET /api/orders/{id}" and "OrderServiceImpl.getAllOrders"
+    private Map<String, Integer> endpoints = new HashMap<>();
+    private Map<String, Integer> methods = new HashMap<>();
+
+    // Adds X-SQL-Statement-Count to every response; keep off in production
+    private boolean responseHeader = false;
+
+    public enum Mode {
+        LOG,
+        FAIL
+    }
+}
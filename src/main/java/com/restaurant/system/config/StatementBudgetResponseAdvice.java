@@ -0,0 +1,65 @@
+package com.restaurant.system.config;
+
+import com.restaurant.system.util.SqlStatementCounter;
+import com.restaurant.system.util.StatementBudgetGuard;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Checks the request statement budget right before the body is written, while the status
+ * and headers can still be changed.
+ */
+@RestControllerAdvice
+@RequiredArgsConstructor
+public class StatementBudgetResponseAdvice implements ResponseBodyAdvice<Object> {
+
+    public static final String STATEMENT_COUNT_HEADER = "X-SQL-Statement-Count";
+
+    private static final String CHECKED_ATTRIBUTE = StatementBudgetResponseAdvice.class.getName() + ".CHECKED";
+
+    private final StatementBudgetGuard statementBudgetGuard;
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body,
+                                  MethodParameter returnType,
+                                  MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request,
+                                  ServerHttpResponse response) {
+        if (!(request instanceof ServletServerHttpRequest servletRequest)) {
+            return body;
+        }
+        HttpServletRequest httpRequest = servletRequest.getServletRequest();
+        Object start = httpRequest.getAttribute(RequestMetricsFilter.STATEMENTS_BEFORE_ATTRIBUTE);
+        if (!(start instanceof Long statementsBefore)) {
+            return body;
+        }
+        long statements = SqlStatementCounter.current() - statementsBefore;
+
+        if (statementBudgetGuard.isResponseHeaderEnabled()) {
+            response.getHeaders().set(STATEMENT_COUNT_HEADER, Long.toString(statements));
+        }
+        // Error bodies produced by GlobalExceptionHandler pass through here again - check only once
+        if (httpRequest.getAttribute(CHECKED_ATTRIBUTE) == null) {
+            httpRequest.setAttribute(CHECKED_ATTRIBUTE, Boolean.TRUE);
+            Object pattern = httpRequest.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            statementBudgetGuard.checkRequest(httpRequest.getMethod(),
+                    pattern != null ? pattern.toString() : httpRequest.getRequestURI(), statements);
+        }
+        return body;
+    }
+}
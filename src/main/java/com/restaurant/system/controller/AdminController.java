@@ -1,14 +1,22 @@
 package com.restaurant.system.controller;
 
+import com.restaurant.system.dto.audit.IntegrityAuditReportDTO;
+import com.restaurant.system.service.IntegrityAuditService;
+import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
 @RequestMapping("/api/admin")
+@RequiredArgsConstructor
 public class AdminController {
 
+    private final IntegrityAuditService integrityAuditService;
+
     @GetMapping("/health")
     public ResponseEntity<String> health() {
         return ResponseEntity.ok("API is running");
@@ -18,4 +26,10 @@ public class AdminController {
     public ResponseEntity<String> version() {
         return ResponseEntity.ok("v1.0.0");
     }
+
+    // Runs synchronously; with repair=true drifted totals and stock snapshots are recomputed
+    @PostMapping("/integrity-audit")
+    public ResponseEntity<IntegrityAuditReportDTO> integrityAudit(@RequestParam(defaultValue = "false") boolean repair) {
+        return ResponseEntity.ok(integrityAuditService.audit(repair));
+    }
 }
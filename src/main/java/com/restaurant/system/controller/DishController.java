@@ -1,7 +1,12 @@
 package com.restaurant.system.controller;
 
+import com.restaurant.system.dto.DishAvailabilityDTO;
+import com.restaurant.system.dto.DishCostDTO;
 import com.restaurant.system.dto.DishDTO;
+import com.restaurant.system.dto.DishSearchResultDTO;
+import com.restaurant.system.service.DishCostService;
 import com.restaurant.system.service.DishService;
+import com.restaurant.system.service.StockProjectionService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
@@ -12,6 +17,8 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/dishes")
 @RequiredArgsConstructor
@@ -19,6 +26,8 @@ import org.springframework.web.bind.annotation.*;
 public class DishController {
 
     private final DishService dishService;
+    private final StockProjectionService stockProjectionService;
+    private final DishCostService dishCostService;
 
     @PostMapping
     @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
@@ -46,6 +55,57 @@ public class DishController {
         return ResponseEntity.ok(dishService.getAllDishes(page, size, sortBy, direction));
     }
 
+    @GetMapping("/search")
+    @Operation(summary = "Fuzzy search dishes by name, optionally by category and description, ranked by similarity")
+    public ResponseEntity<Page<DishSearchResultDTO>> searchDishes(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "false") boolean searchCategory,
+            @RequestParam(defaultValue = "false") boolean searchDescription,
+            @RequestParam(required = false) String category,
+            @RequestParam(defaultValue = "false") boolean availableOnly,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size) {
+        return ResponseEntity.ok(dishService.searchDishes(
+                q, searchCategory, searchDescription, category, availableOnly, page, size));
+    }
+
+    @GetMapping("/availability")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER', 'WAITER')")
+    @Operation(summary = "Portions of each dish that can still be prepared from unreserved stock")
+    public ResponseEntity<List<DishAvailabilityDTO>> getDishAvailability() {
+        return ResponseEntity.ok(stockProjectionService.getDishAvailability());
+    }
+
+    @GetMapping("/{id}/availability")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER', 'WAITER')")
+    @Operation(summary = "Portions of the dish that can still be prepared from unreserved stock")
+    public ResponseEntity<DishAvailabilityDTO> getDishAvailability(@PathVariable Long id) {
+        // Dishes without a recipe are not limited by stock
+        return stockProjectionService.getDishAvailability(id)
+                .or(() -> dishService.getDishById(id).map(dish -> DishAvailabilityDTO.builder()
+                        .dishId(dish.getId())
+                        .dishName(dish.getName())
+                        .build()))
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/{id}/cost")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
+    @Operation(summary = "Ingredient cost and margin of the dish")
+    public ResponseEntity<DishCostDTO> getDishCost(@PathVariable Long id) {
+        // Dishes without a recipe have no cost to report
+        return dishCostService.getDishCost(id)
+                .or(() -> dishService.getDishById(id).map(dish -> DishCostDTO.builder()
+                        .dishId(dish.getId())
+                        .dishName(dish.getName())
+                        .category(dish.getCategory())
+                        .price(dish.getPrice())
+                        .build()))
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
     @GetMapping("/category/{category}")
     @Operation(summary = "Get dishes by category")
     public ResponseEntity<Page<DishDTO>> getDishesByCategory(
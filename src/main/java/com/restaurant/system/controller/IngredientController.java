@@ -1,7 +1,13 @@
 package com.restaurant.system.controller;
 
 import com.restaurant.system.dto.IngredientDTO;
+import com.restaurant.system.dto.IngredientForecastDTO;
+import com.restaurant.system.dto.StockMovementDTO;
+import com.restaurant.system.dto.StocktakeDTO;
+import com.restaurant.system.dto.StocktakeResultDTO;
 import com.restaurant.system.service.IngredientService;
+import com.restaurant.system.service.InventoryForecastService;
+import com.restaurant.system.service.StockLedgerService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
@@ -13,6 +19,7 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
+import java.time.OffsetDateTime;
 import java.util.List;
 
 @RestController
@@ -22,6 +29,8 @@ import java.util.List;
 public class IngredientController {
 
     private final IngredientService ingredientService;
+    private final InventoryForecastService inventoryForecastService;
+    private final StockLedgerService stockLedgerService;
 
     @PostMapping
     @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
@@ -58,6 +67,36 @@ public class IngredientController {
         return ResponseEntity.ok(ingredientService.getLowStockIngredients());
     }
 
+    @GetMapping("/forecast")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
+    @Operation(summary = "Forecast consumption, stock-out date and reorder quantity per ingredient")
+    public ResponseEntity<List<IngredientForecastDTO>> getForecast() {
+        return ResponseEntity.ok(inventoryForecastService.getForecast());
+    }
+
+    @GetMapping("/{id}/movements")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
+    @Operation(summary = "Get stock movements of an ingredient (default: last 30 days), newest first")
+    public ResponseEntity<Page<StockMovementDTO>> getStockMovements(
+            @PathVariable Long id,
+            @RequestParam(required = false) OffsetDateTime from,
+            @RequestParam(required = false) OffsetDateTime to,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        OffsetDateTime end = to != null ? to : OffsetDateTime.now();
+        OffsetDateTime start = from != null ? from : end.minusDays(30);
+        return ResponseEntity.ok(stockLedgerService.getMovements(id, start, end, page, size));
+    }
+
+    @GetMapping("/{id}/stock")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER', 'WAITER')")
+    @Operation(summary = "Get ingredient stock, now or at a point in time")
+    public ResponseEntity<BigDecimal> getStock(
+            @PathVariable Long id,
+            @RequestParam(required = false) OffsetDateTime at) {
+        return ResponseEntity.ok(stockLedgerService.getStock(id, at));
+    }
+
     @PutMapping("/{id}")
     @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
     @Operation(summary = "Update ingredient")
@@ -84,4 +123,11 @@ public class IngredientController {
         ingredientService.updateStock(id, quantity);
         return ResponseEntity.ok().build();
     }
+
+    @PostMapping("/stocktake")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
+    @Operation(summary = "Record counted stock for many ingredients and get the variance report")
+    public ResponseEntity<StocktakeResultDTO> stocktake(@Valid @RequestBody StocktakeDTO stocktakeDTO) {
+        return ResponseEntity.ok(ingredientService.stocktake(stocktakeDTO));
+    }
 }
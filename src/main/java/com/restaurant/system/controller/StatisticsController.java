@@ -1,6 +1,9 @@
 package com.restaurant.system.controller;
 
+import com.restaurant.system.dto.DishCostDTO;
 import com.restaurant.system.dto.statistics.DashboardStatsDTO;
+import com.restaurant.system.dto.statistics.HeatmapDTO;
+import com.restaurant.system.service.SalesHeatmapService;
 import com.restaurant.system.service.StatisticsService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -11,6 +14,8 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/admin/statistics")
@@ -20,6 +25,7 @@ import java.time.LocalDate;
 public class StatisticsController {
 
     private final StatisticsService statisticsService;
+    private final SalesHeatmapService salesHeatmapService;
 
     @GetMapping("/dashboard")
     @Operation(summary = "Get dashboard statistics")
@@ -34,4 +40,27 @@ public class StatisticsController {
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
         return ResponseEntity.ok(statisticsService.getSalesStats(from, to));
     }
+
+    @GetMapping("/dish-margins")
+    @Operation(summary = "Get ingredient cost and margin per dish, lowest margin first by default")
+    public ResponseEntity<List<DishCostDTO>> getDishMargins(
+            @RequestParam(required = false) String category,
+            @RequestParam(defaultValue = "marginPercent") String sortBy,
+            @RequestParam(defaultValue = "asc") String direction,
+            @RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok(statisticsService.getDishMargins(category, sortBy, direction, limit));
+    }
+
+    @GetMapping("/heatmap")
+    @Operation(summary = "Get sales and covers by weekday and hour over the last whole weeks")
+    public ResponseEntity<HeatmapDTO> getHeatmap(@RequestParam(defaultValue = "8") int weeks) {
+        return ResponseEntity.ok(salesHeatmapService.getHeatmap(weeks));
+    }
+
+    @PostMapping("/heatmap/backfill")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Rebuild the heatmap rollup from the full sales and reservation history")
+    public ResponseEntity<Map<String, Object>> backfillHeatmap() {
+        return ResponseEntity.ok(Map.of("rows", salesHeatmapService.backfill()));
+    }
 }
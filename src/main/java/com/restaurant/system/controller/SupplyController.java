@@ -1,19 +1,32 @@
 package com.restaurant.system.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.restaurant.system.dto.SupplyDTO;
+import com.restaurant.system.dto.SupplyImportResultDTO;
 import com.restaurant.system.dto.SupplyItemDTO;
 import com.restaurant.system.entity.enums.SupplyStatus;
+import com.restaurant.system.service.InventoryForecastService;
+import com.restaurant.system.service.SupplyImportService;
 import com.restaurant.system.service.SupplyService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 @RestController
@@ -22,7 +35,12 @@ import java.util.List;
 @Tag(name = "Supplies", description = "Supply and inventory endpoints")
 public class SupplyController {
 
+    private static final String NDJSON = "application/x-ndjson";
+
     private final SupplyService supplyService;
+    private final InventoryForecastService inventoryForecastService;
+    private final SupplyImportService supplyImportService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping
     @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
@@ -103,6 +121,34 @@ public class SupplyController {
                 .body(supplyService.addItemToSupply(supplyId, itemDTO));
     }
 
+    @PostMapping(value = "/{supplyId}/items/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
+    @Operation(summary = "Import supply items from an uploaded CSV or NDJSON file (*.ndjson, *.jsonl); " +
+            "streams one NDJSON error per rejected line, then a summary line")
+    public void importSupplyItems(
+            @PathVariable Long supplyId,
+            @RequestParam("file") MultipartFile file,
+            HttpServletResponse response) throws IOException {
+        String name = file.getOriginalFilename() != null ? file.getOriginalFilename().toLowerCase() : "";
+        boolean ndjson = NDJSON.equals(file.getContentType()) || name.endsWith(".ndjson") || name.endsWith(".jsonl");
+        try (InputStream input = file.getInputStream()) {
+            importItems(supplyId, input, ndjson ? SupplyImportService.Format.NDJSON : SupplyImportService.Format.CSV,
+                    response);
+        }
+    }
+
+    @PostMapping(value = "/{supplyId}/items/import", consumes = {"text/csv", NDJSON})
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
+    @Operation(summary = "Import supply items from a text/csv or application/x-ndjson request body")
+    public void importSupplyItemsFromBody(
+            @PathVariable Long supplyId,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        boolean ndjson = request.getContentType().startsWith(NDJSON);
+        importItems(supplyId, request.getInputStream(),
+                ndjson ? SupplyImportService.Format.NDJSON : SupplyImportService.Format.CSV, response);
+    }
+
     @GetMapping("/{supplyId}/items")
     @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER', 'WAITER')")
     @Operation(summary = "Get supply items")
@@ -126,4 +172,51 @@ public class SupplyController {
     public ResponseEntity<SupplyDTO> confirmSupply(@PathVariable Long id) {
         return ResponseEntity.ok(supplyService.confirmSupply(id));
     }
+
+    @PostMapping("/reorder-drafts")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
+    @Operation(summary = "Create draft supplies per supplier from the ingredient consumption forecast")
+    public ResponseEntity<List<SupplyDTO>> createReorderDrafts() {
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(inventoryForecastService.createReorderDrafts());
+    }
+
+    // Errors are written as they are found; the summary line comes last, so a response
+    // without it means the import failed and was rolled back
+    private void importItems(Long supplyId, InputStream input, SupplyImportService.Format format,
+                             HttpServletResponse response) throws IOException {
+        NdjsonLines lines = new NdjsonLines(response);
+        SupplyImportResultDTO result = supplyImportService.importItems(supplyId, input, format, lines::write);
+        lines.write(result);
+        lines.flush();
+    }
+
+    // Opens the response writer on the first line only, so that errors thrown before
+    // (unknown or confirmed supply) still get a regular error response
+    private final class NdjsonLines {
+        private final HttpServletResponse response;
+        private Writer writer;
+
+        private NdjsonLines(HttpServletResponse response) {
+            this.response = response;
+        }
+
+        private void write(Object line) {
+            try {
+                if (writer == null) {
+                    response.setContentType(NDJSON);
+                    response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+                    writer = response.getWriter();
+                }
+                writer.write(objectMapper.writeValueAsString(line));
+                writer.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void flush() throws IOException {
+            writer.flush();
+        }
+    }
 }
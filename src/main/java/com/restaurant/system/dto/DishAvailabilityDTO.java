@@ -0,0 +1,22 @@
+package com.restaurant.system.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DishAvailabilityDTO {
+    private Long dishId;
+    private String dishName;
+
+    // Portions that can still be prepared from unreserved stock, null when the dish has no recipe
+    private Integer portionsAvailable;
+
+    // Ingredient that runs out first, null when the dish has no recipe
+    private Long limitingIngredientId;
+    private String limitingIngredientName;
+}
@@ -0,0 +1,25 @@
+package com.restaurant.system.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.math.BigDecimal;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DishCostDTO {
+    private Long dishId;
+    private String dishName;
+    private String category;
+    private BigDecimal price;
+
+    // Ingredient cost of one portion, null when the dish has no recipe
+    private BigDecimal cost;
+
+    // price - cost, and its share of the price in percent
+    private BigDecimal margin;
+    private BigDecimal marginPercent;
+}
@@ -0,0 +1,25 @@
+package com.restaurant.system.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.math.BigDecimal;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DishSearchResultDTO {
+    private Long id;
+    private String name;
+    private String description;
+    private String category;
+    private BigDecimal price;
+    private Boolean isAvailable;
+    private String imageUrl;
+    private Integer preparationTimeMinutes;
+
+    // 0..1, higher is a closer match
+    private Double score;
+}
@@ -42,4 +42,7 @@ public class IngredientDTO {
     private BigDecimal minStockLevel;
 
     private OffsetDateTime createdAt;
+
+    // As last read; on update a stale version is rejected with 409
+    private Long version;
 }
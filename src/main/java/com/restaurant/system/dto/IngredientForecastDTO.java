@@ -0,0 +1,37 @@
+package com.restaurant.system.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IngredientForecastDTO {
+    private Long ingredientId;
+    private String ingredientName;
+    private String unit;
+    private BigDecimal stockQuantity;
+    private BigDecimal minStockLevel;
+
+    // Ordered in PENDING supplies, not in stock yet
+    private BigDecimal incomingQuantity;
+
+    // Average over the lookback window, from completed orders and current recipes
+    private BigDecimal dailyConsumption;
+
+    // null when the ingredient is not consumed
+    private BigDecimal daysUntilStockout;
+    private LocalDate stockoutDate;
+
+    // Zero when no reorder is needed
+    private BigDecimal suggestedQuantity;
+
+    // Supplier and price of the last confirmed delivery, null when never delivered
+    private Long supplierId;
+    private BigDecimal lastUnitPrice;
+}
@@ -37,6 +37,8 @@ public class OrderDTO {
 
     private OffsetDateTime createdAt;
 
+    private Long version;
+
     @NotEmpty(message = "Order must contain at least one item")
     @Valid
     @Builder.Default
@@ -44,4 +44,7 @@ public class ReservationDTO {
     private String notes;
 
     private OffsetDateTime createdAt;
+
+    // As last read; on update a stale version is rejected with 409
+    private Long version;
 }
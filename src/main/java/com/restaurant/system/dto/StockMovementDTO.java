@@ -0,0 +1,27 @@
+package com.restaurant.system.dto;
+
+import com.restaurant.system.entity.enums.StockMovementType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockMovementDTO {
+    private Long id;
+    private Long ingredientId;
+    private StockMovementType movementType;
+
+    // Signed: positive for supplies, negative for sales
+    private BigDecimal quantity;
+
+    private Long supplyId;
+    private Long orderId;
+    private String note;
+    private OffsetDateTime createdAt;
+}
@@ -0,0 +1,23 @@
+package com.restaurant.system.dto;
+
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.math.BigDecimal;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StocktakeCountDTO {
+    @NotNull(message = "Ingredient ID is required")
+    private Long ingredientId;
+
+    // Absolute quantity found on the shelf, not a delta
+    @NotNull(message = "Counted quantity is required")
+    @DecimalMin(value = "0", message = "Counted quantity cannot be negative")
+    private BigDecimal countedQuantity;
+}
@@ -0,0 +1,24 @@
+package com.restaurant.system.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StocktakeDTO {
+    // Large enough for the whole ingredient catalogue; large counts lock the ledger as a whole
+    @NotEmpty(message = "At least one count is required")
+    @Size(max = 5000, message = "A stocktake cannot exceed 5000 counts")
+    private List<@Valid StocktakeCountDTO> counts;
+
+    @Size(max = 255, message = "Note cannot exceed 255 characters")
+    private String note;
+}
@@ -0,0 +1,23 @@
+package com.restaurant.system.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StocktakeResultDTO {
+    private OffsetDateTime countedAt;
+    private Integer counted;
+
+    // Ingredients whose count differed from system stock
+    private Integer adjusted;
+    private BigDecimal totalVarianceCost;
+    private List<StocktakeVarianceDTO> variances;
+}
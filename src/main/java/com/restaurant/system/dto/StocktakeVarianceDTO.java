@@ -0,0 +1,23 @@
+package com.restaurant.system.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.math.BigDecimal;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StocktakeVarianceDTO {
+    private Long ingredientId;
+    private String ingredientName;
+    private String unit;
+    private BigDecimal systemQuantity;
+    private BigDecimal countedQuantity;
+
+    // counted - system: negative for shrinkage, booked as an ADJUSTMENT movement when not zero
+    private BigDecimal variance;
+    private BigDecimal varianceCost;
+}
@@ -39,6 +39,8 @@ public class SupplyDTO {
 
     private OffsetDateTime createdAt;
 
+    private Long version;
+
     @NotEmpty(message = "Supply must contain at least one item")
     @Valid
     @Builder.Default
@@ -0,0 +1,16 @@
+package com.restaurant.system.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SupplyImportErrorDTO {
+    // 1-based line number in the uploaded file
+    private Integer line;
+    private String error;
+}
@@ -0,0 +1,19 @@
+package com.restaurant.system.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SupplyImportResultDTO {
+    private Long supplyId;
+
+    // Non-blank lines read, excluding a CSV header
+    private Integer lines;
+    private Integer imported;
+    private Integer rejected;
+}
@@ -0,0 +1,22 @@
+package com.restaurant.system.dto.audit;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DiscrepancyDTO {
+    // ORDER_TOTAL, SALE_TOTAL, SUPPLY_COST or STOCK
+    private String check;
+    // Order, sale, supply or ingredient id, depending on the check
+    private Long entityId;
+    // Recomputed from the detail rows, or for STOCK from the previous snapshot and the movements since
+    private BigDecimal expected;
+    private BigDecimal actual;
+}
@@ -0,0 +1,18 @@
+package com.restaurant.system.dto.audit;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FailedChunkDTO {
+    private String check;
+    // The unchecked id range, both ends included
+    private Long fromId;
+    private Long toId;
+    private String error;
+}
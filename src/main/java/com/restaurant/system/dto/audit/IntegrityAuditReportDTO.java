@@ -0,0 +1,29 @@
+package com.restaurant.system.dto.audit;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IntegrityAuditReportDTO {
+    private OffsetDateTime startedAt;
+    private Long durationMs;
+    private Boolean repair;
+    private Integer chunks;
+    // False when a chunk hit the statement timeout or failed otherwise: the report does not cover its range
+    private Boolean complete;
+    private List<FailedChunkDTO> failedChunks;
+    private Map<String, Integer> discrepancies;
+    private Map<String, Integer> repaired;
+    // At most integrity-audit.max-reported entries, ordered by check and id
+    private List<DiscrepancyDTO> details;
+    private Boolean truncated;
+}
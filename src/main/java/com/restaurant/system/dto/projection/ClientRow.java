@@ -0,0 +1,13 @@
+package com.restaurant.system.dto.projection;
+
+import java.time.OffsetDateTime;
+
+// Columns of ClientDTO selected directly by ClientRepository.findAllRows
+public record ClientRow(
+        Long id,
+        String fullName,
+        String phone,
+        String email,
+        OffsetDateTime createdAt
+) {
+}
@@ -0,0 +1,18 @@
+package com.restaurant.system.dto.projection;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+// Columns of DishDTO selected directly by DishRepository.findAllRows
+public record DishRow(
+        Long id,
+        String name,
+        String description,
+        String category,
+        BigDecimal price,
+        Boolean isAvailable,
+        String imageUrl,
+        Integer preparationTimeMinutes,
+        OffsetDateTime createdAt
+) {
+}
@@ -0,0 +1,17 @@
+package com.restaurant.system.dto.projection;
+
+import java.math.BigDecimal;
+
+// One hit of DishSearchRepository.search; score is the pg_trgm word similarity of the best matching column
+public record DishSearchRow(
+        Long id,
+        String name,
+        String description,
+        String category,
+        BigDecimal price,
+        Boolean isAvailable,
+        String imageUrl,
+        Integer preparationTimeMinutes,
+        double score
+) {
+}
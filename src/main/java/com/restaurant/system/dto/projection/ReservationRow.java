@@ -0,0 +1,21 @@
+package com.restaurant.system.dto.projection;
+
+import com.restaurant.system.entity.enums.ReservationStatus;
+
+import java.time.OffsetDateTime;
+
+// Columns of ReservationDTO selected by ReservationRepository.findAllRows, table number joined in the same query
+public record ReservationRow(
+        Long id,
+        OffsetDateTime reservationTime,
+        Integer durationMinutes,
+        Integer partySize,
+        Long clientId,
+        Long tableId,
+        String tableNumber,
+        ReservationStatus status,
+        String notes,
+        OffsetDateTime createdAt,
+        Long version
+) {
+}
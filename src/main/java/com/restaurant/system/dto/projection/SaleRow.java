@@ -0,0 +1,18 @@
+package com.restaurant.system.dto.projection;
+
+import com.restaurant.system.entity.enums.PaymentMethod;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+// Columns of SaleDTO selected directly by SaleRepository.findAllRows; ids come from FK columns
+public record SaleRow(
+        Long id,
+        OffsetDateTime saleTime,
+        BigDecimal total,
+        PaymentMethod paymentMethod,
+        Long orderId,
+        String receiptNumber,
+        Long processedByUserId
+) {
+}
@@ -0,0 +1,15 @@
+package com.restaurant.system.dto.projection;
+
+import java.math.BigDecimal;
+
+// Columns of SupplyItemDTO selected by SupplyItemRepository.findRowsBySupplyId, without loading
+// the ingredient entity (its stock is a per-row formula)
+public record SupplyItemRow(
+        Long id,
+        Long supplyId,
+        Long ingredientId,
+        String ingredientName,
+        BigDecimal quantity,
+        BigDecimal unitPrice
+) {
+}
@@ -0,0 +1,26 @@
+package com.restaurant.system.dto.statistics;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HeatmapCellDTO {
+    // ISO day of week, 1 = Monday
+    private Integer dayOfWeek;
+    private Integer hour;
+    private Long salesCount;
+    private BigDecimal revenue;
+    private Long reservations;
+    private Long covers;
+    // Per week of the requested period
+    private BigDecimal avgSales;
+    private BigDecimal avgRevenue;
+    private BigDecimal avgCovers;
+}
@@ -0,0 +1,22 @@
+package com.restaurant.system.dto.statistics;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HeatmapDTO {
+    private LocalDate from;
+    private LocalDate to;
+    private Integer weeks;
+    private String timeZone;
+    // All 7 x 24 cells, Monday 00:00 first
+    private List<HeatmapCellDTO> cells;
+}
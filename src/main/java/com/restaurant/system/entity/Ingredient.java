@@ -2,6 +2,7 @@ package com.restaurant.system.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Formula;
 import java.io.Serializable;
 import java.math.BigDecimal;
 import java.time.OffsetDateTime;
@@ -29,7 +30,8 @@ public class Ingredient implements Serializable {
     @Column(nullable = false, length = 50)
     private String unit;
 
-    @Column(name = "stock_quantity", nullable = false, precision = 12, scale = 3)
+    // Derived from the stock ledger (latest snapshot + later movements), changed via StockLedgerService
+    @Formula("fn_ingredient_stock(id)")
     @Builder.Default
     private BigDecimal stockQuantity = BigDecimal.ZERO;
 
@@ -46,6 +48,10 @@ public class Ingredient implements Serializable {
     @Builder.Default
     private List<DishIngredient> dishIngredients = new ArrayList<>();
 
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     @Column(name = "created_at")
     private OffsetDateTime createdAt;
 
@@ -2,6 +2,8 @@ package com.restaurant.system.entity;
 
 import com.restaurant.system.entity.enums.OrderStatus;
 import jakarta.persistence.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -31,11 +33,13 @@ public class Order implements Serializable {
     @Builder.Default
     private OffsetDateTime orderTime = OffsetDateTime.now();  // ← ДОБАВИТЬ default
 
-    @Column(nullable = false, precision = 12, scale = 2)  // ← ДОБАВИТЬ precision/scale
+    // Maintained by fn_update_order_total; never written back, so a stale copy cannot overwrite it
+    @Column(nullable = false, precision = 12, scale = 2, updatable = false)
     @Builder.Default
     private BigDecimal total = BigDecimal.ZERO;  // ← ДОБАВИТЬ default
 
     @Enumerated(EnumType.STRING)
+    @JdbcTypeCode(SqlTypes.NAMED_ENUM)
     @Column(nullable = false)
     @Builder.Default
     private OrderStatus status = OrderStatus.PENDING;  // ← ДОБАВИТЬ default
@@ -74,6 +78,10 @@ public class Order implements Serializable {
         return createdBy != null ? createdBy.getId() : null;
     }
 
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     @Column(name = "created_at")
     private OffsetDateTime createdAt;
 
@@ -2,6 +2,8 @@ package com.restaurant.system.entity;
 
 import com.restaurant.system.entity.enums.ReservationStatus;
 import jakarta.persistence.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 import lombok.*;
 import java.io.Serializable;
 import java.time.OffsetDateTime;
@@ -43,6 +45,7 @@ public class Reservation implements Serializable {
     private RestaurantTable table;
 
     @Enumerated(EnumType.STRING)
+    @JdbcTypeCode(SqlTypes.NAMED_ENUM)
     @Column(nullable = false)
     @Builder.Default
     private ReservationStatus status = ReservationStatus.ACTIVE;
@@ -54,6 +57,10 @@ public class Reservation implements Serializable {
     @Builder.Default
     private List<Order> orders = new ArrayList<>();
 
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     @Column(name = "created_at")
     private OffsetDateTime createdAt;
 
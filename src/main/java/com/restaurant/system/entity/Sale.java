@@ -2,6 +2,8 @@ package com.restaurant.system.entity;
 
 import com.restaurant.system.entity.enums.PaymentMethod;
 import jakarta.persistence.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 import lombok.*;
 import java.io.Serializable;
 import java.math.BigDecimal;
@@ -29,6 +31,7 @@ public class Sale implements Serializable {
     private BigDecimal total;
 
     @Enumerated(EnumType.STRING)
+    @JdbcTypeCode(SqlTypes.NAMED_ENUM)
     @Column(name = "payment_method")
     private PaymentMethod paymentMethod;
 
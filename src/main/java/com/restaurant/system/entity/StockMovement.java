@@ -0,0 +1,68 @@
+package com.restaurant.system.entity;
+
+import com.restaurant.system.entity.enums.StockMovementType;
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+import lombok.*;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+// Read-only view of the ledger: rows are appended by StockLedgerService and the database triggers
+@Entity
+@Immutable
+@Table(name = "stock_movements")
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockMovement implements Serializable {
+
+    private static final long serialVersionUID = 15L;
+
+    @Id
+    private Long id;
+
+    @Column(name = "ingredient_id", nullable = false)
+    private Long ingredientId;
+
+    @Enumerated(EnumType.STRING)
+    @JdbcTypeCode(SqlTypes.NAMED_ENUM)
+    @Column(name = "movement_type", nullable = false)
+    private StockMovementType movementType;
+
+    @Column(nullable = false, precision = 14, scale = 4)
+    private BigDecimal quantity;
+
+    @Column(name = "supply_id")
+    private Long supplyId;
+
+    @Column(name = "order_id")
+    private Long orderId;
+
+    private String note;
+
+    @Column(name = "created_at", nullable = false)
+    private OffsetDateTime createdAt;
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof StockMovement)) return false;
+        StockMovement that = (StockMovement) o;
+        return id != null && id.equals(that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "StockMovement{id=" + id + ", ingredientId=" + ingredientId + ", type=" + movementType
+                + ", quantity=" + quantity + "}";
+    }
+}
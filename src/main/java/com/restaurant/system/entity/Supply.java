@@ -2,6 +2,8 @@ package com.restaurant.system.entity;
 
 import com.restaurant.system.entity.enums.SupplyStatus;
 import jakarta.persistence.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 import lombok.*;
 import java.io.Serializable;
 import java.math.BigDecimal;
@@ -32,6 +34,7 @@ public class Supply implements Serializable {
     private Supplier supplier;
 
     @Enumerated(EnumType.STRING)
+    @JdbcTypeCode(SqlTypes.NAMED_ENUM)
     @Column(nullable = false)
     @Builder.Default
     private SupplyStatus status = SupplyStatus.PENDING;
@@ -51,6 +54,10 @@ public class Supply implements Serializable {
     @Builder.Default
     private List<SupplyItem> supplyItems = new ArrayList<>();
 
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     @Column(name = "created_at")
     private OffsetDateTime createdAt;
 
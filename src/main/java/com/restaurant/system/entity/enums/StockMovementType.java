@@ -0,0 +1,8 @@
+package com.restaurant.system.entity.enums;
+
+public enum StockMovementType {
+    INITIAL,
+    SUPPLY,
+    SALE,
+    ADJUSTMENT
+}
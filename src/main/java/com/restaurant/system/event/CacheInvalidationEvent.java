@@ -0,0 +1,15 @@
+package com.restaurant.system.event;
+
+import java.util.Set;
+
+/**
+ * Another node changed the given entries of a cache region, or - with {@code ids == null} -
+ * the region has to be reloaded completely (after a reconnect the node may have missed changes).
+ * Published in-process by the cache invalidation listener; subscribe with {@code @EventListener}.
+ */
+public record CacheInvalidationEvent(CacheRegion region, Set<Long> ids) {
+
+    public boolean isFullResync() {
+        return ids == null;
+    }
+}
@@ -0,0 +1,8 @@
+package com.restaurant.system.event;
+
+// In-memory caches kept in step across nodes; ids are dish ids for DISH, ingredient ids otherwise
+public enum CacheRegion {
+    DISH,
+    INGREDIENT_COST,
+    STOCK
+}
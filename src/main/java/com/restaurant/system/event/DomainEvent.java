@@ -0,0 +1,19 @@
+package com.restaurant.system.event;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.time.OffsetDateTime;
+
+/**
+ * An outbox row as handed to subscribers. Subscribe with {@code @EventListener} on this type;
+ * delivery is at least once, so handlers must tolerate seeing the same {@code id} again.
+ */
+public record DomainEvent(
+        Long id,
+        DomainEventType type,
+        String aggregateType,
+        Long aggregateId,
+        JsonNode payload,
+        OffsetDateTime createdAt
+) {
+}
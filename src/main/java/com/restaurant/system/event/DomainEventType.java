@@ -0,0 +1,32 @@
+package com.restaurant.system.event;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public enum DomainEventType {
+    ORDER_CREATED("ORDER"),
+    ORDER_STATUS_CHANGED("ORDER"),
+    ORDER_ITEM_ADDED("ORDER"),
+    ORDER_ITEM_REMOVED("ORDER"),
+    ORDER_DELETED("ORDER"),
+
+    SALE_CREATED("SALE"),
+    SALE_DELETED("SALE"),
+
+    RESERVATION_CREATED("RESERVATION"),
+    RESERVATION_UPDATED("RESERVATION"),
+    RESERVATION_CANCELLED("RESERVATION"),
+    RESERVATION_DELETED("RESERVATION"),
+
+    SUPPLY_CREATED("SUPPLY"),
+    SUPPLY_UPDATED("SUPPLY"),
+    SUPPLY_ITEM_ADDED("SUPPLY"),
+    SUPPLY_ITEM_REMOVED("SUPPLY"),
+    SUPPLY_ITEMS_IMPORTED("SUPPLY"),
+    SUPPLY_CONFIRMED("SUPPLY"),
+    SUPPLY_DELETED("SUPPLY");
+
+    private final String aggregateType;
+}
@@ -6,6 +6,7 @@ import io.jsonwebtoken.security.SignatureException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
@@ -100,6 +101,21 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(errorDetails, HttpStatus.CONFLICT);
     }
 
+    // Another request updated the row since it was read (JPA @Version)
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<ErrorDetails> handleOptimisticLockingFailure(
+            OptimisticLockingFailureException ex,
+            WebRequest request) {
+        logger.warn("Concurrent modification: {}", ex.getMessage());
+        ErrorDetails errorDetails = buildErrorDetails(
+                HttpStatus.CONFLICT,
+                "The record was modified by someone else. Reload it and try again",
+                "Conflict",
+                request
+        );
+        return new ResponseEntity<>(errorDetails, HttpStatus.CONFLICT);
+    }
+
     // Spring Security exceptions
 
     @ExceptionHandler(AccessDeniedException.class)
@@ -1,11 +1,20 @@
 package com.restaurant.system.repository;
 
+import com.restaurant.system.dto.projection.ClientRow;
 import com.restaurant.system.entity.Client;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import java.util.Optional;
 
 @Repository
-public interface ClientRepository extends JpaRepository<Client, Long> {
+public interface ClientRepository extends JpaRepository<Client, Long>, ClientSearchRepository {
     Optional<Client> findByEmail(String email);
+
+    @Query(value = "SELECT new com.restaurant.system.dto.projection.ClientRow(" +
+            "c.id, c.fullName, c.phone, c.email, c.createdAt) FROM Client c",
+            countQuery = "SELECT COUNT(c) FROM Client c")
+    Page<ClientRow> findAllRows(Pageable pageable);
 }
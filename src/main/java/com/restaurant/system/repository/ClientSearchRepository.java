@@ -0,0 +1,17 @@
+package com.restaurant.system.repository;
+
+import com.restaurant.system.dto.projection.ClientRow;
+
+import java.util.List;
+
+// Custom fragment of ClientRepository: typeahead lookups backed by the V14 prefix indexes
+public interface ClientSearchRepository {
+
+    // Clients having a name word starting with each of the given lower-case prefixes
+    List<ClientRow> findByNamePrefixes(List<String> prefixes, int limit);
+
+    List<ClientRow> findByEmailPrefix(String prefix, int limit);
+
+    // Prefix of the phone number with all non-digits removed
+    List<ClientRow> findByPhoneDigitsPrefix(String digits, int limit);
+}
@@ -0,0 +1,84 @@
+package com.restaurant.system.repository;
+
+import com.restaurant.system.dto.projection.ClientRow;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.time.OffsetDateTime;
+import java.util.Comparator;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class ClientSearchRepositoryImpl implements ClientSearchRepository {
+
+    private static final String COLUMNS = "c.id, c.full_name, c.phone, c.email, c.created_at";
+
+    private static final RowMapper<ClientRow> ROW_MAPPER = (rs, rowNum) -> new ClientRow(
+            rs.getLong("id"),
+            rs.getString("full_name"),
+            rs.getString("phone"),
+            rs.getString("email"),
+            rs.getObject("created_at", OffsetDateTime.class));
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Override
+    public List<ClientRow> findByNamePrefixes(List<String> prefixes, int limit) {
+        // The longest prefix drives the ordered range scan over client_name_tokens, the rest are checked per client
+        List<String> ordered = prefixes.stream()
+                .sorted(Comparator.comparingInt(String::length).reversed())
+                .toList();
+
+        // A client whose several words share the prefix is kept only at its first matching word, checked
+        // per row on (client_id, token), so the ordered scan still stops after :limit clients
+        MapSqlParameterSource params = new MapSqlParameterSource("limit", limit);
+        StringBuilder sql = new StringBuilder("SELECT ")
+                .append(COLUMNS)
+                .append(" FROM client_name_tokens t JOIN clients c ON c.id = t.client_id")
+                .append(" WHERE t.token >= :from0 AND t.token < :to0")
+                .append(" AND NOT EXISTS (SELECT 1 FROM client_name_tokens d WHERE d.client_id = t.client_id")
+                .append(" AND d.token >= :from0 AND d.token < t.token)");
+        params.addValue("from0", ordered.get(0)).addValue("to0", upperBound(ordered.get(0)));
+
+        for (int i = 1; i < ordered.size(); i++) {
+            sql.append(" AND EXISTS (SELECT 1 FROM client_name_tokens t").append(i)
+                    .append(" WHERE t").append(i).append(".client_id = t.client_id")
+                    .append(" AND t").append(i).append(".token >= :from").append(i)
+                    .append(" AND t").append(i).append(".token < :to").append(i).append(")");
+            params.addValue("from" + i, ordered.get(i)).addValue("to" + i, upperBound(ordered.get(i)));
+        }
+        sql.append(" ORDER BY t.token, t.client_id LIMIT :limit");
+
+        return jdbcTemplate.query(sql.toString(), params, ROW_MAPPER);
+    }
+
+    @Override
+    public List<ClientRow> findByEmailPrefix(String prefix, int limit) {
+        return jdbcTemplate.query(
+                "SELECT " + COLUMNS + " FROM clients c WHERE lower(c.email) LIKE :pattern ESCAPE '\\' " +
+                "ORDER BY lower(c.email) LIMIT :limit",
+                new MapSqlParameterSource("pattern", escapeLike(prefix) + "%").addValue("limit", limit),
+                ROW_MAPPER);
+    }
+
+    @Override
+    public List<ClientRow> findByPhoneDigitsPrefix(String digits, int limit) {
+        return jdbcTemplate.query(
+                "SELECT " + COLUMNS + " FROM clients c WHERE regexp_replace(c.phone, '\\D', '', 'g') LIKE :pattern " +
+                "ORDER BY regexp_replace(c.phone, '\\D', '', 'g') LIMIT :limit",
+                new MapSqlParameterSource("pattern", digits + "%").addValue("limit", limit),
+                ROW_MAPPER);
+    }
+
+    // Smallest string greater than every string starting with the prefix (tokens use "C" collation)
+    private static String upperBound(String prefix) {
+        int last = prefix.codePointBefore(prefix.length());
+        return prefix.substring(0, prefix.length() - Character.charCount(last)) + Character.toString(last + 1);
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
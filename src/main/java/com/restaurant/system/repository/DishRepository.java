@@ -1,14 +1,22 @@
 package com.restaurant.system.repository;
 
+import com.restaurant.system.dto.projection.DishRow;
 import com.restaurant.system.entity.Dish;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface DishRepository extends JpaRepository<Dish, Long> {
+public interface DishRepository extends JpaRepository<Dish, Long>, DishSearchRepository {
     Page<Dish> findByCategory(String category, Pageable pageable);
     Page<Dish> findByIsAvailableTrue(Pageable pageable);
     Page<Dish> findByCategoryAndIsAvailableTrue(String category, Pageable pageable);
+
+    @Query(value = "SELECT new com.restaurant.system.dto.projection.DishRow(" +
+            "d.id, d.name, d.description, d.category, d.price, d.isAvailable, d.imageUrl, " +
+            "d.preparationTimeMinutes, d.createdAt) FROM Dish d",
+            countQuery = "SELECT COUNT(d) FROM Dish d")
+    Page<DishRow> findAllRows(Pageable pageable);
 }
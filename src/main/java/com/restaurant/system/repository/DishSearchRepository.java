@@ -0,0 +1,20 @@
+package com.restaurant.system.repository;
+
+import com.restaurant.system.dto.projection.DishSearchRow;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+// Custom fragment of DishRepository: the SQL depends on the searched columns, so it is built per call
+public interface DishSearchRepository {
+
+    /**
+     * Ranked trigram search. Must run inside a transaction - the similarity threshold is set with SET LOCAL semantics.
+     */
+    Page<DishSearchRow> search(String query,
+                               boolean searchCategory,
+                               boolean searchDescription,
+                               String category,
+                               boolean availableOnly,
+                               double threshold,
+                               Pageable pageable);
+}
@@ -0,0 +1,83 @@
+package com.restaurant.system.repository;
+
+import com.restaurant.system.dto.projection.DishSearchRow;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class DishSearchRepositoryImpl implements DishSearchRepository {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Override
+    public Page<DishSearchRow> search(String query,
+                                      boolean searchCategory,
+                                      boolean searchDescription,
+                                      String category,
+                                      boolean availableOnly,
+                                      double threshold,
+                                      Pageable pageable) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("q", query)
+                .addValue("threshold", Double.toString(threshold))
+                .addValue("category", category)
+                .addValue("limit", pageable.getPageSize())
+                .addValue("offset", pageable.getOffset());
+
+        // <% (word similarity above pg_trgm.word_similarity_threshold) is served by the gin_trgm_ops indexes
+        jdbcTemplate.queryForObject(
+                "SELECT set_config('pg_trgm.word_similarity_threshold', :threshold, true)", params, String.class);
+
+        // Only the requested columns take part, so every OR branch stays an index condition
+        StringBuilder match = new StringBuilder(":q <% d.name");
+        StringBuilder score = new StringBuilder("word_similarity(:q, d.name)");
+        if (searchCategory) {
+            match.append(" OR :q <% d.category");
+            score.append(", word_similarity(:q, d.category)");
+        }
+        if (searchDescription) {
+            match.append(" OR :q <% d.description");
+            score.append(", word_similarity(:q, d.description)");
+        }
+
+        String where = " FROM dishes d WHERE (" + match + ")" +
+                (category != null ? " AND d.category = :category" : "") +
+                (availableOnly ? " AND d.is_available" : "");
+
+        List<Long> total = new ArrayList<>(1);
+        List<DishSearchRow> rows = jdbcTemplate.query(
+                "SELECT d.id, d.name, d.description, d.category, d.price, d.is_available, d.image_url, " +
+                "d.preparation_time_minutes, GREATEST(" + score + ") AS score, COUNT(*) OVER () AS total" +
+                where + " ORDER BY score DESC, d.name, d.id LIMIT :limit OFFSET :offset",
+                params,
+                (rs, rowNum) -> {
+                    if (rowNum == 0) {
+                        total.add(rs.getLong("total"));
+                    }
+                    return new DishSearchRow(
+                            rs.getLong("id"),
+                            rs.getString("name"),
+                            rs.getString("description"),
+                            rs.getString("category"),
+                            rs.getBigDecimal("price"),
+                            rs.getBoolean("is_available"),
+                            rs.getString("image_url"),
+                            rs.getObject("preparation_time_minutes", Integer.class),
+                            rs.getDouble("score"));
+                });
+
+        if (rows.isEmpty() && pageable.getOffset() > 0) {
+            // Past the last page - the window count is not available, ask for it separately
+            Long count = jdbcTemplate.queryForObject("SELECT COUNT(*)" + where, params, Long.class);
+            return new PageImpl<>(rows, pageable, count != null ? count : 0);
+        }
+        return new PageImpl<>(rows, pageable, total.isEmpty() ? 0 : total.get(0));
+    }
+}
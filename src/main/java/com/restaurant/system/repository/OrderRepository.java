@@ -2,20 +2,28 @@ package com.restaurant.system.repository;
 
 import com.restaurant.system.entity.Order;
 import com.restaurant.system.entity.enums.OrderStatus;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.OffsetDateTime;
+import java.util.Optional;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
     Page<Order> findByClient_Id(Long clientId, Pageable pageable);
     Page<Order> findByStatus(OrderStatus status, Pageable pageable);
 
+    // Bumps the version on commit: item changes alter the order, even though they never update its row
+    @Lock(LockModeType.OPTIMISTIC_FORCE_INCREMENT)
+    @Query("SELECT o FROM Order o WHERE o.id = :id")
+    Optional<Order> findForItemChangeById(@Param("id") Long id);
+
     @Query(value = "SELECT COUNT(*) FROM orders WHERE order_time BETWEEN :start AND :end", nativeQuery = true)
     Long countByOrderTimeBetween(@Param("start") OffsetDateTime start, @Param("end") OffsetDateTime end);
 
@@ -1,5 +1,6 @@
 package com.restaurant.system.repository;
 
+import com.restaurant.system.dto.projection.ReservationRow;
 import com.restaurant.system.entity.Reservation;
 import com.restaurant.system.entity.enums.ReservationStatus;
 import org.springframework.data.domain.Page;
@@ -31,4 +32,10 @@ public interface ReservationRepository extends JpaRepository<Reservation, Long>
 
     @Query(value = "SELECT COUNT(*) FROM reservations WHERE status = 'ACTIVE'", nativeQuery = true)
     Long countByStatus(@Param("status") ReservationStatus status);
+
+    @Query(value = "SELECT new com.restaurant.system.dto.projection.ReservationRow(" +
+            "r.id, r.reservationTime, r.durationMinutes, r.partySize, r.client.id, t.id, t.tableNumber, " +
+            "r.status, r.notes, r.createdAt, r.version) FROM Reservation r LEFT JOIN r.table t",
+            countQuery = "SELECT COUNT(r) FROM Reservation r")
+    Page<ReservationRow> findAllRows(Pageable pageable);
 }
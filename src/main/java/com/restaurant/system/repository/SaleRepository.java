@@ -1,9 +1,11 @@
 package com.restaurant.system.repository;
 
+import com.restaurant.system.dto.projection.SaleRow;
 import com.restaurant.system.entity.Sale;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -15,7 +17,21 @@ import java.util.Optional;
 public interface SaleRepository extends JpaRepository<Sale, Long> {
     Optional<Sale> findByOrder_Id(Long orderId);
     Page<Sale> findBySaleTimeBetween(OffsetDateTime start, OffsetDateTime end, Pageable pageable);
+    boolean existsByOrder_IdAndReceiptNumberIsNull(Long orderId);
+
+    // For the sale trg_orders_after_update inserts without a receipt number
+    @Modifying
+    @Query(value = "UPDATE sales SET receipt_number = :receiptNumber WHERE order_id = :orderId AND receipt_number IS NULL",
+            nativeQuery = true)
+    int assignReceiptNumber(@Param("orderId") Long orderId, @Param("receiptNumber") String receiptNumber);
 
     @Query("SELECT SUM(s.total) FROM Sale s WHERE s.saleTime BETWEEN :start AND :end")
     BigDecimal sumTotalBySaleTimeBetween(@Param("start") OffsetDateTime start, @Param("end") OffsetDateTime end);
+
+    // FK ids are read from the sales row itself, neither the order nor the user is joined
+    @Query(value = "SELECT new com.restaurant.system.dto.projection.SaleRow(" +
+            "s.id, s.saleTime, s.total, s.paymentMethod, s.order.id, s.receiptNumber, s.processedBy.id) " +
+            "FROM Sale s",
+            countQuery = "SELECT COUNT(s) FROM Sale s")
+    Page<SaleRow> findAllRows(Pageable pageable);
 }
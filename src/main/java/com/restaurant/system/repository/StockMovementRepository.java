@@ -0,0 +1,14 @@
+package com.restaurant.system.repository;
+
+import com.restaurant.system.entity.StockMovement;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import java.time.OffsetDateTime;
+
+@Repository
+public interface StockMovementRepository extends JpaRepository<StockMovement, Long> {
+    Page<StockMovement> findByIngredientIdAndCreatedAtBetween(Long ingredientId, OffsetDateTime start,
+                                                              OffsetDateTime end, Pageable pageable);
+}
@@ -1,11 +1,22 @@
 package com.restaurant.system.repository;
 
+import com.restaurant.system.dto.projection.SupplyItemRow;
 import com.restaurant.system.entity.SupplyItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.util.List;
 
 @Repository
 public interface SupplyItemRepository extends JpaRepository<SupplyItem, Long> {
     List<SupplyItem> findBySupplyId(Long supplyId);
+
+    @Query("SELECT new com.restaurant.system.dto.projection.SupplyItemRow(" +
+            "si.id, si.supply.id, i.id, i.name, si.quantity, si.unitPrice) " +
+            "FROM SupplyItem si JOIN si.ingredient i WHERE si.supply.id = :supplyId ORDER BY si.id")
+    List<SupplyItemRow> findRowsBySupplyId(@Param("supplyId") Long supplyId);
+
+    @Query("SELECT DISTINCT si.ingredient.id FROM SupplyItem si WHERE si.supply.id = :supplyId")
+    List<Long> findIngredientIdsBySupplyId(@Param("supplyId") Long supplyId);
 }
@@ -0,0 +1,11 @@
+package com.restaurant.system.service;
+
+import com.restaurant.system.event.CacheRegion;
+
+import java.util.Collection;
+
+public interface CacheInvalidationService {
+    void publish(CacheRegion region, Collection<Long> ids);
+
+    void poll();
+}
@@ -2,6 +2,7 @@ package com.restaurant.system.service;
 
 import com.restaurant.system.dto.ClientDTO;
 import org.springframework.data.domain.Page;
+import java.util.List;
 import java.util.Optional;
 
 public interface ClientService {
@@ -13,6 +14,8 @@ public interface ClientService {
 
     Page<ClientDTO> getAllClients(int page, int size, String sortBy, String direction);
 
+    List<ClientDTO> searchClients(String query, int limit);
+
     ClientDTO updateClient(Long id, ClientDTO clientDTO);
 
     void deleteClient(Long id);
@@ -0,0 +1,21 @@
+package com.restaurant.system.service;
+
+import com.restaurant.system.dto.DishCostDTO;
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface DishCostService {
+    Optional<DishCostDTO> getDishCost(Long dishId);
+
+    List<DishCostDTO> getAllDishCosts();
+
+    void updateIngredientCost(Long ingredientId, BigDecimal costPerUnit);
+
+    void refreshIngredients(Collection<Long> ingredientIds);
+
+    void refreshDish(Long dishId);
+
+    void rebuild();
+}
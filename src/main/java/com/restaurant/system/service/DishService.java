@@ -1,6 +1,7 @@
 package com.restaurant.system.service;
 
 import com.restaurant.system.dto.DishDTO;
+import com.restaurant.system.dto.DishSearchResultDTO;
 import org.springframework.data.domain.Page;
 import java.util.Optional;
 
@@ -17,6 +18,9 @@ public interface DishService {
 
     Page<DishDTO> getAvailableDishesByCategory(String category, int page, int size, String sortBy, String direction);
 
+    Page<DishSearchResultDTO> searchDishes(String query, boolean searchCategory, boolean searchDescription,
+                                           String category, boolean availableOnly, int page, int size);
+
     DishDTO updateDish(Long id, DishDTO dishDTO);
 
     void deleteDish(Long id);
@@ -0,0 +1,18 @@
+package com.restaurant.system.service;
+
+import java.util.Optional;
+
+public interface IdempotencyService {
+    record StoredResponse(int status, String contentType, byte[] body) {
+    }
+
+    // Empty when the caller now owns the key and must complete or release it,
+    // otherwise the response of the request that used the key first
+    Optional<StoredResponse> begin(String keyHash, String requestHash);
+
+    void complete(String keyHash, StoredResponse response);
+
+    void release(String keyHash);
+
+    int purgeExpired();
+}
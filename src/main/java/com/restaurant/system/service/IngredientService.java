@@ -1,6 +1,8 @@
 package com.restaurant.system.service;
 
 import com.restaurant.system.dto.IngredientDTO;
+import com.restaurant.system.dto.StocktakeDTO;
+import com.restaurant.system.dto.StocktakeResultDTO;
 import org.springframework.data.domain.Page;
 import java.math.BigDecimal;
 import java.util.List;
@@ -20,4 +22,6 @@ public interface IngredientService {
     List<IngredientDTO> getLowStockIngredients();
 
     void updateStock(Long id, BigDecimal quantity);
+
+    StocktakeResultDTO stocktake(StocktakeDTO stocktakeDTO);
 }
@@ -0,0 +1,7 @@
+package com.restaurant.system.service;
+
+import com.restaurant.system.dto.audit.IntegrityAuditReportDTO;
+
+public interface IntegrityAuditService {
+    IntegrityAuditReportDTO audit(boolean repair);
+}
@@ -0,0 +1,13 @@
+package com.restaurant.system.service;
+
+import com.restaurant.system.dto.IngredientForecastDTO;
+import com.restaurant.system.dto.SupplyDTO;
+import java.util.List;
+
+public interface InventoryForecastService {
+    int refreshConsumption();
+
+    List<IngredientForecastDTO> getForecast();
+
+    List<SupplyDTO> createReorderDrafts();
+}
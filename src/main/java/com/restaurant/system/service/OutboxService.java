@@ -0,0 +1,11 @@
+package com.restaurant.system.service;
+
+import com.restaurant.system.event.DomainEventType;
+
+public interface OutboxService {
+    void publish(DomainEventType type, Long aggregateId, Object payload);
+
+    int relay();
+
+    int purgePublished();
+}
@@ -0,0 +1,9 @@
+package com.restaurant.system.service;
+
+import java.util.List;
+
+public interface PartitionMaintenanceService {
+    int ensureUpcomingPartitions();
+
+    List<String> archiveExpiredPartitions();
+}
@@ -0,0 +1,5 @@
+package com.restaurant.system.service;
+
+public interface ReceiptNumberService {
+    String next();
+}
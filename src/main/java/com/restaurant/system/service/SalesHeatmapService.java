@@ -0,0 +1,11 @@
+package com.restaurant.system.service;
+
+import com.restaurant.system.dto.statistics.HeatmapDTO;
+
+public interface SalesHeatmapService {
+    HeatmapDTO getHeatmap(int weeks);
+
+    int refresh();
+
+    int backfill();
+}
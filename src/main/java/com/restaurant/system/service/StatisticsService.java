@@ -1,10 +1,13 @@
 package com.restaurant.system.service;
 
+import com.restaurant.system.dto.DishCostDTO;
 import com.restaurant.system.dto.statistics.DashboardStatsDTO;
 import java.time.LocalDate;
+import java.util.List;
 import java.util.Map;
 
 public interface StatisticsService {
     DashboardStatsDTO getDashboardStats();
     Map<String, Object> getSalesStats(LocalDate from, LocalDate to);
+    List<DishCostDTO> getDishMargins(String category, String sortBy, String direction, int limit);
 }
@@ -0,0 +1,24 @@
+package com.restaurant.system.service;
+
+import com.restaurant.system.dto.StockMovementDTO;
+import com.restaurant.system.dto.StocktakeResultDTO;
+import com.restaurant.system.entity.enums.StockMovementType;
+import org.springframework.data.domain.Page;
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.Map;
+
+public interface StockLedgerService {
+    StockMovementDTO record(Long ingredientId, StockMovementType type, BigDecimal quantity, String note);
+
+    Page<StockMovementDTO> getMovements(Long ingredientId, OffsetDateTime from, OffsetDateTime to, int page, int size);
+
+    BigDecimal getStock(Long ingredientId, OffsetDateTime at);
+
+    StocktakeResultDTO stocktake(Map<Long, BigDecimal> counts, String note);
+
+    int compact();
+
+    int resnapshot(Collection<Long> ingredientIds);
+}
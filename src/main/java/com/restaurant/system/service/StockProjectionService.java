@@ -0,0 +1,25 @@
+package com.restaurant.system.service;
+
+import com.restaurant.system.dto.DishAvailabilityDTO;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public interface StockProjectionService {
+    List<DishAvailabilityDTO> getDishAvailability();
+
+    Optional<DishAvailabilityDTO> getDishAvailability(Long dishId);
+
+    void reserve(Long dishId, int quantity);
+
+    void reserve(Map<Long, Integer> dishQuantities);
+
+    void release(Map<Long, Integer> dishQuantities);
+
+    void consume(Map<Long, Integer> dishQuantities);
+
+    void reloadStock(Collection<Long> ingredientIds);
+
+    void rebuild();
+}
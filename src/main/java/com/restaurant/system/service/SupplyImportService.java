@@ -0,0 +1,13 @@
+package com.restaurant.system.service;
+
+import com.restaurant.system.dto.SupplyImportErrorDTO;
+import com.restaurant.system.dto.SupplyImportResultDTO;
+import java.io.InputStream;
+import java.util.function.Consumer;
+
+public interface SupplyImportService {
+    enum Format { CSV, NDJSON }
+
+    SupplyImportResultDTO importItems(Long supplyId, InputStream input, Format format,
+                                      Consumer<SupplyImportErrorDTO> errors);
+}
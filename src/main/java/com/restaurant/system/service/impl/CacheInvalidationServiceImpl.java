@@ -0,0 +1,225 @@
+package com.restaurant.system.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.restaurant.system.event.CacheInvalidationEvent;
+import com.restaurant.system.event.CacheRegion;
+import com.restaurant.system.service.CacheInvalidationService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Keeps the in-memory caches of all nodes in step. A change is announced with NOTIFY in the
+ * transaction that makes it, so PostgreSQL delivers it exactly when (and only if) that
+ * transaction commits; all changes of one transaction go out as one notification per region.
+ * Every node LISTENs on a dedicated connection and drains it every poll interval, so a burst of
+ * writes turns into one refresh per region and tick. After (re)connecting, changes may have been
+ * missed, so all regions are reloaded.
+ */
+@Slf4j
+@Service
+public class CacheInvalidationServiceImpl implements CacheInvalidationService {
+
+    // NOTIFY payloads must stay below 8000 bytes; larger changes reload the whole region
+    private static final int MAX_PAYLOAD_LENGTH = 7900;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSourceProperties dataSourceProperties;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+
+    private final Counter received;
+    private final Counter resyncs;
+
+    // Only touched by poll(), which the scheduler never runs concurrently with itself
+    private Connection connection;
+    private final Set<CacheRegion> failedRegions = EnumSet.noneOf(CacheRegion.class);
+
+    @Value("${cache-invalidation.enabled:true}")
+    private boolean enabled;
+
+    @Value("${cache-invalidation.channel:cache_invalidation}")
+    private String channel;
+
+    public CacheInvalidationServiceImpl(JdbcTemplate jdbcTemplate,
+                                        DataSourceProperties dataSourceProperties,
+                                        ApplicationEventPublisher eventPublisher,
+                                        ObjectMapper objectMapper,
+                                        MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSourceProperties = dataSourceProperties;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+
+        this.received = Counter.builder("cache.invalidation.received")
+                .description("Change notifications received from other nodes")
+                .register(meterRegistry);
+        this.resyncs = Counter.builder("cache.invalidation.resyncs")
+                .description("Full cache reloads after (re)connecting the listener")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void publish(CacheRegion region, Collection<Long> ids) {
+        if (!enabled || ids.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            send(region, new HashSet<>(ids));
+            return;
+        }
+
+        @SuppressWarnings("unchecked")
+        Map<CacheRegion, Set<Long>> pending = (Map<CacheRegion, Set<Long>>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Map<CacheRegion, Set<Long>> changes = new EnumMap<>(CacheRegion.class);
+            TransactionSynchronizationManager.bindResource(this, changes);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    changes.forEach(CacheInvalidationServiceImpl.this::send);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(CacheInvalidationServiceImpl.this);
+                }
+            });
+            pending = changes;
+        }
+        pending.computeIfAbsent(region, r -> new HashSet<>()).addAll(ids);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${cache-invalidation.poll-interval-ms:200}")
+    public void poll() {
+        if (!enabled) {
+            return;
+        }
+        Map<CacheRegion, Set<Long>> changes = new EnumMap<>(CacheRegion.class);
+        Set<CacheRegion> reload = EnumSet.copyOf(failedRegions);
+        failedRegions.clear();
+        try {
+            if (connection == null) {
+                connection = listen();
+                reload.addAll(EnumSet.allOf(CacheRegion.class));
+                resyncs.increment();
+            }
+            PGNotification[] notifications = connection.unwrap(PGConnection.class).getNotifications();
+            if (notifications != null) {
+                for (PGNotification notification : notifications) {
+                    collect(notification.getParameter(), changes, reload);
+                }
+            }
+        } catch (SQLException e) {
+            log.warn("Cache invalidation listener lost its connection, reconnecting: {}", e.getMessage());
+            close();
+            return;
+        }
+
+        reload.forEach(changes::remove);
+        reload.forEach(region -> dispatch(new CacheInvalidationEvent(region, null)));
+        changes.forEach((region, ids) -> dispatch(new CacheInvalidationEvent(region, ids)));
+    }
+
+    @PreDestroy
+    public void close() {
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                log.debug("Cannot close cache invalidation listener connection: {}", e.getMessage());
+            }
+            connection = null;
+        }
+    }
+
+    private void send(CacheRegion region, Set<Long> ids) {
+        String payload = payload(region, ids);
+        if (payload.length() > MAX_PAYLOAD_LENGTH) {
+            payload = payload(region, null);
+        }
+        jdbcTemplate.query("SELECT pg_notify(?, ?)", rs -> { }, channel, payload);
+    }
+
+    private String payload(CacheRegion region, Set<Long> ids) {
+        try {
+            return objectMapper.writeValueAsString(new Notification(nodeId, region, ids));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize cache invalidation", e);
+        }
+    }
+
+    // Own notifications are skipped: this node updated its caches when the change was made
+    private void collect(String payload, Map<CacheRegion, Set<Long>> changes, Set<CacheRegion> reload) {
+        Notification notification;
+        try {
+            notification = objectMapper.readValue(payload, Notification.class);
+        } catch (JsonProcessingException e) {
+            log.warn("Ignoring malformed cache invalidation: {}", payload);
+            return;
+        }
+        if (nodeId.equals(notification.node())) {
+            return;
+        }
+        received.increment();
+        if (notification.ids() == null) {
+            reload.add(notification.region());
+        } else {
+            changes.computeIfAbsent(notification.region(), r -> new HashSet<>()).addAll(notification.ids());
+        }
+    }
+
+    // A failed refresh leaves the region stale, so it is reloaded completely on the next poll
+    private void dispatch(CacheInvalidationEvent event) {
+        try {
+            eventPublisher.publishEvent(event);
+        } catch (RuntimeException e) {
+            log.warn("Cannot refresh {} cache, reloading it on the next poll: {}", event.region(), e.getMessage());
+            failedRegions.add(event.region());
+        }
+    }
+
+    // Outside the pool: the connection is held for the lifetime of the node
+    private Connection listen() throws SQLException {
+        Connection listener = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword());
+        try (Statement statement = listener.createStatement()) {
+            statement.execute("LISTEN \"" + channel.replace("\"", "\"\"") + "\"");
+        } catch (SQLException e) {
+            listener.close();
+            throw e;
+        }
+        log.info("Listening for cache invalidations on channel {}", channel);
+        return listener;
+    }
+
+    private record Notification(String node, CacheRegion region, Set<Long> ids) {
+    }
+}
@@ -1,7 +1,9 @@
 package com.restaurant.system.service.impl;
 
 import com.restaurant.system.dto.ClientDTO;
+import com.restaurant.system.dto.projection.ClientRow;
 import com.restaurant.system.entity.Client;
+import com.restaurant.system.exception.BadRequestException;
 import com.restaurant.system.exception.NotFoundException;
 import com.restaurant.system.repository.ClientRepository;
 import com.restaurant.system.service.ClientService;
@@ -12,12 +14,27 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Pattern;
 
 @Service
 @RequiredArgsConstructor
 @Transactional
 public class ClientServiceImpl implements ClientService {
+
+    private static final int MIN_QUERY_LENGTH = 2;
+    private static final int MAX_SEARCH_LIMIT = 50;
+
+    // Same word separators as trg_clients_refresh_name_tokens (V14)
+    private static final Pattern NAME_SEPARATORS = Pattern.compile("[\\s'-]+");
+    private static final Pattern PHONE_LIKE = Pattern.compile("^[+\\d\\s()-]+$");
+
     private final ClientRepository clientRepository;
 
     @Override
@@ -51,7 +68,41 @@ public class ClientServiceImpl implements ClientService {
                 : Sort.Direction.ASC;
 
         Pageable pageable = PageRequest.of(page, size, Sort.by(sortDirection, sortBy));
-        return clientRepository.findAll(pageable).map(this::toDTO);
+        return clientRepository.findAllRows(pageable).map(this::toDTO);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ClientDTO> searchClients(String query, int limit) {
+        String term = query != null ? query.trim().toLowerCase(Locale.ROOT) : "";
+        if (term.length() < MIN_QUERY_LENGTH) {
+            throw new BadRequestException("Search query must contain at least " + MIN_QUERY_LENGTH + " characters");
+        }
+        if (limit < 1 || limit > MAX_SEARCH_LIMIT) {
+            throw new BadRequestException("Limit must be between 1 and " + MAX_SEARCH_LIMIT);
+        }
+
+        List<ClientRow> rows;
+        if (term.contains("@")) {
+            rows = clientRepository.findByEmailPrefix(term, limit);
+        } else if (PHONE_LIKE.matcher(term).matches()) {
+            String digits = term.replaceAll("\\D", "");
+            rows = digits.length() < MIN_QUERY_LENGTH ? List.of() : clientRepository.findByPhoneDigitsPrefix(digits, limit);
+        } else {
+            // Name words first, then emails starting with the same text ("ivan" -> ivan@...)
+            List<String> prefixes = Arrays.stream(NAME_SEPARATORS.split(term))
+                    .filter(word -> !word.isEmpty())
+                    .toList();
+            if (prefixes.isEmpty()) {
+                return List.of();
+            }
+            Set<ClientRow> matches = new LinkedHashSet<>(clientRepository.findByNamePrefixes(prefixes, limit));
+            if (matches.size() < limit && prefixes.size() == 1) {
+                matches.addAll(clientRepository.findByEmailPrefix(term, limit - matches.size()));
+            }
+            rows = new ArrayList<>(matches);
+        }
+        return rows.stream().map(this::toDTO).toList();
     }
 
     @Override
@@ -79,4 +130,14 @@ public class ClientServiceImpl implements ClientService {
                 .createdAt(client.getCreatedAt())
                 .build();
     }
+
+    private ClientDTO toDTO(ClientRow row) {
+        return ClientDTO.builder()
+                .id(row.id())
+                .fullName(row.fullName())
+                .phone(row.phone())
+                .email(row.email())
+                .createdAt(row.createdAt())
+                .build();
+    }
 }
@@ -0,0 +1,267 @@
+package com.restaurant.system.service.impl;
+
+import com.restaurant.system.dto.DishCostDTO;
+import com.restaurant.system.event.CacheInvalidationEvent;
+import com.restaurant.system.event.CacheRegion;
+import com.restaurant.system.service.CacheInvalidationService;
+import com.restaurant.system.service.DishCostService;
+import com.restaurant.system.util.TransactionHooks;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Keeps the ingredient cost of every dish with a recipe in memory - the same sum as
+ * fn_calculate_dish_cost, but recomputed only for the dishes that use a changed ingredient
+ * instead of joining dish_ingredients with ingredients on every read.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DishCostServiceImpl implements DishCostService {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final CacheInvalidationService cacheInvalidationService;
+
+    // Guarded by this
+    private Map<Long, BigDecimal> ingredientCosts = new HashMap<>();
+    private Map<Long, Map<Long, BigDecimal>> recipes = new HashMap<>();
+    private Map<Long, Set<Long>> dishesByIngredient = new HashMap<>();
+    private Map<Long, DishInfo> dishes = new HashMap<>();
+    private final Map<Long, BigDecimal> costs = new HashMap<>();
+
+    // Serialises rebuilds, so callers racing on a cold cache wait for one rebuild instead of each running their own
+    private final Object rebuildLock = new Object();
+    private volatile boolean loaded;
+
+    @Override
+    public Optional<DishCostDTO> getDishCost(Long dishId) {
+        ensureLoaded();
+        synchronized (this) {
+            return costs.containsKey(dishId) ? Optional.of(toDTO(dishId)) : Optional.empty();
+        }
+    }
+
+    @Override
+    public List<DishCostDTO> getAllDishCosts() {
+        ensureLoaded();
+        synchronized (this) {
+            List<DishCostDTO> result = new ArrayList<>(costs.size());
+            costs.keySet().forEach(dishId -> result.add(toDTO(dishId)));
+            return result;
+        }
+    }
+
+    @Override
+    public void updateIngredientCost(Long ingredientId, BigDecimal costPerUnit) {
+        cacheInvalidationService.publish(CacheRegion.INGREDIENT_COST, List.of(ingredientId));
+        TransactionHooks.afterCommit(() -> {
+            synchronized (this) {
+                ingredientCosts.put(ingredientId, costPerUnit != null ? costPerUnit : BigDecimal.ZERO);
+                recompute(dishesByIngredient.getOrDefault(ingredientId, Set.of()));
+            }
+        });
+    }
+
+    @Override
+    public void refreshIngredients(Collection<Long> ingredientIds) {
+        if (ingredientIds.isEmpty()) {
+            return;
+        }
+        cacheInvalidationService.publish(CacheRegion.INGREDIENT_COST, ingredientIds);
+        Set<Long> ids = Set.copyOf(ingredientIds);
+        TransactionHooks.afterCommit(() -> loadIngredients(ids));
+    }
+
+    // Price, name or recipe of a single dish changed (or the dish was deleted)
+    @Override
+    public void refreshDish(Long dishId) {
+        cacheInvalidationService.publish(CacheRegion.DISH, List.of(dishId));
+        TransactionHooks.afterCommit(() -> loadDish(dishId));
+    }
+
+    // Changes made on another node; a cache that was never loaded reads everything on first use
+    @EventListener
+    public void onCacheInvalidation(CacheInvalidationEvent event) {
+        if (!loaded || event.region() == CacheRegion.STOCK) {
+            return;
+        }
+        if (event.isFullResync()) {
+            rebuild();
+        } else if (event.region() == CacheRegion.DISH) {
+            event.ids().forEach(this::loadDish);
+        } else {
+            loadIngredients(event.ids());
+        }
+    }
+
+    // Full reload picks up recipe changes that do not go through the services
+    @Override
+    @Scheduled(fixedDelayString = "${dish-cost.refresh-interval-ms:600000}")
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            doRebuild();
+        }
+    }
+
+    private void doRebuild() {
+        Map<Long, BigDecimal> newIngredientCosts = new HashMap<>();
+        Map<Long, Map<Long, BigDecimal>> newRecipes = new HashMap<>();
+        Map<Long, Set<Long>> newDishesByIngredient = new HashMap<>();
+        Map<Long, DishInfo> newDishes = new HashMap<>();
+
+        TransactionTemplate snapshot = requiresNew();
+        snapshot.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        snapshot.executeWithoutResult(status -> {
+            // cost_per_unit is nullable: an ingredient without a cost adds nothing to the dish cost
+            jdbcTemplate.query("SELECT id, COALESCE(cost_per_unit, 0) FROM ingredients",
+                    rs -> { newIngredientCosts.put(rs.getLong(1), rs.getBigDecimal(2)); });
+            jdbcTemplate.query(
+                    "SELECT d.id, d.name, d.category, d.price, di.ingredient_id, di.quantity " +
+                    "FROM dish_ingredients di JOIN dishes d ON d.id = di.dish_id", rs -> {
+                        long dishId = rs.getLong(1);
+                        long ingredientId = rs.getLong(5);
+                        if (!newDishes.containsKey(dishId)) {
+                            newDishes.put(dishId, new DishInfo(rs.getString(2), rs.getString(3), rs.getBigDecimal(4)));
+                        }
+                        newRecipes.computeIfAbsent(dishId, id -> new HashMap<>()).put(ingredientId, rs.getBigDecimal(6));
+                        newDishesByIngredient.computeIfAbsent(ingredientId, id -> new HashSet<>()).add(dishId);
+                    });
+        });
+
+        synchronized (this) {
+            ingredientCosts = newIngredientCosts;
+            recipes = newRecipes;
+            dishesByIngredient = newDishesByIngredient;
+            dishes = newDishes;
+            costs.clear();
+            recompute(recipes.keySet());
+            loaded = true;
+        }
+        log.debug("Dish costs rebuilt: {} dishes with recipes", newRecipes.size());
+    }
+
+    private void loadIngredients(Collection<Long> ingredientIds) {
+        Long[] ids = ingredientIds.toArray(new Long[0]);
+        Map<Long, BigDecimal> current = new HashMap<>();
+        requiresNew().executeWithoutResult(status -> jdbcTemplate.query(
+                "SELECT id, COALESCE(cost_per_unit, 0) FROM ingredients WHERE id = ANY(?)",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids)),
+                rs -> { current.put(rs.getLong(1), rs.getBigDecimal(2)); }));
+
+        synchronized (this) {
+            Set<Long> affected = new HashSet<>();
+            current.forEach((ingredientId, cost) -> {
+                if (!cost.equals(ingredientCosts.put(ingredientId, cost))) {
+                    affected.addAll(dishesByIngredient.getOrDefault(ingredientId, Set.of()));
+                }
+            });
+            recompute(affected);
+        }
+    }
+
+    private void loadDish(Long dishId) {
+        DishInfo[] info = new DishInfo[1];
+        Map<Long, BigDecimal> recipe = new HashMap<>();
+        requiresNew().executeWithoutResult(status -> jdbcTemplate.query(
+                "SELECT d.name, d.category, d.price, di.ingredient_id, di.quantity " +
+                "FROM dishes d JOIN dish_ingredients di ON di.dish_id = d.id " +
+                "WHERE d.id = ?", rs -> {
+                    info[0] = new DishInfo(rs.getString(1), rs.getString(2), rs.getBigDecimal(3));
+                    recipe.put(rs.getLong(4), rs.getBigDecimal(5));
+                }, dishId));
+
+        synchronized (this) {
+            Map<Long, BigDecimal> previous = recipes.remove(dishId);
+            if (previous != null) {
+                previous.keySet().forEach(ingredientId -> {
+                    Set<Long> users = dishesByIngredient.get(ingredientId);
+                    if (users != null) {
+                        users.remove(dishId);
+                    }
+                });
+            }
+            dishes.remove(dishId);
+            costs.remove(dishId);
+
+            // Only dishes with a recipe have a cost
+            if (info[0] != null) {
+                dishes.put(dishId, info[0]);
+                recipes.put(dishId, recipe);
+                recipe.keySet().forEach(ingredientId ->
+                        dishesByIngredient.computeIfAbsent(ingredientId, id -> new HashSet<>()).add(dishId));
+                recompute(Set.of(dishId));
+            }
+        }
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (rebuildLock) {
+            if (!loaded) {
+                doRebuild();
+            }
+        }
+    }
+
+    private void recompute(Collection<Long> dishIds) {
+        for (Long dishId : dishIds) {
+            Map<Long, BigDecimal> recipe = recipes.get(dishId);
+            if (recipe == null) {
+                continue;
+            }
+            BigDecimal cost = BigDecimal.ZERO;
+            for (Map.Entry<Long, BigDecimal> entry : recipe.entrySet()) {
+                BigDecimal costPerUnit = ingredientCosts.getOrDefault(entry.getKey(), BigDecimal.ZERO);
+                cost = cost.add(entry.getValue().multiply(costPerUnit));
+            }
+            costs.put(dishId, cost);
+        }
+    }
+
+    private TransactionTemplate requiresNew() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return template;
+    }
+
+    private DishCostDTO toDTO(Long dishId) {
+        DishInfo dish = dishes.get(dishId);
+        BigDecimal cost = costs.get(dishId).setScale(2, RoundingMode.HALF_UP);
+        BigDecimal margin = dish.price().subtract(cost);
+        return DishCostDTO.builder()
+                .dishId(dishId)
+                .dishName(dish.name())
+                .category(dish.category())
+                .price(dish.price())
+                .cost(cost)
+                .margin(margin)
+                .marginPercent(dish.price().signum() > 0
+                        ? margin.multiply(BigDecimal.valueOf(100)).divide(dish.price(), 2, RoundingMode.HALF_UP)
+                        : null)
+                .build();
+    }
+
+    private record DishInfo(String name, String category, BigDecimal price) {
+    }
+}
@@ -1,12 +1,17 @@
 package com.restaurant.system.service.impl;
 
 import com.restaurant.system.dto.DishDTO;
+import com.restaurant.system.dto.DishSearchResultDTO;
+import com.restaurant.system.dto.projection.DishRow;
+import com.restaurant.system.dto.projection.DishSearchRow;
 import com.restaurant.system.entity.Dish;
 import com.restaurant.system.exception.BadRequestException;
 import com.restaurant.system.exception.NotFoundException;
 import com.restaurant.system.repository.DishRepository;
+import com.restaurant.system.service.DishCostService;
 import com.restaurant.system.service.DishService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -21,6 +26,13 @@ import java.util.Optional;
 public class DishServiceImpl implements DishService {
 
     private final DishRepository dishRepository;
+    private final DishCostService dishCostService;
+
+    @Value("${dish-search.similarity-threshold:0.4}")
+    private double similarityThreshold;
+
+    @Value("${dish-search.max-page-size:100}")
+    private int maxSearchPageSize;
 
     @Override
     public DishDTO createDish(DishDTO dishDTO) {
@@ -54,7 +66,7 @@ public class DishServiceImpl implements DishService {
                 ? Sort.Direction.DESC
                 : Sort.Direction.ASC;
         Pageable pageable = PageRequest.of(page, size, Sort.by(sortDirection, sortBy));
-        return dishRepository.findAll(pageable).map(this::toDTO);
+        return dishRepository.findAllRows(pageable).map(this::toDTO);
     }
 
     @Override
@@ -88,6 +100,25 @@ public class DishServiceImpl implements DishService {
         return dishRepository.findByCategoryAndIsAvailableTrue(category, pageable).map(this::toDTO);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public Page<DishSearchResultDTO> searchDishes(String query, boolean searchCategory, boolean searchDescription,
+                                                  String category, boolean availableOnly, int page, int size) {
+        if (query == null || query.isBlank()) {
+            throw new BadRequestException("Search query must not be empty");
+        }
+        if (page < 0) {
+            throw new BadRequestException("Page index must not be negative");
+        }
+        if (size < 1 || size > maxSearchPageSize) {
+            throw new BadRequestException("Page size must be between 1 and " + maxSearchPageSize);
+        }
+        String normalizedCategory = category != null && !category.isBlank() ? category.trim() : null;
+        return dishRepository.search(query.trim(), searchCategory, searchDescription, normalizedCategory,
+                        availableOnly, similarityThreshold, PageRequest.of(page, size))
+                .map(this::toSearchResult);
+    }
+
     @Override
     public DishDTO updateDish(Long id, DishDTO dishDTO) {
         Dish dish = dishRepository.findById(id)
@@ -115,7 +146,9 @@ public class DishServiceImpl implements DishService {
             dish.setPreparationTimeMinutes(dishDTO.getPreparationTimeMinutes());
         }
 
-        return toDTO(dishRepository.save(dish));
+        Dish saved = dishRepository.save(dish);
+        dishCostService.refreshDish(id);
+        return toDTO(saved);
     }
 
     @Override
@@ -124,6 +157,7 @@ public class DishServiceImpl implements DishService {
             throw new NotFoundException("Dish not found");
         }
         dishRepository.deleteById(id);
+        dishCostService.refreshDish(id);
     }
 
     private DishDTO toDTO(Dish dish) {
@@ -139,4 +173,32 @@ public class DishServiceImpl implements DishService {
                 .createdAt(dish.getCreatedAt())
                 .build();
     }
+
+    private DishDTO toDTO(DishRow row) {
+        return DishDTO.builder()
+                .id(row.id())
+                .name(row.name())
+                .description(row.description())
+                .category(row.category())
+                .price(row.price())
+                .isAvailable(row.isAvailable())
+                .imageUrl(row.imageUrl())
+                .preparationTimeMinutes(row.preparationTimeMinutes())
+                .createdAt(row.createdAt())
+                .build();
+    }
+
+    private DishSearchResultDTO toSearchResult(DishSearchRow row) {
+        return DishSearchResultDTO.builder()
+                .id(row.id())
+                .name(row.name())
+                .description(row.description())
+                .category(row.category())
+                .price(row.price())
+                .isAvailable(row.isAvailable())
+                .imageUrl(row.imageUrl())
+                .preparationTimeMinutes(row.preparationTimeMinutes())
+                .score(row.score())
+                .build();
+    }
 }
@@ -0,0 +1,256 @@
+package com.restaurant.system.service.impl;
+
+import com.restaurant.system.exception.ConflictException;
+import com.restaurant.system.service.IdempotencyService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionExecution;
+import org.springframework.transaction.TransactionExecutionListener;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Finished keys are answered from a bounded in-memory map first and from idempotency_keys
+ * after that. Duplicates arriving while the first request still runs on this node wait for
+ * its response instead of running again; on another node they get 409 and retry later.
+ * Statements run outside any transaction, so a claim is visible to other nodes right away.
+ * Every transaction the owning request commits also marks its key, inside that transaction:
+ * a marked key is never taken over, and once a claim has been taken over the first run can no
+ * longer commit. A request is therefore applied at most once even when it outlives its claim.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class IdempotencyServiceImpl implements IdempotencyService, TransactionExecutionListener {
+
+    // Takes a free key, or one whose request never committed anything (e.g. the node died mid-request).
+    // The row lock of MARK_SQL makes a takeover wait for a commit in progress and then skip the key.
+    private static final String CLAIM_SQL =
+            "INSERT INTO idempotency_keys (key_hash, request_hash, claim_token) " +
+            "VALUES (decode(?, 'hex'), decode(?, 'hex'), ?) " +
+            "ON CONFLICT (key_hash) DO UPDATE SET request_hash = EXCLUDED.request_hash, " +
+            "  claim_token = EXCLUDED.claim_token, created_at = now() " +
+            "WHERE idempotency_keys.completed_at IS NULL " +
+            "  AND idempotency_keys.committed_at IS NULL " +
+            "  AND idempotency_keys.created_at < now() - make_interval(secs => ?) " +
+            "RETURNING 1";
+
+    // Runs in the committing transaction; no row means the claim was taken over
+    private static final String MARK_SQL =
+            "UPDATE idempotency_keys SET committed_at = coalesce(committed_at, now()) " +
+            "WHERE key_hash = decode(?, 'hex') AND claim_token = ?";
+
+    private static final String FIND_SQL =
+            "SELECT encode(request_hash, 'hex'), status_code, content_type, body " +
+            "FROM idempotency_keys WHERE key_hash = decode(?, 'hex')";
+
+    // The key the request on this thread owns, set between begin and complete / release
+    private static final ThreadLocal<Claim> OWNED = new ThreadLocal<>();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    private final LinkedHashMap<String, Entry> completed = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > maxEntries;
+        }
+    };
+
+    @Value("${idempotency.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${idempotency.retention-hours:24}")
+    private int retentionHours;
+
+    @Value("${idempotency.in-flight-timeout-seconds:30}")
+    private int inFlightTimeoutSeconds;
+
+    @Override
+    public Optional<StoredResponse> begin(String keyHash, String requestHash) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(inFlightTimeoutSeconds);
+        while (true) {
+            Entry done = cached(keyHash);
+            if (done != null) {
+                return Optional.of(verified(done, requestHash));
+            }
+
+            InFlight mine = new InFlight(requestHash, new CompletableFuture<>());
+            InFlight running = inFlight.putIfAbsent(keyHash, mine);
+            if (running == null) {
+                try {
+                    return claim(keyHash, requestHash);
+                } catch (RuntimeException e) {
+                    finish(keyHash, null);
+                    throw e;
+                }
+            }
+
+            if (!running.requestHash().equals(requestHash)) {
+                throw reused();
+            }
+            StoredResponse response = await(running, deadline);
+            if (response != null) {
+                return Optional.of(response);
+            }
+            // The first request failed and released the key - take it over
+        }
+    }
+
+    @Override
+    public void complete(String keyHash, StoredResponse response) {
+        InFlight owner = inFlight.get(keyHash);
+        UUID token = disown(OWNED.get(), keyHash);
+        try {
+            int updated = jdbcTemplate.update(
+                    "UPDATE idempotency_keys SET status_code = ?, content_type = ?, body = ?, completed_at = now() " +
+                    "WHERE key_hash = decode(?, 'hex') AND claim_token = ?",
+                    response.status(), response.contentType(), response.body(), keyHash, token);
+            if (updated == 0) {
+                log.warn("Idempotency key was taken over before its response could be stored");
+            } else if (owner != null) {
+                remember(keyHash, new Entry(owner.requestHash(), response, System.currentTimeMillis()));
+            }
+        } finally {
+            finish(keyHash, response);
+        }
+    }
+
+    @Override
+    public void release(String keyHash) {
+        UUID token = disown(OWNED.get(), keyHash);
+        try {
+            jdbcTemplate.update(
+                    "DELETE FROM idempotency_keys " +
+                    "WHERE key_hash = decode(?, 'hex') AND claim_token = ? AND completed_at IS NULL", keyHash, token);
+        } finally {
+            finish(keyHash, null);
+        }
+    }
+
+    // Invoked for the outermost (and every REQUIRES_NEW) transaction; an exception here rolls it back
+    @Override
+    public void beforeCommit(TransactionExecution transaction) {
+        Claim claim = OWNED.get();
+        if (claim == null || !transaction.isNewTransaction() || transaction.isReadOnly()) {
+            return;
+        }
+        if (jdbcTemplate.update(MARK_SQL, claim.keyHash(), claim.token()) == 0) {
+            throw new ConflictException("The Idempotency-Key of this request was taken over by a retry");
+        }
+    }
+
+    @Override
+    @Scheduled(cron = "${idempotency.purge-cron:0 50 * * * *}")
+    public int purgeExpired() {
+        int deleted = jdbcTemplate.update(
+                "DELETE FROM idempotency_keys WHERE created_at < now() - make_interval(hours => ?)", retentionHours);
+        if (deleted > 0) {
+            log.debug("Purged {} expired idempotency keys", deleted);
+        }
+        return deleted;
+    }
+
+    private Optional<StoredResponse> claim(String keyHash, String requestHash) {
+        UUID token = UUID.randomUUID();
+        if (!jdbcTemplate.queryForList(CLAIM_SQL, Integer.class, keyHash, requestHash, token, inFlightTimeoutSeconds).isEmpty()) {
+            OWNED.set(new Claim(keyHash, token));
+            return Optional.empty();
+        }
+
+        Entry stored = jdbcTemplate.query(FIND_SQL, rs -> rs.next() && rs.getObject(2) != null
+                ? new Entry(rs.getString(1), new StoredResponse(rs.getInt(2), rs.getString(3), rs.getBytes(4)),
+                        System.currentTimeMillis())
+                : null, keyHash);
+        if (stored == null) {
+            // Still running on another node (or released a moment ago), or it committed and the node
+            // died before the response was stored - running it again would apply it twice
+            finish(keyHash, null);
+            throw new ConflictException(isCommitted(keyHash)
+                    ? "A request with this Idempotency-Key has already been applied; its response is not available yet"
+                    : "A request with this Idempotency-Key is still being processed");
+        }
+        remember(keyHash, stored);
+        // Local waiters re-check against the cached entry, including its request fingerprint
+        finish(keyHash, null);
+        return Optional.of(verified(stored, requestHash));
+    }
+
+    private StoredResponse await(InFlight running, long deadline) {
+        try {
+            return running.result().get(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new ConflictException("A request with this Idempotency-Key is still being processed");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConflictException("A request with this Idempotency-Key is still being processed");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private boolean isCommitted(String keyHash) {
+        return !jdbcTemplate.queryForList(
+                "SELECT 1 FROM idempotency_keys WHERE key_hash = decode(?, 'hex') AND committed_at IS NOT NULL",
+                Integer.class, keyHash).isEmpty();
+    }
+
+    // Forgets the claim of this thread; the token is only used for the claim of keyHash
+    private static UUID disown(Claim claim, String keyHash) {
+        OWNED.remove();
+        return claim != null && claim.keyHash().equals(keyHash) ? claim.token() : null;
+    }
+
+    private void finish(String keyHash, StoredResponse response) {
+        InFlight running = inFlight.remove(keyHash);
+        if (running != null) {
+            running.result().complete(response);
+        }
+    }
+
+    private synchronized Entry cached(String keyHash) {
+        Entry entry = completed.get(keyHash);
+        if (entry != null && entry.storedAt() < System.currentTimeMillis() - TimeUnit.HOURS.toMillis(retentionHours)) {
+            completed.remove(keyHash);
+            return null;
+        }
+        return entry;
+    }
+
+    private synchronized void remember(String keyHash, Entry entry) {
+        completed.put(keyHash, entry);
+    }
+
+    private static StoredResponse verified(Entry entry, String requestHash) {
+        if (!entry.requestHash().equals(requestHash)) {
+            throw reused();
+        }
+        return entry.response();
+    }
+
+    private static ConflictException reused() {
+        return new ConflictException("Idempotency-Key was already used for a different request");
+    }
+
+    private record InFlight(String requestHash, CompletableFuture<StoredResponse> result) {
+    }
+
+    private record Claim(String keyHash, UUID token) {
+    }
+
+    private record Entry(String requestHash, StoredResponse response, long storedAt) {
+    }
+}
@@ -1,20 +1,31 @@
 package com.restaurant.system.service.impl;
 
 import com.restaurant.system.dto.IngredientDTO;
+import com.restaurant.system.dto.StocktakeCountDTO;
+import com.restaurant.system.dto.StocktakeDTO;
+import com.restaurant.system.dto.StocktakeResultDTO;
+import com.restaurant.system.dto.StocktakeVarianceDTO;
 import com.restaurant.system.entity.Ingredient;
+import com.restaurant.system.entity.enums.StockMovementType;
 import com.restaurant.system.exception.BadRequestException;
 import com.restaurant.system.exception.NotFoundException;
 import com.restaurant.system.repository.IngredientRepository;
+import com.restaurant.system.service.DishCostService;
 import com.restaurant.system.service.IngredientService;
+import com.restaurant.system.service.StockLedgerService;
+import com.restaurant.system.service.StockProjectionService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -24,6 +35,9 @@ import java.util.stream.Collectors;
 public class IngredientServiceImpl implements IngredientService {
 
     private final IngredientRepository ingredientRepository;
+    private final StockProjectionService stockProjectionService;
+    private final DishCostService dishCostService;
+    private final StockLedgerService stockLedgerService;
 
     @Override
     public IngredientDTO createIngredient(IngredientDTO ingredientDTO) {
@@ -31,14 +45,21 @@ public class IngredientServiceImpl implements IngredientService {
         Ingredient ingredient = new Ingredient();
         ingredient.setName(ingredientDTO.getName());
         ingredient.setUnit(ingredientDTO.getUnit());
-        ingredient.setStockQuantity(ingredientDTO.getStockQuantity() != null ?
-                ingredientDTO.getStockQuantity() : BigDecimal.ZERO);
         ingredient.setCostPerUnit(ingredientDTO.getCostPerUnit() != null ?
                 ingredientDTO.getCostPerUnit() : BigDecimal.ZERO);
         ingredient.setMinStockLevel(ingredientDTO.getMinStockLevel() != null ?
                 ingredientDTO.getMinStockLevel() : BigDecimal.ZERO);
 
-        return toDTO(ingredientRepository.save(ingredient));
+        ingredient = ingredientRepository.save(ingredient);
+
+        // Stock is not a column the entity writes: the opening balance is the first ledger entry
+        BigDecimal openingStock = ingredientDTO.getStockQuantity() != null ?
+                ingredientDTO.getStockQuantity() : BigDecimal.ZERO;
+        if (openingStock.signum() != 0) {
+            stockLedgerService.record(ingredient.getId(), StockMovementType.INITIAL, openingStock, "Opening balance");
+        }
+        ingredient.setStockQuantity(openingStock);
+        return toDTO(ingredient);
     }
 
 
@@ -62,6 +83,9 @@ public class IngredientServiceImpl implements IngredientService {
     public IngredientDTO updateIngredient(Long id, IngredientDTO ingredientDTO) {
         Ingredient ingredient = ingredientRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("Ingredient not found"));
+        if (ingredientDTO.getVersion() != null && !ingredientDTO.getVersion().equals(ingredient.getVersion())) {
+            throw new ObjectOptimisticLockingFailureException(Ingredient.class, id);
+        }
 
         if (ingredientDTO.getName() != null && !ingredientDTO.getName().isEmpty()) {
             ingredient.setName(ingredientDTO.getName());
@@ -69,14 +93,18 @@ public class IngredientServiceImpl implements IngredientService {
         if (ingredientDTO.getUnit() != null) {
             ingredient.setUnit(ingredientDTO.getUnit());
         }
-        if (ingredientDTO.getCostPerUnit() != null) {
+        // cost_per_unit is nullable in the schema; a missing cost counts as zero
+        BigDecimal currentCost = ingredient.getCostPerUnit() != null ? ingredient.getCostPerUnit() : BigDecimal.ZERO;
+        if (ingredientDTO.getCostPerUnit() != null
+                && ingredientDTO.getCostPerUnit().compareTo(currentCost) != 0) {
             ingredient.setCostPerUnit(ingredientDTO.getCostPerUnit());
+            dishCostService.updateIngredientCost(id, ingredientDTO.getCostPerUnit());
         }
         if (ingredientDTO.getMinStockLevel() != null) {
             ingredient.setMinStockLevel(ingredientDTO.getMinStockLevel());
         }
 
-        return toDTO(ingredientRepository.save(ingredient));
+        return toDTO(ingredientRepository.saveAndFlush(ingredient));
     }
 
     @Override
@@ -97,17 +125,35 @@ public class IngredientServiceImpl implements IngredientService {
 
     @Override
     public void updateStock(Long id, BigDecimal quantity) {
-        Ingredient ingredient = ingredientRepository.findById(id)
-                .orElseThrow(() -> new NotFoundException("Ingredient not found"));
+        if (!ingredientRepository.existsById(id)) {
+            throw new NotFoundException("Ingredient not found");
+        }
+        if (quantity.signum() == 0) {
+            return;
+        }
 
-        BigDecimal newStock = ingredient.getStockQuantity().add(quantity);
+        stockLedgerService.record(id, StockMovementType.ADJUSTMENT, quantity, "Manual adjustment");
+        stockProjectionService.reloadStock(List.of(id));
+    }
 
-        if (newStock.signum() < 0) {
-            throw new BadRequestException("Not enough ingredient in stock");
+    // Absolute counts for many ingredients at once, booked as adjustments of the variance
+    @Override
+    public StocktakeResultDTO stocktake(StocktakeDTO stocktakeDTO) {
+        Map<Long, BigDecimal> counts = new HashMap<>();
+        for (StocktakeCountDTO count : stocktakeDTO.getCounts()) {
+            if (counts.put(count.getIngredientId(), count.getCountedQuantity()) != null) {
+                throw new BadRequestException("Ingredient " + count.getIngredientId() + " is counted more than once");
+            }
         }
 
-        ingredient.setStockQuantity(newStock);
-        ingredientRepository.save(ingredient);
+        String note = stocktakeDTO.getNote() != null && !stocktakeDTO.getNote().isBlank()
+                ? stocktakeDTO.getNote() : "Stocktake";
+        StocktakeResultDTO result = stockLedgerService.stocktake(counts, note);
+        stockProjectionService.reloadStock(result.getVariances().stream()
+                .filter(variance -> variance.getVariance().signum() != 0)
+                .map(StocktakeVarianceDTO::getIngredientId)
+                .toList());
+        return result;
     }
 
 
@@ -120,6 +166,7 @@ public class IngredientServiceImpl implements IngredientService {
                 .costPerUnit(ingredient.getCostPerUnit())
                 .minStockLevel(ingredient.getMinStockLevel())
                 .createdAt(ingredient.getCreatedAt())
+                .version(ingredient.getVersion())
                 .build();
     }
 }
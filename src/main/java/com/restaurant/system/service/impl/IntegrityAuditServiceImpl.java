@@ -0,0 +1,372 @@
+package com.restaurant.system.service.impl;
+
+import com.restaurant.system.dto.audit.DiscrepancyDTO;
+import com.restaurant.system.dto.audit.FailedChunkDTO;
+import com.restaurant.system.dto.audit.IntegrityAuditReportDTO;
+import com.restaurant.system.exception.ConflictException;
+import com.restaurant.system.service.IntegrityAuditService;
+import com.restaurant.system.service.StockLedgerService;
+import com.restaurant.system.service.StockProjectionService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks the trigger-maintained totals and the stock snapshots against the rows they are derived
+ * from. Every check walks its id space in fixed-size ranges; a range is one short read-only
+ * transaction (so it may run on a replica) with a statement timeout, and the ranges run on a
+ * small fixed pool, so a full pass over years of history never holds locks or a snapshot for
+ * long. Repairs go to the primary and repeat the comparison in their WHERE clause, so rows that
+ * were fixed meanwhile, or only looked drifted on a lagging replica, are left alone.
+ */
+@Slf4j
+@Service
+public class IntegrityAuditServiceImpl implements IntegrityAuditService {
+
+    private static final String JOB_NAME = "integrity-audit";
+
+    private static final String ITEMS_TOTAL =
+            "SELECT order_id, round(SUM(unit_price * quantity), 2) AS total FROM order_items " +
+            "WHERE order_id >= ? AND order_id < ? GROUP BY order_id";
+
+    private static final String ORDER_TOTAL_SQL =
+            "SELECT o.id, COALESCE(i.total, 0), o.total FROM orders o " +
+            "LEFT JOIN (" + ITEMS_TOTAL + ") i ON i.order_id = o.id " +
+            "WHERE o.id >= ? AND o.id < ? AND o.total IS DISTINCT FROM COALESCE(i.total, 0)";
+
+    // The order range is repeated on orders so both sides are read by id range
+    private static final String SALE_TOTAL_SQL =
+            "SELECT s.id, o.total, s.total FROM sales s " +
+            "JOIN orders o ON o.id = s.order_id AND o.id >= ? AND o.id < ? " +
+            "WHERE s.order_id >= ? AND s.order_id < ? AND s.total IS DISTINCT FROM o.total";
+
+    // total_cost is only computed when a supply is confirmed
+    private static final String SUPPLY_COST_SQL =
+            "SELECT s.id, COALESCE(i.cost, 0), s.total_cost FROM supplies s " +
+            "LEFT JOIN (SELECT supply_id, round(SUM(quantity * unit_price), 2) AS cost FROM supply_items " +
+            "           WHERE supply_id >= ? AND supply_id < ? GROUP BY supply_id) i ON i.supply_id = s.id " +
+            "WHERE s.id >= ? AND s.id < ? AND s.status = 'CONFIRMED' " +
+            "  AND s.total_cost IS DISTINCT FROM COALESCE(i.cost, 0)";
+
+    // Snapshots taken within a range of movement ids, each against the previous snapshot of its
+    // ingredient plus the movements in (previous last_movement_id, last_movement_id]. Every movement
+    // is summed once over a full pass; current stock is the latest snapshot plus its tail, so it is
+    // right once every snapshot is. A broken snapshot is reported along with the next one, which
+    // no longer follows from it.
+    private static final String STOCK_SQL =
+            "SELECT s.ingredient_id, COALESCE(p.quantity, 0) + COALESCE(m.quantity, 0), s.quantity " +
+            "FROM stock_snapshots s " +
+            "LEFT JOIN LATERAL (SELECT quantity, last_movement_id FROM stock_snapshots ps " +
+            "                   WHERE ps.ingredient_id = s.ingredient_id AND ps.last_movement_id < s.last_movement_id " +
+            "                   ORDER BY ps.last_movement_id DESC LIMIT 1) p ON true " +
+            "LEFT JOIN LATERAL (SELECT SUM(sm.quantity) AS quantity FROM stock_movements sm " +
+            "                   WHERE sm.ingredient_id = s.ingredient_id " +
+            "                     AND sm.id > COALESCE(p.last_movement_id, 0) AND sm.id <= s.last_movement_id) m ON true " +
+            "WHERE s.last_movement_id >= ? AND s.last_movement_id < ? " +
+            "  AND s.quantity <> COALESCE(p.quantity, 0) + COALESCE(m.quantity, 0)";
+
+    // Order rows first, in id order like everywhere else, then the same recomputation as the trigger
+    private static final String LOCK_ORDERS_SQL =
+            "SELECT id FROM orders WHERE id = ANY(?::bigint[]) ORDER BY id FOR UPDATE";
+
+    private static final String REPAIR_ORDER_TOTAL_SQL =
+            "SELECT fn_update_order_total(o.id) FROM orders o " +
+            "WHERE o.id = ANY(?::bigint[]) " +
+            "  AND o.total IS DISTINCT FROM (SELECT COALESCE(round(SUM(oi.unit_price * oi.quantity), 2), 0) " +
+            "                                FROM order_items oi WHERE oi.order_id = o.id)";
+
+    // Copies orders.total only while it matches the order's items: a drifted order total is left to
+    // ORDER_TOTAL, and its sales are repaired by the next run instead of inheriting the drift
+    private static final String REPAIR_SALE_TOTAL_SQL =
+            "UPDATE sales s SET total = o.total FROM orders o " +
+            "WHERE s.id = ANY(?::bigint[]) AND o.id = s.order_id AND s.total IS DISTINCT FROM o.total " +
+            "  AND o.total IS NOT DISTINCT FROM (SELECT COALESCE(round(SUM(oi.unit_price * oi.quantity), 2), 0) " +
+            "                                    FROM order_items oi WHERE oi.order_id = o.id)";
+
+    private static final String REPAIR_SUPPLY_COST_SQL =
+            "UPDATE supplies s SET total_cost = t.cost " +
+            "FROM (SELECT s2.id, (SELECT COALESCE(round(SUM(si.quantity * si.unit_price), 2), 0) " +
+            "                     FROM supply_items si WHERE si.supply_id = s2.id) AS cost " +
+            "      FROM supplies s2 WHERE s2.id = ANY(?::bigint[])) t " +
+            "WHERE s.id = t.id AND s.status = 'CONFIRMED' AND s.total_cost IS DISTINCT FROM t.cost";
+
+    // Only one node runs the nightly audit: the first to move the watermark claims the run
+    private static final String CLAIM_SQL =
+            "INSERT INTO job_watermarks (job_name, processed_until) VALUES (?, now()) " +
+            "ON CONFLICT (job_name) DO UPDATE SET processed_until = EXCLUDED.processed_until, updated_at = now() " +
+            "WHERE job_watermarks.processed_until < now() - interval '1 hour'";
+
+    private enum Check {
+        ORDER_TOTAL("orders", "id", ORDER_TOTAL_SQL),
+        SALE_TOTAL("orders", "id", SALE_TOTAL_SQL),
+        SUPPLY_COST("supplies", "id", SUPPLY_COST_SQL),
+        STOCK("stock_snapshots", "last_movement_id", STOCK_SQL);
+
+        // Ids split into ranges; sales are walked by order id, snapshots by movement id
+        private final String idTable;
+        private final String idColumn;
+        private final String sql;
+        // Times the range is bound, one (from, to) pair per table read by range
+        private final int ranges;
+
+        Check(String idTable, String idColumn, String sql) {
+            this.idTable = idTable;
+            this.idColumn = idColumn;
+            this.sql = sql;
+            this.ranges = (int) sql.chars().filter(c -> c == '?').count() / 2;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final StockLedgerService stockLedgerService;
+    private final StockProjectionService stockProjectionService;
+    private final TransactionTemplate readTransaction;
+    private final TransactionTemplate writeTransaction;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Value("${integrity-audit.chunk-size:10000}")
+    private long chunkSize;
+
+    @Value("${integrity-audit.parallelism:2}")
+    private int parallelism;
+
+    @Value("${integrity-audit.statement-timeout-ms:30000}")
+    private int statementTimeoutMs;
+
+    @Value("${integrity-audit.pause-ms:20}")
+    private long pauseMs;
+
+    @Value("${integrity-audit.max-reported:1000}")
+    private int maxReported;
+
+    @Value("${integrity-audit.auto-repair:false}")
+    private boolean autoRepair;
+
+    public IntegrityAuditServiceImpl(JdbcTemplate jdbcTemplate,
+                                     StockLedgerService stockLedgerService,
+                                     StockProjectionService stockProjectionService,
+                                     PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.stockLedgerService = stockLedgerService;
+        this.stockProjectionService = stockProjectionService;
+
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTransaction.setReadOnly(true);
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Scheduled(cron = "${integrity-audit.cron:0 30 4 * * *}")
+    public void runNightly() {
+        if (jdbcTemplate.update(CLAIM_SQL, JOB_NAME) == 0) {
+            return;
+        }
+        try {
+            audit(autoRepair);
+        } catch (ConflictException e) {
+            log.debug("Nightly integrity audit skipped: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public IntegrityAuditReportDTO audit(boolean repair) {
+        if (!running.compareAndSet(false, true)) {
+            throw new ConflictException("Integrity audit is already running");
+        }
+        try {
+            OffsetDateTime startedAt = OffsetDateTime.now(ZoneOffset.UTC);
+            long started = System.nanoTime();
+
+            List<Chunk> chunks = new ArrayList<>();
+            for (Check check : Check.values()) {
+                chunks.addAll(chunks(check));
+            }
+
+            Map<Check, AtomicInteger> found = counters();
+            Map<Check, AtomicInteger> repaired = counters();
+            List<FailedChunkDTO> failed = new ArrayList<>();
+            List<DiscrepancyDTO> details = new ArrayList<>();
+
+            ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, chunks.size())));
+            try {
+                CompletableFuture.allOf(chunks.stream()
+                        .map(chunk -> CompletableFuture.runAsync(() -> {
+                            try {
+                                List<DiscrepancyDTO> discrepancies = check(chunk);
+                                found.get(chunk.check()).addAndGet(discrepancies.size());
+                                synchronized (details) {
+                                    discrepancies.stream()
+                                            .limit(Math.max(0, maxReported + 1 - details.size()))
+                                            .forEach(details::add);
+                                }
+                                if (repair && !discrepancies.isEmpty()) {
+                                    repaired.get(chunk.check()).addAndGet(repair(chunk.check(), discrepancies));
+                                }
+                                pause();
+                            } catch (RuntimeException e) {
+                                String error = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+                                log.error("Integrity audit of {} ids {}-{} failed, the range is unchecked: {}",
+                                        chunk.check(), chunk.from(), chunk.to() - 1, error);
+                                synchronized (failed) {
+                                    failed.add(FailedChunkDTO.builder()
+                                            .check(chunk.check().name())
+                                            .fromId(chunk.from())
+                                            .toId(chunk.to() - 1)
+                                            .error(error)
+                                            .build());
+                                }
+                            }
+                        }, executor))
+                        .toArray(CompletableFuture[]::new)).join();
+            } finally {
+                executor.shutdownNow();
+            }
+
+            details.sort(Comparator.comparing((DiscrepancyDTO d) -> Check.valueOf(d.getCheck()))
+                    .thenComparing(DiscrepancyDTO::getEntityId));
+            failed.sort(Comparator.comparing((FailedChunkDTO f) -> Check.valueOf(f.getCheck()))
+                    .thenComparing(FailedChunkDTO::getFromId));
+            boolean truncated = details.size() > maxReported;
+            IntegrityAuditReportDTO report = IntegrityAuditReportDTO.builder()
+                    .startedAt(startedAt)
+                    .durationMs((System.nanoTime() - started) / 1_000_000)
+                    .repair(repair)
+                    .chunks(chunks.size())
+                    .complete(failed.isEmpty())
+                    .failedChunks(failed)
+                    .discrepancies(totals(found))
+                    .repaired(totals(repaired))
+                    .details(truncated ? new ArrayList<>(details.subList(0, maxReported)) : details)
+                    .truncated(truncated)
+                    .build();
+            if (failed.isEmpty()) {
+                log.info("Integrity audit finished in {} ms: {} chunks, discrepancies {}, repaired {}",
+                        report.getDurationMs(), report.getChunks(), report.getDiscrepancies(), report.getRepaired());
+            } else {
+                log.error("Integrity audit incomplete after {} ms: {} of {} chunks failed and were not checked {}, " +
+                                "discrepancies {}, repaired {}",
+                        report.getDurationMs(), failed.size(), report.getChunks(), failed,
+                        report.getDiscrepancies(), report.getRepaired());
+            }
+            return report;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private List<Chunk> chunks(Check check) {
+        long[] range = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(min(" + check.idColumn + "), 0), COALESCE(max(" + check.idColumn + "), -1) " +
+                "FROM " + check.idTable,
+                (rs, rowNum) -> new long[] {rs.getLong(1), rs.getLong(2)});
+        List<Chunk> chunks = new ArrayList<>();
+        for (long from = range[0]; from <= range[1]; from += chunkSize) {
+            chunks.add(new Chunk(check, from, Math.min(from + chunkSize, range[1] + 1)));
+        }
+        return chunks;
+    }
+
+    private List<DiscrepancyDTO> check(Chunk chunk) {
+        return readTransaction.execute(status -> {
+            jdbcTemplate.query("SELECT set_config('statement_timeout', ?, true)", rs -> { },
+                    statementTimeoutMs + "ms");
+            return jdbcTemplate.query(chunk.check().sql,
+                    (rs, rowNum) -> DiscrepancyDTO.builder()
+                            .check(chunk.check().name())
+                            .entityId(rs.getLong(1))
+                            .expected(rs.getBigDecimal(2))
+                            .actual(rs.getBigDecimal(3))
+                            .build(),
+                    range(chunk));
+        });
+    }
+
+    private static Object[] range(Chunk chunk) {
+        Object[] args = new Object[chunk.check().ranges * 2];
+        for (int i = 0; i < args.length; i += 2) {
+            args[i] = chunk.from();
+            args[i + 1] = chunk.to();
+        }
+        return args;
+    }
+
+    private int repair(Check check, List<DiscrepancyDTO> discrepancies) {
+        // Several snapshots of one ingredient can be reported
+        List<Long> ids = discrepancies.stream().map(DiscrepancyDTO::getEntityId).distinct().toList();
+        Long[] idArray = ids.toArray(new Long[0]);
+        Integer repaired = writeTransaction.execute(status -> switch (check) {
+            case ORDER_TOTAL -> {
+                jdbcTemplate.query(LOCK_ORDERS_SQL,
+                        ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", idArray)), rs -> { });
+                yield jdbcTemplate.query(REPAIR_ORDER_TOTAL_SQL,
+                        ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", idArray)),
+                        (rs, rowNum) -> rowNum).size();
+            }
+            case SALE_TOTAL -> jdbcTemplate.update(REPAIR_SALE_TOTAL_SQL,
+                    ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", idArray)));
+            case SUPPLY_COST -> jdbcTemplate.update(REPAIR_SUPPLY_COST_SQL,
+                    ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", idArray)));
+            case STOCK -> {
+                int count = stockLedgerService.resnapshot(ids);
+                stockProjectionService.reloadStock(ids);
+                yield count;
+            }
+        });
+        if (repaired != null && repaired > 0) {
+            log.debug("Integrity audit repaired {} of {} drifted {} rows", repaired, ids.size(), check);
+        }
+        return repaired != null ? repaired : 0;
+    }
+
+    // Leaves the pool thread idle for a moment, so live traffic keeps most of the database
+    private void pause() {
+        if (pauseMs <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(pauseMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Map<Check, AtomicInteger> counters() {
+        Map<Check, AtomicInteger> counters = new EnumMap<>(Check.class);
+        for (Check check : Check.values()) {
+            counters.put(check, new AtomicInteger());
+        }
+        return counters;
+    }
+
+    private static Map<String, Integer> totals(Map<Check, AtomicInteger> counters) {
+        Map<String, Integer> totals = new LinkedHashMap<>();
+        counters.forEach((check, count) -> totals.put(check.name(), count.get()));
+        return totals;
+    }
+
+    // Ids in [from, to)
+    private record Chunk(Check check, long from, long to) {
+    }
+}
@@ -0,0 +1,240 @@
+package com.restaurant.system.service.impl;
+
+import com.restaurant.system.dto.IngredientForecastDTO;
+import com.restaurant.system.dto.SupplyDTO;
+import com.restaurant.system.dto.SupplyItemDTO;
+import com.restaurant.system.exception.NotFoundException;
+import com.restaurant.system.service.InventoryForecastService;
+import com.restaurant.system.service.SupplyService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class InventoryForecastServiceImpl implements InventoryForecastService {
+
+    private static final String JOB_NAME = "ingredient-consumption";
+
+    private static final String DRAFT_NOTE = "Reorder suggestion (draft) generated ";
+
+    // Consumption per ingredient and UTC day: completed orders (sales) x current recipes
+    private static final String ROLLUP_SQL =
+            "INSERT INTO ingredient_daily_consumption (ingredient_id, day, quantity) " +
+            "SELECT di.ingredient_id, (s.sale_time AT TIME ZONE 'UTC')::date, SUM(oi.quantity * di.quantity) " +
+            "FROM sales s " +
+            "JOIN order_items oi ON oi.order_id = s.order_id " +
+            "JOIN dish_ingredients di ON di.dish_id = oi.dish_id " +
+            "WHERE s.sale_time >= ? AND s.sale_time < ? " +
+            "GROUP BY 1, 2";
+
+    private static final String FORECAST_SQL =
+            "SELECT i.id, i.name, i.unit, st.stock_quantity, COALESCE(i.min_stock_level, 0), " +
+            "       COALESCE(c.consumed, 0), COALESCE(p.incoming, 0), ls.supplier_id, ls.unit_price, fc.first_day " +
+            "FROM ingredients i " +
+            "JOIN v_ingredient_stock st ON st.ingredient_id = i.id " +
+            "LEFT JOIN (SELECT ingredient_id, SUM(quantity) AS consumed FROM ingredient_daily_consumption " +
+            "           WHERE day >= ? AND day < ? GROUP BY ingredient_id) c ON c.ingredient_id = i.id " +
+            "LEFT JOIN (SELECT si.ingredient_id, SUM(si.quantity) AS incoming FROM supply_items si " +
+            "           JOIN supplies s ON s.id = si.supply_id WHERE s.status = 'PENDING' " +
+            "           GROUP BY si.ingredient_id) p ON p.ingredient_id = i.id " +
+            "LEFT JOIN LATERAL (SELECT s.supplier_id, si.unit_price FROM supply_items si " +
+            "           JOIN supplies s ON s.id = si.supply_id " +
+            "           WHERE si.ingredient_id = i.id AND s.status = 'CONFIRMED' AND s.supplier_id IS NOT NULL " +
+            "           ORDER BY s.supply_time DESC LIMIT 1) ls ON true " +
+            "LEFT JOIN LATERAL (SELECT min(day) AS first_day FROM ingredient_daily_consumption " +
+            "           WHERE ingredient_id = i.id) fc ON true " +
+            "ORDER BY i.id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SupplyService supplyService;
+
+    @Value("${inventory-forecast.lookback-days:28}")
+    private int lookbackDays;
+
+    @Value("${inventory-forecast.lead-time-days:2}")
+    private int leadTimeDays;
+
+    @Value("${inventory-forecast.cover-days:7}")
+    private int coverDays;
+
+    @Value("${inventory-forecast.recompute-days:2}")
+    private int recomputeDays;
+
+    @Value("${inventory-forecast.auto-draft-supplies:false}")
+    private boolean autoDraftSupplies;
+
+    @Scheduled(cron = "${inventory-forecast.refresh-cron:0 */15 * * * *}")
+    public void runForecast() {
+        refreshConsumption();
+        if (autoDraftSupplies) {
+            List<SupplyDTO> drafts = transactionTemplate.execute(status -> createReorderDrafts());
+            if (drafts != null && !drafts.isEmpty()) {
+                log.info("Created {} reorder draft supplies", drafts.size());
+            }
+        }
+    }
+
+    // Rebuilds whole UTC days from the watermark on, one month per transaction, so the first
+    // run backfills the full history in a few grouped scans and later runs touch only the last days.
+    // The recompute overlap picks up sales committed after the previous run had passed their time.
+    @Override
+    public int refreshConsumption() {
+        OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+        OffsetDateTime watermark = jdbcTemplate.query(
+                "SELECT processed_until FROM job_watermarks WHERE job_name = ?",
+                rs -> rs.next() ? rs.getObject(1, OffsetDateTime.class) : null, JOB_NAME);
+
+        OffsetDateTime from = watermark != null
+                ? watermark.minusDays(recomputeDays)
+                : jdbcTemplate.queryForObject("SELECT min(sale_time) FROM sales", OffsetDateTime.class);
+        if (from == null) {
+            saveWatermark(now);
+            return 0;
+        }
+
+        LocalDate day = from.withOffsetSameInstant(ZoneOffset.UTC).toLocalDate();
+        LocalDate end = now.toLocalDate().plusDays(1);
+        int rows = 0;
+        while (day.isBefore(end)) {
+            LocalDate chunkStart = day;
+            LocalDate chunkEnd = day.withDayOfMonth(1).plusMonths(1);
+            if (chunkEnd.isAfter(end)) {
+                chunkEnd = end;
+            }
+            LocalDate until = chunkEnd;
+            Integer inserted = transactionTemplate.execute(status -> {
+                // Serializes concurrent runs, e.g. on several nodes
+                jdbcTemplate.query("SELECT pg_advisory_xact_lock(hashtext(?))", rs -> { }, JOB_NAME);
+                jdbcTemplate.update("DELETE FROM ingredient_daily_consumption WHERE day >= ? AND day < ?",
+                        chunkStart, until);
+                int count = jdbcTemplate.update(ROLLUP_SQL, startOf(chunkStart), startOf(until));
+                OffsetDateTime processed = startOf(until);
+                saveWatermark(processed.isAfter(now) ? now : processed);
+                return count;
+            });
+            rows += inserted != null ? inserted : 0;
+            day = chunkEnd;
+        }
+        log.debug("Ingredient consumption rollup refreshed from {} ({} rows)", from, rows);
+        return rows;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<IngredientForecastDTO> getForecast() {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        return jdbcTemplate.query(FORECAST_SQL, (rs, rowNum) -> toForecast(rs, today),
+                today.minusDays(lookbackDays), today);
+    }
+
+    // One PENDING supply per supplier of the last delivery. Open PENDING supplies already count
+    // as incoming stock, so running this again does not order the same quantity twice.
+    @Override
+    @Transactional
+    public List<SupplyDTO> createReorderDrafts() {
+        Map<Long, List<IngredientForecastDTO>> bySupplier = getForecast().stream()
+                .filter(forecast -> forecast.getSuggestedQuantity().signum() > 0 && forecast.getSupplierId() != null)
+                .collect(Collectors.groupingBy(IngredientForecastDTO::getSupplierId, TreeMap::new, Collectors.toList()));
+
+        List<SupplyDTO> drafts = new ArrayList<>();
+        String note = DRAFT_NOTE + LocalDate.now(ZoneOffset.UTC);
+        bySupplier.forEach((supplierId, lines) -> {
+            SupplyDTO supply = supplyService.createSupply(SupplyDTO.builder()
+                    .supplierId(supplierId)
+                    .notes(note)
+                    .build());
+            for (IngredientForecastDTO line : lines) {
+                supplyService.addItemToSupply(supply.getId(), SupplyItemDTO.builder()
+                        .ingredientId(line.getIngredientId())
+                        .quantity(line.getSuggestedQuantity())
+                        .unitPrice(line.getLastUnitPrice())
+                        .build());
+            }
+            drafts.add(supplyService.getSupplyById(supply.getId())
+                    .orElseThrow(() -> new NotFoundException("Supply not found")));
+        });
+        return drafts;
+    }
+
+    private IngredientForecastDTO toForecast(ResultSet rs, LocalDate today) throws SQLException {
+        BigDecimal stock = rs.getBigDecimal(4);
+        BigDecimal minStock = rs.getBigDecimal(5);
+        BigDecimal consumed = rs.getBigDecimal(6);
+        BigDecimal incoming = rs.getBigDecimal(7);
+        // An ingredient used for less than the lookback window (new item, fresh install) is averaged
+        // over the days it has been consumed, not over the full window
+        LocalDate firstDay = rs.getObject(10, LocalDate.class);
+        long observedDays = firstDay != null
+                ? Math.max(1, Math.min(lookbackDays, ChronoUnit.DAYS.between(firstDay, today)))
+                : lookbackDays;
+        BigDecimal rate = consumed.divide(BigDecimal.valueOf(observedDays), 4, RoundingMode.HALF_UP);
+
+        BigDecimal daysLeft = null;
+        LocalDate stockoutDate = null;
+        if (rate.signum() > 0) {
+            daysLeft = stock.max(BigDecimal.ZERO).divide(rate, 1, RoundingMode.FLOOR);
+            stockoutDate = today.plusDays(daysLeft.longValue());
+        }
+
+        // Reorder once stock on hand and on order would fall below the minimum before a delivery
+        // could arrive; order enough to cover the lead time plus coverDays of consumption
+        BigDecimal available = stock.add(incoming);
+        BigDecimal reorderPoint = rate.multiply(BigDecimal.valueOf(leadTimeDays)).add(minStock);
+        BigDecimal suggested = BigDecimal.ZERO;
+        if (available.compareTo(reorderPoint) <= 0) {
+            suggested = rate.multiply(BigDecimal.valueOf(leadTimeDays + coverDays))
+                    .add(minStock)
+                    .subtract(available)
+                    .max(BigDecimal.ZERO)
+                    .setScale(3, RoundingMode.CEILING);
+        }
+
+        return IngredientForecastDTO.builder()
+                .ingredientId(rs.getLong(1))
+                .ingredientName(rs.getString(2))
+                .unit(rs.getString(3))
+                .stockQuantity(stock)
+                .minStockLevel(minStock)
+                .incomingQuantity(incoming)
+                .dailyConsumption(rate)
+                .daysUntilStockout(daysLeft)
+                .stockoutDate(stockoutDate)
+                .suggestedQuantity(suggested)
+                .supplierId(rs.getObject(8, Long.class))
+                .lastUnitPrice(rs.getBigDecimal(9))
+                .build();
+    }
+
+    private void saveWatermark(OffsetDateTime processedUntil) {
+        jdbcTemplate.update(
+                "INSERT INTO job_watermarks (job_name, processed_until) VALUES (?, ?) " +
+                "ON CONFLICT (job_name) DO UPDATE SET processed_until = EXCLUDED.processed_until, updated_at = now()",
+                JOB_NAME, processedUntil);
+    }
+
+    private static OffsetDateTime startOf(LocalDate day) {
+        return day.atStartOfDay().atOffset(ZoneOffset.UTC);
+    }
+}
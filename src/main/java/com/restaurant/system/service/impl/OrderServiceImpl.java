@@ -7,6 +7,7 @@ import com.restaurant.system.entity.Order;
 import com.restaurant.system.entity.OrderItem;
 import com.restaurant.system.entity.Dish;
 import com.restaurant.system.entity.enums.OrderStatus;
+import com.restaurant.system.event.DomainEventType;
 import com.restaurant.system.exception.BadRequestException;
 import com.restaurant.system.exception.ConflictException;
 import com.restaurant.system.exception.NotFoundException;
@@ -14,7 +15,13 @@ import com.restaurant.system.repository.ClientRepository;
 import com.restaurant.system.repository.OrderRepository;
 import com.restaurant.system.repository.OrderItemRepository;
 import com.restaurant.system.repository.DishRepository;
+import com.restaurant.system.repository.SaleRepository;
 import com.restaurant.system.service.OrderService;
+import com.restaurant.system.service.ReceiptNumberService;
+import com.restaurant.system.service.SaleService;
+import com.restaurant.system.service.StockProjectionService;
+import com.restaurant.system.service.OutboxService;
+import com.restaurant.system.util.RetryOnConflict;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -24,6 +31,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -36,6 +44,11 @@ public class OrderServiceImpl implements OrderService {
     private final OrderRepository orderRepository;
     private final OrderItemRepository orderItemRepository;
     private final DishRepository dishRepository;
+    private final StockProjectionService stockProjectionService;
+    private final OutboxService outboxService;
+    private final SaleRepository saleRepository;
+    private final ReceiptNumberService receiptNumberService;
+    private final SaleService saleService;
 
     @Override
     public OrderDTO createOrder(OrderDTO orderDTO) {
@@ -48,7 +61,9 @@ public class OrderServiceImpl implements OrderService {
         order.setTotal(BigDecimal.ZERO);
         order.setNotes(orderDTO.getNotes());
 
-        return toDTO(orderRepository.save(order));
+        OrderDTO created = toDTO(orderRepository.save(order));
+        outboxService.publish(DomainEventType.ORDER_CREATED, created.getId(), created);
+        return created;
     }
 
     @Override
@@ -102,36 +117,55 @@ public class OrderServiceImpl implements OrderService {
             throw new BadRequestException("Cannot complete order without items");
         }
 
+        boolean completing = status == OrderStatus.COMPLETED && order.getStatus() != OrderStatus.COMPLETED;
+        trackStock(order.getId(), order.getStatus(), status);
         order.setStatus(status);
-        return toDTO(orderRepository.save(order));
+        Order saved = orderRepository.saveAndFlush(order);
+        if (completing) {
+            recordSale(id);
+        }
+        OrderDTO updated = toDTO(saved);
+        outboxService.publish(DomainEventType.ORDER_STATUS_CHANGED, id, updated);
+        return updated;
     }
 
 
     @Override
     public void deleteOrder(Long id) {
-        if (!orderRepository.existsById(id)) {
-            throw new NotFoundException("Order not found");
+        Order order = orderRepository.findById(id)
+                .orElseThrow(() -> new NotFoundException("Order not found"));
+
+        if (isOpen(order.getStatus())) {
+            stockProjectionService.release(dishQuantities(id));
         }
         orderRepository.deleteById(id);
+        outboxService.publish(DomainEventType.ORDER_DELETED, id, Map.of("id", id));
     }
 
+    // Concurrent item changes add up in any order, so losing the version race just means another go
     @Override
+    @RetryOnConflict
     public OrderItemDTO addItemToOrder(Long orderId, OrderItemDTO itemDTO) {
-        Order order = orderRepository.findById(orderId)
+        Order order = orderRepository.findForItemChangeById(orderId)
                 .orElseThrow(() -> new NotFoundException("Order not found"));
 
         Dish dish = dishRepository.findById(itemDTO.getDishId())
                 .orElseThrow(() -> new NotFoundException("Dish not found"));
 
+        // Ingredients are set aside right away, not when the order completes
+        if (isOpen(order.getStatus())) {
+            stockProjectionService.reserve(dish.getId(), itemDTO.getQuantity());
+        }
+
         OrderItem item = new OrderItem();
         item.setOrder(order);
         item.setDish(dish);
         item.setQuantity(itemDTO.getQuantity());
         item.setUnitPrice(dish.getPrice());
 
-        OrderItem saved = orderItemRepository.save(item);
-
-        return toDTO(saved);
+        OrderItemDTO saved = toDTO(orderItemRepository.save(item));
+        outboxService.publish(DomainEventType.ORDER_ITEM_ADDED, orderId, saved);
+        return saved;
     }
 
     @Override
@@ -143,7 +177,10 @@ public class OrderServiceImpl implements OrderService {
     }
 
     @Override
+    @RetryOnConflict
     public void removeItemFromOrder(Long orderId, Long itemId) {
+        Order order = orderRepository.findForItemChangeById(orderId)
+                .orElseThrow(() -> new NotFoundException("Order not found"));
         OrderItem item = orderItemRepository.findById(itemId)
                 .orElseThrow(() -> new NotFoundException("Order item not found"));
 
@@ -151,7 +188,11 @@ public class OrderServiceImpl implements OrderService {
             throw new BadRequestException("Item does not belong to this order");
         }
 
+        if (isOpen(order.getStatus())) {
+            stockProjectionService.release(Map.of(item.getDish().getId(), item.getQuantity()));
+        }
         orderItemRepository.deleteById(itemId);
+        outboxService.publish(DomainEventType.ORDER_ITEM_REMOVED, orderId, Map.of("orderId", orderId, "itemId", itemId));
     }
 
 
@@ -160,9 +201,55 @@ public class OrderServiceImpl implements OrderService {
         Order order = orderRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("Order not found"));
 
+        boolean completing = order.getStatus() != OrderStatus.COMPLETED;
+        trackStock(order.getId(), order.getStatus(), OrderStatus.COMPLETED);
         order.setStatus(OrderStatus.COMPLETED);
 
-        return toDTO(orderRepository.save(order));
+        Order saved = orderRepository.saveAndFlush(order);
+        if (completing) {
+            recordSale(id);
+        }
+        OrderDTO completed = toDTO(saved);
+        outboxService.publish(DomainEventType.ORDER_STATUS_CHANGED, id, completed);
+        return completed;
+    }
+
+    // Keeps ingredient reservations of the stock projection in line with the order lifecycle
+    private void trackStock(Long orderId, OrderStatus from, OrderStatus to) {
+        boolean completing = to == OrderStatus.COMPLETED && from != OrderStatus.COMPLETED;
+        if (isOpen(from) == isOpen(to) && !completing) {
+            return;
+        }
+
+        Map<Long, Integer> dishes = dishQuantities(orderId);
+        // Reopened or completed straight from CANCELLED - nothing is reserved for it yet
+        if (!isOpen(from)) {
+            stockProjectionService.reserve(dishes);
+        }
+        if (completing) {
+            stockProjectionService.consume(dishes);
+        } else if (!isOpen(to)) {
+            stockProjectionService.release(dishes);
+        }
+    }
+
+    // The flush above ran trg_orders_after_update, which inserted the sale without a receipt number;
+    // it is announced like a sale created through SaleService, once it carries its number
+    private void recordSale(Long orderId) {
+        if (saleRepository.existsByOrder_IdAndReceiptNumberIsNull(orderId)) {
+            saleRepository.assignReceiptNumber(orderId, receiptNumberService.next());
+            saleService.getSaleByOrderId(orderId).ifPresent(sale ->
+                    outboxService.publish(DomainEventType.SALE_CREATED, sale.getId(), sale));
+        }
+    }
+
+    private Map<Long, Integer> dishQuantities(Long orderId) {
+        return orderItemRepository.findByOrderId(orderId).stream()
+                .collect(Collectors.toMap(item -> item.getDish().getId(), OrderItem::getQuantity, Integer::sum));
+    }
+
+    private static boolean isOpen(OrderStatus status) {
+        return status == OrderStatus.PENDING || status == OrderStatus.IN_PROGRESS;
     }
 
     private OrderDTO toDTO(Order order) {
@@ -180,6 +267,7 @@ public class OrderServiceImpl implements OrderService {
                 .notes(order.getNotes())
                 .createdByUserId(order.getCreatedBy() != null ? order.getCreatedBy().getId() : null)
                 .createdAt(order.getCreatedAt())
+                .version(order.getVersion())
                 .items(items)
                 .build();
     }
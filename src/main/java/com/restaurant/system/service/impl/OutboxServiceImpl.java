@@ -0,0 +1,242 @@
+package com.restaurant.system.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.restaurant.system.event.DomainEvent;
+import com.restaurant.system.event.DomainEventType;
+import com.restaurant.system.service.OutboxService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Events are inserted into outbox_events by the transaction that makes the change, so they
+ * exist exactly when the change committed. The relay hands unpublished events in id order to
+ * in-process {@code @EventListener}s of {@link DomainEvent} and, when a channel is configured,
+ * announces them with NOTIFY for consumers outside the application. Events are marked
+ * published only after dispatch, so a crash in between redelivers them (at least once).
+ */
+@Slf4j
+@Service
+public class OutboxServiceImpl implements OutboxService {
+
+    private static final String RELAY_LOCK = "outbox-relay";
+
+    private static final String INSERT_SQL =
+            "INSERT INTO outbox_events (aggregate_type, aggregate_id, event_type, payload) VALUES (?, ?, ?, ?::jsonb)";
+
+    private static final String BATCH_SQL =
+            "SELECT id, event_type, aggregate_type, aggregate_id, payload::text, created_at " +
+            "FROM outbox_events WHERE published_at IS NULL AND failed_at IS NULL ORDER BY id LIMIT ?";
+
+    private static final String NOTIFY_SQL =
+            "SELECT pg_notify(?, json_build_object('id', id, 'type', event_type, " +
+            "       'aggregateType', aggregate_type, 'aggregateId', aggregate_id)::text) " +
+            "FROM outbox_events WHERE id = ANY(?) ORDER BY id";
+
+    private static final String BACKLOG_SQL =
+            "SELECT count(*), COALESCE(EXTRACT(EPOCH FROM clock_timestamp() - min(created_at)) * 1000, 0) " +
+            "FROM outbox_events WHERE published_at IS NULL AND failed_at IS NULL";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate withoutTransaction;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong lagMillis = new AtomicLong();
+    private final Counter published;
+    private final Counter failed;
+    private final Counter parked;
+    private final Timer deliveryDelay;
+
+    @Value("${outbox.batch-size:200}")
+    private int batchSize;
+
+    @Value("${outbox.max-attempts:20}")
+    private int maxAttempts;
+
+    @Value("${outbox.notify-channel:}")
+    private String notifyChannel;
+
+    @Value("${outbox.retention-days:7}")
+    private int retentionDays;
+
+    public OutboxServiceImpl(JdbcTemplate jdbcTemplate,
+                             TransactionTemplate transactionTemplate,
+                             ApplicationEventPublisher eventPublisher,
+                             ObjectMapper objectMapper,
+                             MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+
+        // Listeners run outside the relay transaction: a failing listener must not roll back
+        // the bookkeeping of the events before it, and its own writes commit on their own
+        this.withoutTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.withoutTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_NOT_SUPPORTED);
+
+        Gauge.builder("outbox.pending", pending, AtomicLong::get)
+                .description("Events waiting for delivery")
+                .register(meterRegistry);
+        Gauge.builder("outbox.lag", lagMillis, lag -> lag.get() / 1000.0)
+                .description("Age of the oldest undelivered event")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        this.published = Counter.builder("outbox.published")
+                .description("Events delivered to subscribers")
+                .register(meterRegistry);
+        this.failed = Counter.builder("outbox.failed")
+                .description("Delivery attempts that threw")
+                .register(meterRegistry);
+        this.parked = Counter.builder("outbox.parked")
+                .description("Events given up on after max-attempts")
+                .register(meterRegistry);
+        this.deliveryDelay = Timer.builder("outbox.delivery.delay")
+                .description("Time from writing an event to its delivery")
+                .register(meterRegistry);
+    }
+
+    // MANDATORY: an event without the surrounding write transaction could outlive a rolled back change
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publish(DomainEventType type, Long aggregateId, Object payload) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize " + type + " payload", e);
+        }
+        jdbcTemplate.update(INSERT_SQL, type.getAggregateType(), aggregateId, type.name(), json);
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.relay-interval-ms:1000}")
+    public void relayPending() {
+        try {
+            int delivered;
+            do {
+                delivered = relay();
+            } while (delivered == batchSize);
+            refreshBacklog();
+        } catch (RuntimeException e) {
+            log.warn("Outbox relay failed: {}", e.getMessage());
+        }
+    }
+
+    // One batch. Only the node holding the relay lock dispatches, so subscribers see events in id
+    // order. A failing event stops the batch and is retried on the next run; after max-attempts it
+    // is parked with its error so the events behind it are not held up forever.
+    @Override
+    public int relay() {
+        Integer delivered = transactionTemplate.execute(status -> {
+            Boolean leader = jdbcTemplate.queryForObject(
+                    "SELECT pg_try_advisory_xact_lock(hashtext(?))", Boolean.class, RELAY_LOCK);
+            if (!Boolean.TRUE.equals(leader)) {
+                return 0;
+            }
+
+            List<DomainEvent> batch = jdbcTemplate.query(BATCH_SQL, (rs, rowNum) -> toEvent(rs), batchSize);
+            List<Long> dispatched = new ArrayList<>(batch.size());
+            for (DomainEvent event : batch) {
+                try {
+                    withoutTransaction.executeWithoutResult(s -> eventPublisher.publishEvent(event));
+                } catch (RuntimeException e) {
+                    recordFailure(event, e);
+                    break;
+                }
+                dispatched.add(event.id());
+            }
+            if (dispatched.isEmpty()) {
+                return 0;
+            }
+
+            Long[] ids = dispatched.toArray(new Long[0]);
+            jdbcTemplate.query(
+                    "UPDATE outbox_events SET published_at = clock_timestamp() WHERE id = ANY(?) " +
+                    "RETURNING EXTRACT(EPOCH FROM published_at - created_at) * 1000",
+                    ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids)),
+                    rs -> { deliveryDelay.record(Duration.ofMillis(rs.getLong(1))); });
+            if (!notifyChannel.isBlank()) {
+                // Delivered by PostgreSQL on commit, so listeners never hear of an unpublished event
+                jdbcTemplate.query(NOTIFY_SQL,
+                        ps -> {
+                            ps.setString(1, notifyChannel);
+                            ps.setArray(2, ps.getConnection().createArrayOf("bigint", ids));
+                        },
+                        rs -> { });
+            }
+            return dispatched.size();
+        });
+        int count = delivered != null ? delivered : 0;
+        published.increment(count);
+        return count;
+    }
+
+    @Override
+    @Scheduled(cron = "${outbox.purge-cron:0 45 3 * * *}")
+    public int purgePublished() {
+        int deleted = jdbcTemplate.update(
+                "DELETE FROM outbox_events WHERE published_at < now() - make_interval(days => ?)", retentionDays);
+        if (deleted > 0) {
+            log.info("Purged {} published outbox events", deleted);
+        }
+        return deleted;
+    }
+
+    private void recordFailure(DomainEvent event, RuntimeException e) {
+        failed.increment();
+        Boolean gaveUp = jdbcTemplate.queryForObject(
+                "UPDATE outbox_events SET attempts = attempts + 1, last_error = ?, " +
+                "       failed_at = CASE WHEN attempts + 1 >= ? THEN clock_timestamp() END " +
+                "WHERE id = ? RETURNING failed_at IS NOT NULL",
+                Boolean.class, String.valueOf(e), maxAttempts, event.id());
+        if (Boolean.TRUE.equals(gaveUp)) {
+            parked.increment();
+            log.error("Outbox event {} ({}) parked after {} attempts", event.id(), event.type(), maxAttempts, e);
+        } else {
+            log.warn("Outbox event {} ({}) not delivered, will retry: {}", event.id(), event.type(), e.getMessage());
+        }
+    }
+
+    private void refreshBacklog() {
+        jdbcTemplate.query(BACKLOG_SQL, rs -> {
+            pending.set(rs.getLong(1));
+            lagMillis.set(rs.getLong(2));
+        });
+    }
+
+    private DomainEvent toEvent(ResultSet rs) throws SQLException {
+        try {
+            return new DomainEvent(
+                    rs.getLong(1),
+                    DomainEventType.valueOf(rs.getString(2)),
+                    rs.getString(3),
+                    rs.getLong(4),
+                    objectMapper.readTree(rs.getString(5)),
+                    rs.getObject(6, OffsetDateTime.class));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Malformed payload of outbox event " + rs.getLong(1), e);
+        }
+    }
+}
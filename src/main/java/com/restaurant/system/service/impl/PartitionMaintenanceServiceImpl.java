@@ -0,0 +1,139 @@
+package com.restaurant.system.service.impl;
+
+import com.restaurant.system.service.PartitionMaintenanceService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PartitionMaintenanceServiceImpl implements PartitionMaintenanceService {
+
+    // Partitioned table -> partition key column (see V12__partition_orders_and_sales.sql)
+    private static final Map<String, String> PARTITIONED_TABLES = Map.of(
+            "orders", "order_time",
+            "order_items", "created_at",
+            "sales", "sale_time"
+    );
+
+    private static final Pattern MONTHLY_PARTITION = Pattern.compile("^([a-z_]+)_p(\\d{4})_(\\d{2})$");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${partitioning.months-ahead:3}")
+    private int monthsAhead;
+
+    @Value("${partitioning.archive.enabled:false}")
+    private boolean archiveEnabled;
+
+    @Value("${partitioning.archive.retention-months:24}")
+    private int retentionMonths;
+
+    @Value("${partitioning.archive.directory:/var/lib/restaurant/archive}")
+    private String archiveDirectory;
+
+    @Scheduled(cron = "${partitioning.maintenance-cron:0 15 3 * * *}")
+    public void runMaintenance() {
+        ensureUpcomingPartitions();
+        if (archiveEnabled) {
+            archiveExpiredPartitions();
+        }
+    }
+
+    @Override
+    public int ensureUpcomingPartitions() {
+        OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+        int created = 0;
+        for (Map.Entry<String, String> table : PARTITIONED_TABLES.entrySet()) {
+            Integer count = jdbcTemplate.queryForObject(
+                    "SELECT fn_ensure_monthly_partitions(?, ?, ?, ?)", Integer.class,
+                    table.getKey(), table.getValue(), now, now.plusMonths(monthsAhead));
+            created += count != null ? count : 0;
+        }
+        if (created > 0) {
+            log.info("Created {} monthly partitions ({} months ahead)", created, monthsAhead);
+        }
+        return created;
+    }
+
+    @Override
+    public List<String> archiveExpiredPartitions() {
+        YearMonth cutoff = YearMonth.now(ZoneOffset.UTC).minusMonths(retentionMonths);
+        List<String> archived = new ArrayList<>();
+
+        for (String parent : PARTITIONED_TABLES.keySet()) {
+            List<String> partitions = jdbcTemplate.queryForList(
+                    "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+                    "WHERE i.inhparent = ?::regclass ORDER BY c.relname",
+                    String.class, parent);
+
+            for (String partition : partitions) {
+                Matcher matcher = MONTHLY_PARTITION.matcher(partition);
+                if (!matcher.matches() || !matcher.group(1).equals(parent)) {
+                    continue;
+                }
+                YearMonth month = YearMonth.of(Integer.parseInt(matcher.group(2)), Integer.parseInt(matcher.group(3)));
+                if (month.isBefore(cutoff)) {
+                    archivePartition(parent, partition);
+                    archived.add(partition);
+                }
+            }
+        }
+        return archived;
+    }
+
+    // Export first, detach and drop only once the compressed file is safely on disk
+    private void archivePartition(String parent, String partition) {
+        Path target = Path.of(archiveDirectory, partition + ".csv.gz");
+        long rows = exportPartition(partition, target);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("ALTER TABLE " + parent + " DETACH PARTITION " + partition);
+            jdbcTemplate.execute("DROP TABLE " + partition);
+        });
+        log.info("Archived partition {} ({} rows) to {}", partition, rows, target);
+    }
+
+    private long exportPartition(String partition, Path target) {
+        try {
+            Files.createDirectories(target.getParent());
+            Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+            Long rows = jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+                try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(tmp))) {
+                    return connection.unwrap(PGConnection.class).getCopyAPI()
+                            .copyOut("COPY " + partition + " TO STDOUT WITH (FORMAT csv, HEADER)", out);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return rows != null ? rows : 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot export partition " + partition, e);
+        }
+    }
+}
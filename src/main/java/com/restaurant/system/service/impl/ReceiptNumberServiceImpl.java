@@ -0,0 +1,257 @@
+package com.restaurant.system.service.impl;
+
+import com.restaurant.system.service.ReceiptNumberService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands out per-day receipt numbers (20261019-000042) from blocks reserved in receipt_counters.
+ * Blocks are reserved and given back only on the receipt-counter thread, over connections of its
+ * own outside the pool: a checkout never needs a second pooled connection, and one that runs out
+ * of numbers waits for the block without holding the allocator lock. The next block is fetched
+ * while the current one runs low, so checkouts rarely wait at all.
+ * Numbers of rolled back sales are handed out again first, which keeps a node's numbers
+ * gap-free within the day; only a crash or a block that cannot be given back leaves a gap.
+ * A reissued number goes to a later sale, so numbers are not in sale-time order; fiscal
+ * numbering asks for unique, gap-free numbers, and that is what is kept.
+ */
+@Slf4j
+@Service
+public class ReceiptNumberServiceImpl implements ReceiptNumberService {
+
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.BASIC_ISO_DATE;
+
+    // Creates the day's counter past its first block, or moves it past the next one; returns the block end
+    private static final String RESERVE_SQL =
+            "INSERT INTO receipt_counters (business_day, next_value) VALUES (?, ?) " +
+            "ON CONFLICT (business_day) DO UPDATE SET next_value = receipt_counters.next_value + ? " +
+            "RETURNING next_value";
+
+    // Only succeeds while no node has reserved past the block
+    private static final String GIVE_BACK_SQL =
+            "UPDATE receipt_counters SET next_value = ? WHERE business_day = ? AND next_value = ?";
+
+    private final JdbcTemplate counterJdbcTemplate;
+    private final TransactionTemplate counterTransaction;
+    private final Counter blocksReserved;
+
+    // The only thread that touches receipt_counters; tasks run in submission order
+    private final ExecutorService counterThread = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "receipt-counter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${receipts.time-zone:UTC}")
+    private String timeZone;
+
+    @Value("${receipts.block-size:100}")
+    private int blockSize;
+
+    // Guarded by this
+    private LocalDate day;
+    private long next;
+    private long end;
+    private CompletableFuture<Block> pending;
+    private final TreeSet<Long> returned = new TreeSet<>();
+
+    public ReceiptNumberServiceImpl(DataSourceProperties dataSourceProperties, MeterRegistry meterRegistry) {
+        // Unpooled: one short connection per block, opened by the receipt-counter thread only
+        DataSource counterDataSource = dataSourceProperties.initializeDataSourceBuilder()
+                .type(SimpleDriverDataSource.class)
+                .build();
+        this.counterJdbcTemplate = new JdbcTemplate(counterDataSource);
+        this.counterTransaction = new TransactionTemplate(new DataSourceTransactionManager(counterDataSource));
+
+        this.blocksReserved = Counter.builder("receipts.blocks.reserved")
+                .description("Blocks of receipt numbers reserved by this node")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String next() {
+        Receipt receipt = take(LocalDate.now(ZoneId.of(timeZone)));
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        reuse(receipt.day(), receipt.number());
+                    }
+                }
+            });
+        }
+        return receipt.day().format(DAY_FORMAT) + "-" + String.format("%06d", receipt.number());
+    }
+
+    @PreDestroy
+    public void close() {
+        synchronized (this) {
+            if (day != null) {
+                releaseUnused();
+            }
+        }
+        counterThread.shutdown();
+        try {
+            if (!counterThread.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.warn("Unused receipt numbers of {} were not given back before shutdown", day);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Receipt take(LocalDate today) {
+        boolean retried = false;
+        while (true) {
+            CompletableFuture<Block> block;
+            synchronized (this) {
+                // A checkout that started before midnight does not move the day back
+                if (day == null || today.isAfter(day)) {
+                    startDay(today);
+                }
+                Long reused = returned.pollFirst();
+                if (reused != null) {
+                    return new Receipt(day, reused);
+                }
+                if (next < end) {
+                    long number = next++;
+                    if (pending == null && end - next <= blockSize / 4) {
+                        pending = reserveAsync(day);
+                    }
+                    return new Receipt(day, number);
+                }
+                if (pending == null) {
+                    pending = reserveAsync(day);
+                }
+                block = pending;
+            }
+
+            // Outside the lock: the other checkouts keep running and can pick up rolled back numbers
+            Block reserved;
+            try {
+                reserved = block.join();
+            } catch (CompletionException e) {
+                synchronized (this) {
+                    if (pending == block) {
+                        pending = null;
+                    }
+                }
+                if (retried) {
+                    throw new IllegalStateException("Cannot reserve receipt numbers: " + e.getCause().getMessage(), e.getCause());
+                }
+                log.warn("Receipt number reservation failed, retrying: {}", e.getCause().getMessage());
+                retried = true;
+                continue;
+            }
+            synchronized (this) {
+                // Another checkout may have installed it already, or the day has changed meanwhile
+                if (pending == block) {
+                    pending = null;
+                    next = reserved.start();
+                    end = reserved.end();
+                }
+            }
+        }
+    }
+
+    private synchronized void reuse(LocalDate issuedOn, long number) {
+        if (issuedOn.equals(day)) {
+            returned.add(number);
+        } else {
+            log.warn("Receipt number {} of {} was rolled back after the day ended and stays unused", number, issuedOn);
+        }
+    }
+
+    // Called with the lock held
+    private void startDay(LocalDate today) {
+        if (day != null) {
+            releaseUnused();
+        }
+        day = today;
+        next = 0;
+        end = 0;
+        pending = null;
+        returned.clear();
+    }
+
+    // Called with the lock held; the give-back itself runs on the receipt-counter thread after
+    // any reservation still in flight
+    private void releaseUnused() {
+        LocalDate releasedDay = day;
+        long from = next;
+        long to = end;
+        CompletableFuture<Block> prefetched = pending;
+        List<Long> unused = List.copyOf(returned);
+        counterThread.execute(() -> {
+            try {
+                giveBackUnused(releasedDay, from, to, prefetched, unused);
+            } catch (RuntimeException e) {
+                log.warn("Cannot give back unused receipt numbers of {}: {}", releasedDay, e.getMessage());
+            }
+        });
+    }
+
+    // Newest block first: a give-back only works while it is the last block of the day
+    private void giveBackUnused(LocalDate releasedDay, long from, long to,
+                                CompletableFuture<Block> prefetched, List<Long> unused) {
+        boolean last = true;
+        Block block = prefetched != null && !prefetched.isCompletedExceptionally() ? prefetched.join() : null;
+        if (block != null) {
+            last = giveBack(releasedDay, block.start(), block.end());
+        }
+        if (from < to && !(last && giveBack(releasedDay, from, to))) {
+            log.info("Receipt numbers {}-{} of {} were reserved by this node and stay unused", from, to - 1, releasedDay);
+        }
+        if (!unused.isEmpty()) {
+            log.warn("Rolled back receipt numbers {} of {} stay unused", unused, releasedDay);
+        }
+    }
+
+    private CompletableFuture<Block> reserveAsync(LocalDate businessDay) {
+        return CompletableFuture.supplyAsync(() -> reserve(businessDay), counterThread);
+    }
+
+    private Block reserve(LocalDate businessDay) {
+        Long blockEnd = counterTransaction.execute(status -> counterJdbcTemplate.queryForObject(
+                RESERVE_SQL, Long.class, businessDay, 1L + blockSize, (long) blockSize));
+        blocksReserved.increment();
+        return new Block(blockEnd - blockSize, blockEnd);
+    }
+
+    private boolean giveBack(LocalDate businessDay, long from, long to) {
+        Integer updated = counterTransaction.execute(status ->
+                counterJdbcTemplate.update(GIVE_BACK_SQL, from, businessDay, to));
+        return updated != null && updated == 1;
+    }
+
+    private record Block(long start, long end) {
+    }
+
+    private record Receipt(LocalDate day, long number) {
+    }
+}
@@ -1,25 +1,30 @@
 package com.restaurant.system.service.impl;
 
 import com.restaurant.system.dto.ReservationDTO;
+import com.restaurant.system.dto.projection.ReservationRow;
 import com.restaurant.system.entity.Reservation;
 import com.restaurant.system.entity.RestaurantTable;
 import com.restaurant.system.entity.Client;
 import com.restaurant.system.entity.enums.ReservationStatus;
+import com.restaurant.system.event.DomainEventType;
 import com.restaurant.system.exception.ConflictException;
 import com.restaurant.system.exception.NotFoundException;
 import com.restaurant.system.repository.ReservationRepository;
 import com.restaurant.system.repository.RestaurantTableRepository;
 import com.restaurant.system.repository.ClientRepository;
 import com.restaurant.system.service.ReservationService;
+import com.restaurant.system.service.OutboxService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.time.OffsetDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -30,6 +35,7 @@ public class ReservationServiceImpl implements ReservationService {
     private final ReservationRepository reservationRepository;
     private final RestaurantTableRepository tableRepository;
     private final ClientRepository clientRepository;
+    private final OutboxService outboxService;
 
     @Override
     public ReservationDTO createReservation(ReservationDTO reservationDTO) {
@@ -61,7 +67,9 @@ public class ReservationServiceImpl implements ReservationService {
         reservation.setStatus(ReservationStatus.ACTIVE);
         reservation.setNotes(reservationDTO.getNotes());
 
-        return toDTO(reservationRepository.save(reservation));
+        ReservationDTO created = toDTO(reservationRepository.save(reservation));
+        outboxService.publish(DomainEventType.RESERVATION_CREATED, created.getId(), created);
+        return created;
     }
 
     @Override
@@ -77,7 +85,7 @@ public class ReservationServiceImpl implements ReservationService {
                 ? Sort.Direction.DESC
                 : Sort.Direction.ASC;
         Pageable pageable = PageRequest.of(page, size, Sort.by(sortDirection, sortBy));
-        return reservationRepository.findAll(pageable).map(this::toDTO);
+        return reservationRepository.findAllRows(pageable).map(this::toDTO);
     }
 
     @Override
@@ -104,6 +112,9 @@ public class ReservationServiceImpl implements ReservationService {
     public ReservationDTO updateReservation(Long id, ReservationDTO reservationDTO) {
         Reservation reservation = reservationRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("Reservations not found"));
+        if (reservationDTO.getVersion() != null && !reservationDTO.getVersion().equals(reservation.getVersion())) {
+            throw new ObjectOptimisticLockingFailureException(Reservation.class, id);
+        }
 
         if (reservationDTO.getReservationTime() != null) {
             reservation.setReservationTime(reservationDTO.getReservationTime());
@@ -118,7 +129,10 @@ public class ReservationServiceImpl implements ReservationService {
             reservation.setNotes(reservationDTO.getNotes());
         }
 
-        return toDTO(reservationRepository.save(reservation));
+        // Flushed first, so the response carries the version the next update has to send
+        ReservationDTO updated = toDTO(reservationRepository.saveAndFlush(reservation));
+        outboxService.publish(DomainEventType.RESERVATION_UPDATED, id, updated);
+        return updated;
     }
 
     @Override
@@ -133,6 +147,7 @@ public class ReservationServiceImpl implements ReservationService {
         }
 
         reservationRepository.deleteById(id);
+        outboxService.publish(DomainEventType.RESERVATION_DELETED, id, Map.of("id", id));
     }
 
 
@@ -164,7 +179,7 @@ public class ReservationServiceImpl implements ReservationService {
                 .orElseThrow(() -> new NotFoundException("Reservation not found"));
 
         reservation.setStatus(ReservationStatus.CANCELLED);
-        reservationRepository.save(reservation);
+        outboxService.publish(DomainEventType.RESERVATION_CANCELLED, id, toDTO(reservationRepository.saveAndFlush(reservation)));
     }
 
     private ReservationDTO toDTO(Reservation reservation) {
@@ -173,12 +188,29 @@ public class ReservationServiceImpl implements ReservationService {
                 .reservationTime(reservation.getReservationTime())
                 .durationMinutes(reservation.getDurationMinutes())
                 .partySize(reservation.getPartySize())
-                .clientId(reservation.getClient().getId())
-                .tableId(reservation.getTable().getId())
-                .tableNumber(reservation.getTable().getTableNumber())
+                .clientId(reservation.getClient() != null ? reservation.getClient().getId() : null)
+                .tableId(reservation.getTable() != null ? reservation.getTable().getId() : null)
+                .tableNumber(reservation.getTable() != null ? reservation.getTable().getTableNumber() : null)
                 .status(reservation.getStatus())
                 .notes(reservation.getNotes())
                 .createdAt(reservation.getCreatedAt())
+                .version(reservation.getVersion())
+                .build();
+    }
+
+    private ReservationDTO toDTO(ReservationRow row) {
+        return ReservationDTO.builder()
+                .id(row.id())
+                .reservationTime(row.reservationTime())
+                .durationMinutes(row.durationMinutes())
+                .partySize(row.partySize())
+                .clientId(row.clientId())
+                .tableId(row.tableId())
+                .tableNumber(row.tableNumber())
+                .status(row.status())
+                .notes(row.notes())
+                .createdAt(row.createdAt())
+                .version(row.version())
                 .build();
     }
 }
@@ -1,12 +1,16 @@
 package com.restaurant.system.service.impl;
 
 import com.restaurant.system.dto.SaleDTO;
+import com.restaurant.system.dto.projection.SaleRow;
 import com.restaurant.system.entity.Sale;
 import com.restaurant.system.entity.Order;
+import com.restaurant.system.event.DomainEventType;
 import com.restaurant.system.exception.NotFoundException;
 import com.restaurant.system.repository.SaleRepository;
 import com.restaurant.system.repository.OrderRepository;
 import com.restaurant.system.service.SaleService;
+import com.restaurant.system.service.OutboxService;
+import com.restaurant.system.service.ReceiptNumberService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -15,6 +19,7 @@ import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.time.OffsetDateTime;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -24,6 +29,8 @@ public class SaleServiceImpl implements SaleService {
 
     private final SaleRepository saleRepository;
     private final OrderRepository orderRepository;
+    private final OutboxService outboxService;
+    private final ReceiptNumberService receiptNumberService;
 
     @Override
     public SaleDTO createSale(SaleDTO saleDTO) {
@@ -34,9 +41,12 @@ public class SaleServiceImpl implements SaleService {
         sale.setOrder(order);
         sale.setTotal(saleDTO.getTotal());
         sale.setPaymentMethod(saleDTO.getPaymentMethod());
-        sale.setReceiptNumber(saleDTO.getReceiptNumber());
+        // Fiscal numbering is server-side; a number sent by the client is ignored
+        sale.setReceiptNumber(receiptNumberService.next());
 
-        return toDTO(saleRepository.save(sale));
+        SaleDTO created = toDTO(saleRepository.save(sale));
+        outboxService.publish(DomainEventType.SALE_CREATED, created.getId(), created);
+        return created;
     }
 
     @Override
@@ -52,7 +62,7 @@ public class SaleServiceImpl implements SaleService {
                 ? Sort.Direction.DESC
                 : Sort.Direction.ASC;
         Pageable pageable = PageRequest.of(page, size, Sort.by(sortDirection, sortBy));
-        return saleRepository.findAll(pageable).map(this::toDTO);
+        return saleRepository.findAllRows(pageable).map(this::toDTO);
     }
 
     @Override
@@ -78,6 +88,7 @@ public class SaleServiceImpl implements SaleService {
             throw new NotFoundException("Sale not found");
         }
         saleRepository.deleteById(id);
+        outboxService.publish(DomainEventType.SALE_DELETED, id, Map.of("id", id));
     }
 
     private SaleDTO toDTO(Sale sale) {
@@ -91,4 +102,16 @@ public class SaleServiceImpl implements SaleService {
                 .processedByUserId(sale.getProcessedBy() != null ? sale.getProcessedBy().getId() : null)
                 .build();
     }
+
+    private SaleDTO toDTO(SaleRow row) {
+        return SaleDTO.builder()
+                .id(row.id())
+                .saleTime(row.saleTime())
+                .total(row.total())
+                .paymentMethod(row.paymentMethod())
+                .orderId(row.orderId())
+                .receiptNumber(row.receiptNumber())
+                .processedByUserId(row.processedByUserId())
+                .build();
+    }
 }
@@ -0,0 +1,238 @@
+package com.restaurant.system.service.impl;
+
+import com.restaurant.system.dto.statistics.HeatmapCellDTO;
+import com.restaurant.system.dto.statistics.HeatmapDTO;
+import com.restaurant.system.exception.BadRequestException;
+import com.restaurant.system.exception.ConflictException;
+import com.restaurant.system.service.SalesHeatmapService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Maintains hourly_activity, sales and reservation covers per local day and hour. The rollup is
+ * rebuilt a calendar month per transaction; every month takes its own advisory lock, so runs on
+ * several nodes never rebuild the same days at once while a backfill still works on many months
+ * in parallel. The heatmap itself only sums whole weeks of rollup rows.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SalesHeatmapServiceImpl implements SalesHeatmapService {
+
+    private static final String JOB_NAME = "hourly-activity";
+
+    private static final int MAX_WEEKS = 104;
+
+    // Past, not cancelled reservations count as covers in the hour they started
+    private static final String ROLLUP_SQL =
+            "INSERT INTO hourly_activity (day, hour, sales_count, revenue, reservations_count, covers) " +
+            "SELECT day, hour, SUM(sales_count), SUM(revenue), SUM(reservations_count), SUM(covers) FROM (" +
+            "  SELECT (s.sale_time AT TIME ZONE ?)::date AS day, extract(hour FROM s.sale_time AT TIME ZONE ?) AS hour, " +
+            "         COUNT(*) AS sales_count, SUM(s.total) AS revenue, 0 AS reservations_count, 0 AS covers " +
+            "  FROM sales s WHERE s.sale_time >= ? AND s.sale_time < ? GROUP BY 1, 2 " +
+            "  UNION ALL " +
+            "  SELECT (r.reservation_time AT TIME ZONE ?)::date, extract(hour FROM r.reservation_time AT TIME ZONE ?), " +
+            "         0, 0, COUNT(*), SUM(r.party_size) " +
+            "  FROM reservations r WHERE r.status <> 'CANCELLED' " +
+            "    AND r.reservation_time >= ? AND r.reservation_time < LEAST(?, now()) GROUP BY 1, 2" +
+            ") a GROUP BY 1, 2";
+
+    // Always the full 7 x 24 grid, empty hours included
+    private static final String HEATMAP_SQL =
+            "SELECT g.dow, g.hour, COALESCE(a.sales_count, 0), COALESCE(a.revenue, 0), " +
+            "       COALESCE(a.reservations, 0), COALESCE(a.covers, 0) " +
+            "FROM (SELECT d AS dow, h AS hour FROM generate_series(1, 7) d CROSS JOIN generate_series(0, 23) h) g " +
+            "LEFT JOIN (SELECT extract(isodow FROM day)::int AS dow, hour, SUM(sales_count) AS sales_count, " +
+            "                  SUM(revenue) AS revenue, SUM(reservations_count) AS reservations, SUM(covers) AS covers " +
+            "           FROM hourly_activity WHERE day >= ? AND day < ? GROUP BY 1, 2) a " +
+            "  ON a.dow = g.dow AND a.hour = g.hour " +
+            "ORDER BY g.dow, g.hour";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final AtomicBoolean backfillRunning = new AtomicBoolean();
+
+    @Value("${statistics.heatmap.time-zone:UTC}")
+    private String timeZone;
+
+    @Value("${statistics.heatmap.recompute-days:2}")
+    private int recomputeDays;
+
+    @Value("${statistics.heatmap.backfill-parallelism:4}")
+    private int backfillParallelism;
+
+    // Whole weeks up to yesterday, so every weekday is counted exactly `weeks` times
+    @Override
+    public HeatmapDTO getHeatmap(int weeks) {
+        if (weeks < 1 || weeks > MAX_WEEKS) {
+            throw new BadRequestException("weeks must be between 1 and " + MAX_WEEKS);
+        }
+        LocalDate to = LocalDate.now(zone());
+        LocalDate from = to.minusWeeks(weeks);
+        BigDecimal divisor = BigDecimal.valueOf(weeks);
+        List<HeatmapCellDTO> cells = jdbcTemplate.query(HEATMAP_SQL,
+                (rs, rowNum) -> toCell(rs, divisor), from, to);
+        return HeatmapDTO.builder()
+                .from(from)
+                .to(to.minusDays(1))
+                .weeks(weeks)
+                .timeZone(timeZone)
+                .cells(cells)
+                .build();
+    }
+
+    // Rebuilds the days from the watermark on; the recompute overlap picks up sales committed
+    // late and reservations cancelled after their time. Without a watermark the history is backfilled.
+    @Override
+    @Scheduled(cron = "${statistics.heatmap.refresh-cron:0 */10 * * * *}")
+    public int refresh() {
+        if (backfillRunning.get()) {
+            return 0;
+        }
+        OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+        OffsetDateTime watermark = jdbcTemplate.query(
+                "SELECT processed_until FROM job_watermarks WHERE job_name = ?",
+                rs -> rs.next() ? rs.getObject(1, OffsetDateTime.class) : null, JOB_NAME);
+        if (watermark == null) {
+            try {
+                return backfill();
+            } catch (ConflictException e) {
+                return 0;
+            }
+        }
+
+        int rows = 0;
+        LocalDate from = watermark.atZoneSameInstant(zone()).toLocalDate().minusDays(recomputeDays);
+        for (LocalDate[] chunk : monthChunks(from, LocalDate.now(zone()).plusDays(1))) {
+            rows += rebuild(chunk[0], chunk[1]);
+            OffsetDateTime processed = startOf(chunk[1]);
+            saveWatermark(processed.isAfter(now) ? now : processed);
+        }
+        log.debug("Hourly activity refreshed from {} ({} rows)", from, rows);
+        return rows;
+    }
+
+    // Months are independent, so they are rebuilt in parallel, each in its own transaction
+    @Override
+    public int backfill() {
+        if (!backfillRunning.compareAndSet(false, true)) {
+            throw new ConflictException("Heatmap backfill is already running");
+        }
+        try {
+            OffsetDateTime startedAt = OffsetDateTime.now(ZoneOffset.UTC);
+            OffsetDateTime first = jdbcTemplate.queryForObject(
+                    "SELECT LEAST((SELECT min(sale_time) FROM sales), (SELECT min(reservation_time) FROM reservations))",
+                    OffsetDateTime.class);
+            if (first == null) {
+                saveWatermark(startedAt);
+                return 0;
+            }
+
+            // Only future reservations yet: there is still today to build, and at least one chunk
+            LocalDate today = LocalDate.now(zone());
+            LocalDate from = first.atZoneSameInstant(zone()).toLocalDate();
+            List<LocalDate[]> chunks = monthChunks(from.isAfter(today) ? today : from, today.plusDays(1));
+            ExecutorService executor = Executors.newFixedThreadPool(Math.min(backfillParallelism, chunks.size()));
+            int rows = 0;
+            try {
+                List<CompletableFuture<Integer>> results = chunks.stream()
+                        .map(chunk -> CompletableFuture.supplyAsync(() -> rebuild(chunk[0], chunk[1]), executor))
+                        .toList();
+                for (CompletableFuture<Integer> result : results) {
+                    rows += result.join();
+                }
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            } finally {
+                executor.shutdownNow();
+            }
+            saveWatermark(startedAt);
+            log.info("Hourly activity backfilled from {} in {} chunks ({} rows)", first, chunks.size(), rows);
+            return rows;
+        } finally {
+            backfillRunning.set(false);
+        }
+    }
+
+    private int rebuild(LocalDate from, LocalDate until) {
+        String zoneId = zone().getId();
+        OffsetDateTime start = startOf(from);
+        OffsetDateTime end = startOf(until);
+        Integer rows = transactionTemplate.execute(status -> {
+            jdbcTemplate.query("SELECT pg_advisory_xact_lock(hashtext(?), ?)", rs -> { },
+                    JOB_NAME, from.getYear() * 100 + from.getMonthValue());
+            jdbcTemplate.update("DELETE FROM hourly_activity WHERE day >= ? AND day < ?", from, until);
+            return jdbcTemplate.update(ROLLUP_SQL, zoneId, zoneId, start, end, zoneId, zoneId, start, end);
+        });
+        return rows != null ? rows : 0;
+    }
+
+    // [from, until) cut at local month boundaries, the same months the sales partitions cover
+    private static List<LocalDate[]> monthChunks(LocalDate from, LocalDate until) {
+        List<LocalDate[]> chunks = new ArrayList<>();
+        LocalDate day = from;
+        while (day.isBefore(until)) {
+            LocalDate next = day.withDayOfMonth(1).plusMonths(1);
+            if (next.isAfter(until)) {
+                next = until;
+            }
+            chunks.add(new LocalDate[] {day, next});
+            day = next;
+        }
+        return chunks;
+    }
+
+    private HeatmapCellDTO toCell(ResultSet rs, BigDecimal weeks) throws SQLException {
+        long salesCount = rs.getLong(3);
+        BigDecimal revenue = rs.getBigDecimal(4);
+        long covers = rs.getLong(6);
+        return HeatmapCellDTO.builder()
+                .dayOfWeek(rs.getInt(1))
+                .hour(rs.getInt(2))
+                .salesCount(salesCount)
+                .revenue(revenue)
+                .reservations(rs.getLong(5))
+                .covers(covers)
+                .avgSales(BigDecimal.valueOf(salesCount).divide(weeks, 2, RoundingMode.HALF_UP))
+                .avgRevenue(revenue.divide(weeks, 2, RoundingMode.HALF_UP))
+                .avgCovers(BigDecimal.valueOf(covers).divide(weeks, 2, RoundingMode.HALF_UP))
+                .build();
+    }
+
+    private void saveWatermark(OffsetDateTime processedUntil) {
+        jdbcTemplate.update(
+                "INSERT INTO job_watermarks (job_name, processed_until) VALUES (?, ?) " +
+                "ON CONFLICT (job_name) DO UPDATE SET processed_until = EXCLUDED.processed_until, updated_at = now()",
+                JOB_NAME, processedUntil);
+    }
+
+    private OffsetDateTime startOf(LocalDate day) {
+        return day.atStartOfDay(zone()).toOffsetDateTime();
+    }
+
+    private ZoneId zone() {
+        return ZoneId.of(timeZone);
+    }
+}
@@ -1,9 +1,12 @@
 package com.restaurant.system.service.impl;
 
+import com.restaurant.system.dto.DishCostDTO;
 import com.restaurant.system.dto.statistics.DashboardStatsDTO;
 import com.restaurant.system.entity.enums.OrderStatus;
 import com.restaurant.system.entity.enums.ReservationStatus;
+import com.restaurant.system.exception.BadRequestException;
 import com.restaurant.system.repository.*;
+import com.restaurant.system.service.DishCostService;
 import com.restaurant.system.service.StatisticsService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
@@ -12,19 +15,30 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
 @Service
 @RequiredArgsConstructor
 @Transactional(readOnly = true)
 public class StatisticsServiceImpl implements StatisticsService {
 
+    private static final Map<String, Function<DishCostDTO, BigDecimal>> MARGIN_SORT_KEYS = Map.of(
+            "cost", DishCostDTO::getCost,
+            "price", DishCostDTO::getPrice,
+            "margin", DishCostDTO::getMargin,
+            "marginPercent", DishCostDTO::getMarginPercent
+    );
+
     private final OrderRepository orderRepository;
     private final SaleRepository saleRepository;
     private final ReservationRepository reservationRepository;
     private final ClientRepository clientRepository;
     private final IngredientRepository ingredientRepository;
+    private final DishCostService dishCostService;
 
     @Override
     public DashboardStatsDTO getDashboardStats() {
@@ -81,4 +95,26 @@ public class StatisticsServiceImpl implements StatisticsService {
 
         return stats;
     }
+
+    // Served from the in-memory cost cache, no per-dish fn_calculate_dish_cost calls
+    @Override
+    public List<DishCostDTO> getDishMargins(String category, String sortBy, String direction, int limit) {
+        Function<DishCostDTO, BigDecimal> key = MARGIN_SORT_KEYS.get(sortBy);
+        if (key == null) {
+            throw new BadRequestException("sortBy must be one of " + MARGIN_SORT_KEYS.keySet());
+        }
+        if (limit < 1 || limit > 1000) {
+            throw new BadRequestException("limit must be between 1 and 1000");
+        }
+
+        Comparator<DishCostDTO> order = Comparator.comparing(key, Comparator.nullsLast(Comparator.naturalOrder()));
+        if ("desc".equalsIgnoreCase(direction)) {
+            order = Comparator.comparing(key, Comparator.nullsLast(Comparator.reverseOrder()));
+        }
+        return dishCostService.getAllDishCosts().stream()
+                .filter(cost -> category == null || category.equalsIgnoreCase(cost.getCategory()))
+                .sorted(order.thenComparing(DishCostDTO::getDishId))
+                .limit(limit)
+                .toList();
+    }
 }
@@ -0,0 +1,305 @@
+package com.restaurant.system.service.impl;
+
+import com.restaurant.system.dto.StockMovementDTO;
+import com.restaurant.system.dto.StocktakeResultDTO;
+import com.restaurant.system.dto.StocktakeVarianceDTO;
+import com.restaurant.system.entity.StockMovement;
+import com.restaurant.system.entity.enums.StockMovementType;
+import com.restaurant.system.exception.BadRequestException;
+import com.restaurant.system.exception.NotFoundException;
+import com.restaurant.system.repository.IngredientRepository;
+import com.restaurant.system.repository.StockMovementRepository;
+import com.restaurant.system.service.StockLedgerService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Stock is never updated in place: every change is appended to stock_movements, and the
+ * current quantity is the latest stock_snapshots row plus the movements after it.
+ * Supplies append without locking; deductions serialize per ingredient on an advisory lock
+ * so that the non-negative check cannot be passed twice.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StockLedgerServiceImpl implements StockLedgerService {
+
+    // Latest snapshot + tail per ingredient, for the ingredients whose tail is long or old enough
+    private static final String COMPACT_SQL =
+            "WITH tail AS (" +
+            "  SELECT i.id AS ingredient_id, COALESCE(s.quantity, 0) + t.total AS quantity, t.last_id " +
+            "  FROM ingredients i " +
+            "  LEFT JOIN LATERAL (SELECT quantity, last_movement_id FROM stock_snapshots ss " +
+            "                     WHERE ss.ingredient_id = i.id " +
+            "                     ORDER BY last_movement_id DESC LIMIT 1) s ON true " +
+            "  JOIN LATERAL (SELECT SUM(m.quantity) AS total, max(m.id) AS last_id, " +
+            "                       count(*) AS movements, min(m.created_at) AS oldest " +
+            "                FROM stock_movements m " +
+            "                WHERE m.ingredient_id = i.id AND m.id > COALESCE(s.last_movement_id, 0)) t ON true " +
+            "  WHERE t.movements >= ? OR t.oldest < now() - make_interval(mins => ?)" +
+            "), snap AS (" +
+            "  INSERT INTO stock_snapshots (ingredient_id, last_movement_id, quantity) " +
+            "  SELECT ingredient_id, last_id, quantity FROM tail " +
+            "  RETURNING ingredient_id, quantity" +
+            ") " +
+            "UPDATE ingredients i SET stock_quantity = snap.quantity FROM snap WHERE i.id = snap.ingredient_id";
+
+    // Past the retention window only the last snapshot of each UTC day is kept
+    private static final String THIN_SNAPSHOTS_SQL =
+            "DELETE FROM stock_snapshots s " +
+            "WHERE s.taken_at < now() - make_interval(days => ?) " +
+            "  AND EXISTS (SELECT 1 FROM stock_snapshots n " +
+            "              WHERE n.ingredient_id = s.ingredient_id " +
+            "                AND n.last_movement_id > s.last_movement_id " +
+            "                AND (n.taken_at AT TIME ZONE 'UTC')::date = (s.taken_at AT TIME ZONE 'UTC')::date)";
+
+    // Counted ingredients are locked first (ascending id, like order completion), so the stock
+    // read here is the one the adjustments land on. One ADJUSTMENT per ingredient that differs.
+    // Above the lock threshold the whole ledger is locked instead (fn_lock_stock_ledger).
+    private static final String STOCKTAKE_LOCK_SQL =
+            "SELECT fn_lock_ingredient_stock(id) FROM (SELECT unnest(?::bigint[]) AS id ORDER BY 1) ids";
+
+    private static final String STOCKTAKE_SQL =
+            "WITH counted AS (" +
+            "  SELECT * FROM unnest(?::bigint[], ?::numeric[]) AS c(ingredient_id, counted_quantity)" +
+            "), variance AS (" +
+            "  SELECT c.ingredient_id, i.name, i.unit, i.cost_per_unit, s.stock_quantity, c.counted_quantity, " +
+            "         c.counted_quantity - s.stock_quantity AS variance " +
+            "  FROM counted c " +
+            "  JOIN ingredients i ON i.id = c.ingredient_id " +
+            "  JOIN v_ingredient_stock s ON s.ingredient_id = c.ingredient_id" +
+            "), adjustments AS (" +
+            "  INSERT INTO stock_movements (ingredient_id, movement_type, quantity, note) " +
+            "  SELECT ingredient_id, 'ADJUSTMENT', variance, ? FROM variance WHERE variance <> 0 " +
+            "  ORDER BY ingredient_id" +
+            ") " +
+            "SELECT ingredient_id, name, unit, stock_quantity, counted_quantity, variance, " +
+            "       round(variance * COALESCE(cost_per_unit, 0), 2), now() " +
+            "FROM variance ORDER BY ingredient_id";
+
+    // Snapshots that no longer match the ledger up to their last movement
+    private static final String DROP_BROKEN_SNAPSHOTS_SQL =
+            "DELETE FROM stock_snapshots s " +
+            "WHERE s.ingredient_id = ANY(?::bigint[]) " +
+            "  AND s.quantity <> (SELECT COALESCE(SUM(m.quantity), 0) FROM stock_movements m " +
+            "                     WHERE m.ingredient_id = s.ingredient_id AND m.id <= s.last_movement_id)";
+
+    // A fresh snapshot of the whole ledger; ingredients without movements are back at zero
+    private static final String RESNAPSHOT_SQL =
+            "WITH ledger AS (" +
+            "  SELECT ingredient_id, max(id) AS last_id, SUM(quantity) AS quantity FROM stock_movements " +
+            "  WHERE ingredient_id = ANY(?::bigint[]) GROUP BY ingredient_id" +
+            "), snap AS (" +
+            "  INSERT INTO stock_snapshots (ingredient_id, last_movement_id, quantity) " +
+            "  SELECT ingredient_id, last_id, quantity FROM ledger " +
+            "  ON CONFLICT (ingredient_id, last_movement_id) DO NOTHING" +
+            ") " +
+            "UPDATE ingredients i SET stock_quantity = COALESCE(l.quantity, 0) " +
+            "FROM unnest(?::bigint[]) AS ids(id) LEFT JOIN ledger l ON l.ingredient_id = ids.id " +
+            "WHERE i.id = ids.id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final StockMovementRepository stockMovementRepository;
+    private final IngredientRepository ingredientRepository;
+
+    @Value("${stock-ledger.compaction.min-tail:100}")
+    private int minTail;
+
+    @Value("${stock-ledger.compaction.max-tail-age-minutes:60}")
+    private int maxTailAgeMinutes;
+
+    @Value("${stock-ledger.compaction.snapshot-retention-days:30}")
+    private int snapshotRetentionDays;
+
+    @Value("${stock-ledger.compaction.lock-timeout-ms:2000}")
+    private int lockTimeoutMs;
+
+    @Value("${stock-ledger.stocktake.ledger-lock-threshold:64}")
+    private int ledgerLockThreshold;
+
+    @Override
+    @Transactional
+    public StockMovementDTO record(Long ingredientId, StockMovementType type, BigDecimal quantity, String note) {
+        if (quantity == null || quantity.signum() == 0) {
+            throw new BadRequestException("Quantity must not be zero");
+        }
+        if (quantity.signum() < 0) {
+            // Separate statements: the stock has to be read after the lock is granted
+            jdbcTemplate.query("SELECT fn_lock_ingredient_stock(?)", rs -> { }, ingredientId);
+            BigDecimal current = jdbcTemplate.queryForObject(
+                    "SELECT fn_ingredient_stock(?)", BigDecimal.class, ingredientId);
+            if (current.add(quantity).signum() < 0) {
+                throw new BadRequestException("Not enough ingredient in stock");
+            }
+        }
+
+        return jdbcTemplate.queryForObject(
+                "INSERT INTO stock_movements (ingredient_id, movement_type, quantity, note) " +
+                "VALUES (?, ?::stock_movement_type, ?, ?) RETURNING id, created_at",
+                (rs, rowNum) -> StockMovementDTO.builder()
+                        .id(rs.getLong(1))
+                        .ingredientId(ingredientId)
+                        .movementType(type)
+                        .quantity(quantity)
+                        .note(note)
+                        .createdAt(rs.getObject(2, OffsetDateTime.class))
+                        .build(),
+                ingredientId, type.name(), quantity, note);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<StockMovementDTO> getMovements(Long ingredientId, OffsetDateTime from, OffsetDateTime to,
+                                               int page, int size) {
+        if (!ingredientRepository.existsById(ingredientId)) {
+            throw new NotFoundException("Ingredient not found");
+        }
+        if (from.isAfter(to)) {
+            throw new BadRequestException("'from' must not be after 'to'");
+        }
+        return stockMovementRepository.findByIngredientIdAndCreatedAtBetween(ingredientId, from, to,
+                        PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "id")))
+                .map(this::toDTO);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public BigDecimal getStock(Long ingredientId, OffsetDateTime at) {
+        List<BigDecimal> stock = at == null
+                ? jdbcTemplate.queryForList(
+                        "SELECT fn_ingredient_stock(id) FROM ingredients WHERE id = ?", BigDecimal.class, ingredientId)
+                : jdbcTemplate.queryForList(
+                        "SELECT fn_ingredient_stock_at(id, ?) FROM ingredients WHERE id = ?", BigDecimal.class,
+                        at, ingredientId);
+        if (stock.isEmpty()) {
+            throw new NotFoundException("Ingredient not found");
+        }
+        return stock.get(0);
+    }
+
+    @Override
+    @Transactional
+    public StocktakeResultDTO stocktake(Map<Long, BigDecimal> counts, String note) {
+        Map<Long, BigDecimal> sorted = new TreeMap<>(counts);
+        Long[] ids = sorted.keySet().toArray(new Long[0]);
+        BigDecimal[] quantities = sorted.values().toArray(new BigDecimal[0]);
+
+        if (ids.length > ledgerLockThreshold) {
+            jdbcTemplate.query("SELECT fn_lock_stock_ledger()", rs -> { });
+        } else {
+            jdbcTemplate.query(STOCKTAKE_LOCK_SQL,
+                    ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids)),
+                    rs -> { });
+        }
+
+        OffsetDateTime[] countedAt = new OffsetDateTime[1];
+        List<StocktakeVarianceDTO> variances = jdbcTemplate.query(STOCKTAKE_SQL,
+                ps -> {
+                    ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids));
+                    ps.setArray(2, ps.getConnection().createArrayOf("numeric", quantities));
+                    ps.setString(3, note);
+                },
+                (rs, rowNum) -> {
+                    countedAt[0] = rs.getObject(8, OffsetDateTime.class);
+                    return StocktakeVarianceDTO.builder()
+                            .ingredientId(rs.getLong(1))
+                            .ingredientName(rs.getString(2))
+                            .unit(rs.getString(3))
+                            .systemQuantity(rs.getBigDecimal(4))
+                            .countedQuantity(rs.getBigDecimal(5))
+                            .variance(rs.getBigDecimal(6))
+                            .varianceCost(rs.getBigDecimal(7))
+                            .build();
+                });
+
+        // Unknown ids drop out of the join; the appended movements roll back with the exception
+        if (variances.size() < ids.length) {
+            variances.forEach(variance -> sorted.remove(variance.getIngredientId()));
+            throw new NotFoundException("Ingredients not found: " + sorted.keySet());
+        }
+
+        return StocktakeResultDTO.builder()
+                .countedAt(countedAt[0])
+                .counted(variances.size())
+                .adjusted((int) variances.stream().filter(v -> v.getVariance().signum() != 0).count())
+                .totalVarianceCost(variances.stream()
+                        .map(StocktakeVarianceDTO::getVarianceCost)
+                        .reduce(BigDecimal.ZERO, BigDecimal::add))
+                .variances(variances)
+                .build();
+    }
+
+    // The SHARE lock waits for in-flight appends and holds new ones back for the few statements
+    // below, so no movement below a snapshot's last_movement_id can commit after the snapshot.
+    // lock_timeout keeps the job from queueing writers behind it under load; it retries next run.
+    @Override
+    @Scheduled(fixedDelayString = "${stock-ledger.compaction.interval-ms:300000}")
+    public int compact() {
+        try {
+            Integer snapshots = transactionTemplate.execute(status -> {
+                jdbcTemplate.query("SELECT set_config('lock_timeout', ?, true)", rs -> { }, lockTimeoutMs + "ms");
+                jdbcTemplate.execute("LOCK TABLE stock_movements IN SHARE MODE");
+                int count = jdbcTemplate.update(COMPACT_SQL, minTail, maxTailAgeMinutes);
+                int thinned = jdbcTemplate.update(THIN_SNAPSHOTS_SQL, snapshotRetentionDays);
+                log.debug("Stock ledger compacted: {} snapshots taken, {} old snapshots removed", count, thinned);
+                return count;
+            });
+            return snapshots != null ? snapshots : 0;
+        } catch (PessimisticLockingFailureException e) {
+            log.warn("Stock ledger compaction skipped, ledger is busy: {}", e.getMessage());
+            return 0;
+        }
+    }
+
+    // Rebuilds the snapshots of drifted ingredients from the ledger, under the same SHARE lock
+    // as compaction; a busy ledger fails with PessimisticLockingFailureException
+    @Override
+    @Transactional
+    public int resnapshot(Collection<Long> ingredientIds) {
+        if (ingredientIds.isEmpty()) {
+            return 0;
+        }
+        Long[] ids = ingredientIds.toArray(new Long[0]);
+        jdbcTemplate.query("SELECT set_config('lock_timeout', ?, true)", rs -> { }, lockTimeoutMs + "ms");
+        jdbcTemplate.execute("LOCK TABLE stock_movements IN SHARE MODE");
+        int dropped = jdbcTemplate.update(DROP_BROKEN_SNAPSHOTS_SQL,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids)));
+        int updated = jdbcTemplate.update(RESNAPSHOT_SQL, ps -> {
+            ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids));
+            ps.setArray(2, ps.getConnection().createArrayOf("bigint", ids));
+        });
+        log.info("Re-snapshotted stock of {} ingredients, {} broken snapshots removed", updated, dropped);
+        return updated;
+    }
+
+    private StockMovementDTO toDTO(StockMovement movement) {
+        return StockMovementDTO.builder()
+                .id(movement.getId())
+                .ingredientId(movement.getIngredientId())
+                .movementType(movement.getMovementType())
+                .quantity(movement.getQuantity())
+                .supplyId(movement.getSupplyId())
+                .orderId(movement.getOrderId())
+                .note(movement.getNote())
+                .createdAt(movement.getCreatedAt())
+                .build();
+    }
+}
@@ -0,0 +1,466 @@
+package com.restaurant.system.service.impl;
+
+import com.restaurant.system.dto.DishAvailabilityDTO;
+import com.restaurant.system.event.CacheInvalidationEvent;
+import com.restaurant.system.event.CacheRegion;
+import com.restaurant.system.exception.ConflictException;
+import com.restaurant.system.service.CacheInvalidationService;
+import com.restaurant.system.service.StockProjectionService;
+import com.restaurant.system.util.TransactionHooks;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * In-memory projection of ingredient stock over the recipe graph (dish_ingredients).
+ * Stock reserved by open orders is subtracted, so the projection answers how many portions
+ * of a dish can still be prepared and rejects order items that could not be cooked,
+ * long before trg_orders_after_update deducts stock on completion.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StockProjectionServiceImpl implements StockProjectionService {
+
+    // Ingredients already promised to PENDING / IN_PROGRESS orders
+    private static final String OPEN_RESERVATIONS_QUERY =
+            "SELECT di.ingredient_id, SUM(oi.quantity * di.quantity) " +
+            "FROM order_items oi " +
+            "JOIN orders o ON o.id = oi.order_id " +
+            "JOIN dish_ingredients di ON di.dish_id = oi.dish_id " +
+            "WHERE o.status IN ('PENDING', 'IN_PROGRESS') " +
+            "GROUP BY di.ingredient_id";
+
+    private static final String OPEN_RESERVATIONS_OF_INGREDIENTS_QUERY =
+            "SELECT di.ingredient_id, SUM(oi.quantity * di.quantity) " +
+            "FROM order_items oi " +
+            "JOIN orders o ON o.id = oi.order_id " +
+            "JOIN dish_ingredients di ON di.dish_id = oi.dish_id " +
+            "WHERE o.status IN ('PENDING', 'IN_PROGRESS') AND di.ingredient_id = ANY(?) " +
+            "GROUP BY di.ingredient_id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final CacheInvalidationService cacheInvalidationService;
+
+    @Value("${stock-projection.auto-flag-dishes:true}")
+    private boolean autoFlagDishes;
+
+    // Guarded by this
+    private Map<Long, BigDecimal> stock = new HashMap<>();
+    private Map<Long, BigDecimal> reserved = new HashMap<>();
+    // Part of reserved whose transactions have not finished yet, so no other node can see it
+    private final Map<Long, BigDecimal> uncommitted = new HashMap<>();
+    private Map<Long, Map<Long, BigDecimal>> recipes = new HashMap<>();
+    private Map<Long, Set<Long>> dishesByIngredient = new HashMap<>();
+    private Map<Long, String> dishNames = new HashMap<>();
+    private Map<Long, String> ingredientNames = new HashMap<>();
+    private final Map<Long, Portions> portions = new HashMap<>();
+
+    // Serialises rebuilds, so callers racing on a cold projection wait for one rebuild instead of each running their own
+    private final Object rebuildLock = new Object();
+    private volatile boolean loaded;
+
+    @Override
+    public List<DishAvailabilityDTO> getDishAvailability() {
+        ensureLoaded();
+        synchronized (this) {
+            List<DishAvailabilityDTO> result = new ArrayList<>(portions.size());
+            portions.forEach((dishId, p) -> result.add(toDTO(dishId, p)));
+            result.sort((a, b) -> Integer.compare(a.getPortionsAvailable(), b.getPortionsAvailable()));
+            return result;
+        }
+    }
+
+    @Override
+    public Optional<DishAvailabilityDTO> getDishAvailability(Long dishId) {
+        ensureLoaded();
+        synchronized (this) {
+            Portions p = portions.get(dishId);
+            return p != null ? Optional.of(toDTO(dishId, p)) : Optional.empty();
+        }
+    }
+
+    @Override
+    public void reserve(Long dishId, int quantity) {
+        reserve(Map.of(dishId, quantity));
+    }
+
+    // Must run inside the transaction that persists the order items: the reservation
+    // is rolled back with it, and dish flags are only touched once it has committed
+    @Override
+    public void reserve(Map<Long, Integer> dishQuantities) {
+        ensureLoaded();
+        boolean inTransaction = TransactionSynchronizationManager.isSynchronizationActive();
+        Map<Long, BigDecimal> demand;
+        Set<Long> changed;
+        synchronized (this) {
+            demand = demand(dishQuantities);
+            for (Map.Entry<Long, BigDecimal> entry : demand.entrySet()) {
+                BigDecimal free = available(entry.getKey());
+                if (free.compareTo(entry.getValue()) < 0) {
+                    throw new ConflictException("Not enough " + ingredientNames.get(entry.getKey())
+                            + " in stock: available " + format(free.max(BigDecimal.ZERO))
+                            + ", required " + format(entry.getValue()));
+                }
+            }
+            demand.forEach((ingredientId, qty) -> reserved.merge(ingredientId, qty, BigDecimal::add));
+            if (inTransaction) {
+                demand.forEach((ingredientId, qty) -> uncommitted.merge(ingredientId, qty, BigDecimal::add));
+            }
+            changed = refreshPortions(demand.keySet());
+        }
+        cacheInvalidationService.publish(CacheRegion.STOCK, demand.keySet());
+
+        if (inTransaction) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    syncDishFlags(changed);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    synchronized (StockProjectionServiceImpl.this) {
+                        subtract(uncommitted, demand);
+                    }
+                    if (status != STATUS_COMMITTED) {
+                        syncDishFlags(applyRelease(dishQuantities));
+                    }
+                }
+            });
+        } else {
+            syncDishFlags(changed);
+        }
+    }
+
+    @Override
+    public void release(Map<Long, Integer> dishQuantities) {
+        announce(dishQuantities);
+        TransactionHooks.afterCommit(() -> syncDishFlags(applyRelease(dishQuantities)));
+    }
+
+    // Order completed: the trigger has deducted the stock, so the reservation turns into consumption
+    @Override
+    public void consume(Map<Long, Integer> dishQuantities) {
+        announce(dishQuantities);
+        TransactionHooks.afterCommit(() -> {
+            Map<Long, BigDecimal> demand;
+            synchronized (this) {
+                demand = demand(dishQuantities);
+            }
+            Map<Long, BigDecimal> current = loadStock(demand.keySet());
+            Set<Long> changed;
+            synchronized (this) {
+                subtract(reserved, demand);
+                stock.putAll(current);
+                changed = refreshPortions(demand.keySet());
+            }
+            syncDishFlags(changed);
+        });
+    }
+
+    @Override
+    public void reloadStock(Collection<Long> ingredientIds) {
+        if (ingredientIds.isEmpty()) {
+            return;
+        }
+        Set<Long> ids = Set.copyOf(ingredientIds);
+        cacheInvalidationService.publish(CacheRegion.STOCK, ids);
+        TransactionHooks.afterCommit(() -> {
+            Map<Long, BigDecimal> current = loadStock(ids);
+            Set<Long> changed;
+            synchronized (this) {
+                stock.putAll(current);
+                changed = refreshPortions(ids);
+            }
+            syncDishFlags(changed);
+        });
+    }
+
+    // Full reload also picks up recipe changes and repairs drift, e.g. reservations
+    // of transactions that were still in flight while the previous rebuild ran
+    @Override
+    @Scheduled(fixedDelayString = "${stock-projection.refresh-interval-ms:300000}")
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            doRebuild();
+        }
+    }
+
+    private void doRebuild() {
+        Map<Long, BigDecimal> newStock = new HashMap<>();
+        Map<Long, String> newIngredientNames = new HashMap<>();
+        Map<Long, Map<Long, BigDecimal>> newRecipes = new HashMap<>();
+        Map<Long, Set<Long>> newDishesByIngredient = new HashMap<>();
+        Map<Long, String> newDishNames = new HashMap<>();
+        Map<Long, BigDecimal> newReserved = new HashMap<>();
+
+        // One snapshot for stock, recipes and open orders
+        TransactionTemplate snapshot = new TransactionTemplate(transactionManager);
+        snapshot.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        snapshot.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        snapshot.executeWithoutResult(status -> {
+            jdbcTemplate.query(
+                    "SELECT i.id, i.name, s.stock_quantity " +
+                    "FROM ingredients i JOIN v_ingredient_stock s ON s.ingredient_id = i.id", rs -> {
+                newStock.put(rs.getLong(1), rs.getBigDecimal(3));
+                newIngredientNames.put(rs.getLong(1), rs.getString(2));
+            });
+            jdbcTemplate.query(
+                    "SELECT di.dish_id, d.name, di.ingredient_id, di.quantity " +
+                    "FROM dish_ingredients di JOIN dishes d ON d.id = di.dish_id " +
+                    "WHERE di.quantity > 0", rs -> {
+                        long dishId = rs.getLong(1);
+                        long ingredientId = rs.getLong(3);
+                        newDishNames.put(dishId, rs.getString(2));
+                        newRecipes.computeIfAbsent(dishId, id -> new HashMap<>()).put(ingredientId, rs.getBigDecimal(4));
+                        newDishesByIngredient.computeIfAbsent(ingredientId, id -> new HashSet<>()).add(dishId);
+                    });
+            jdbcTemplate.query(OPEN_RESERVATIONS_QUERY,
+                    rs -> { newReserved.put(rs.getLong(1), rs.getBigDecimal(2)); });
+        });
+
+        List<Long> exhausted = new ArrayList<>();
+        List<Long> replenished = new ArrayList<>();
+        synchronized (this) {
+            stock = newStock;
+            ingredientNames = newIngredientNames;
+            recipes = newRecipes;
+            dishesByIngredient = newDishesByIngredient;
+            dishNames = newDishNames;
+            uncommitted.forEach((ingredientId, qty) -> newReserved.merge(ingredientId, qty, BigDecimal::add));
+            reserved = newReserved;
+            portions.clear();
+            recipes.keySet().forEach(dishId -> {
+                Portions p = compute(dishId);
+                portions.put(dishId, p);
+                (p.count() == 0 ? exhausted : replenished).add(dishId);
+            });
+            loaded = true;
+        }
+        applyDishFlags(exhausted, replenished);
+        log.debug("Stock projection rebuilt: {} ingredients, {} dishes with recipes, {} exhausted",
+                newStock.size(), newRecipes.size(), exhausted.size());
+    }
+
+    // Orders and stock changed on another node: re-read stock and open reservations of the
+    // ingredients. Dish flags were already updated by the node that made the change.
+    @EventListener
+    public void onCacheInvalidation(CacheInvalidationEvent event) {
+        if (!loaded || event.region() != CacheRegion.STOCK) {
+            return;
+        }
+        if (event.isFullResync()) {
+            rebuild();
+            return;
+        }
+
+        Set<Long> ids = event.ids();
+        Map<Long, BigDecimal> current = new HashMap<>();
+        Map<Long, BigDecimal> open = new HashMap<>();
+        TransactionTemplate snapshot = requiresNew();
+        snapshot.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        snapshot.executeWithoutResult(status -> {
+            jdbcTemplate.query(
+                    "SELECT ingredient_id, stock_quantity FROM v_ingredient_stock WHERE ingredient_id = ANY(?)",
+                    idArray(ids), rs -> { current.put(rs.getLong(1), rs.getBigDecimal(2)); });
+            jdbcTemplate.query(OPEN_RESERVATIONS_OF_INGREDIENTS_QUERY,
+                    idArray(ids), rs -> { open.put(rs.getLong(1), rs.getBigDecimal(2)); });
+        });
+
+        synchronized (this) {
+            stock.putAll(current);
+            for (Long ingredientId : ids) {
+                BigDecimal total = open.getOrDefault(ingredientId, BigDecimal.ZERO)
+                        .add(uncommitted.getOrDefault(ingredientId, BigDecimal.ZERO));
+                if (total.signum() > 0) {
+                    reserved.put(ingredientId, total);
+                } else {
+                    reserved.remove(ingredientId);
+                }
+            }
+            refreshPortions(ids);
+        }
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (rebuildLock) {
+            if (!loaded) {
+                doRebuild();
+            }
+        }
+    }
+
+    private Set<Long> applyRelease(Map<Long, Integer> dishQuantities) {
+        synchronized (this) {
+            Map<Long, BigDecimal> demand = demand(dishQuantities);
+            subtract(reserved, demand);
+            return refreshPortions(demand.keySet());
+        }
+    }
+
+    // Tells the other nodes which ingredients the reservations of these dishes touch
+    private void announce(Map<Long, Integer> dishQuantities) {
+        ensureLoaded();
+        Set<Long> ingredientIds;
+        synchronized (this) {
+            ingredientIds = demand(dishQuantities).keySet();
+        }
+        cacheInvalidationService.publish(CacheRegion.STOCK, ingredientIds);
+    }
+
+    private static void subtract(Map<Long, BigDecimal> amounts, Map<Long, BigDecimal> demand) {
+        demand.forEach((ingredientId, qty) -> amounts.computeIfPresent(ingredientId, (id, current) -> {
+            BigDecimal left = current.subtract(qty);
+            return left.signum() > 0 ? left : null;
+        }));
+    }
+
+    // ingredient -> quantity needed for the given dishes; dishes without a recipe need nothing
+    private Map<Long, BigDecimal> demand(Map<Long, Integer> dishQuantities) {
+        Map<Long, BigDecimal> demand = new HashMap<>();
+        dishQuantities.forEach((dishId, quantity) -> {
+            Map<Long, BigDecimal> recipe = recipes.get(dishId);
+            if (recipe != null && quantity != null && quantity > 0) {
+                BigDecimal portions = BigDecimal.valueOf(quantity);
+                recipe.forEach((ingredientId, qty) -> demand.merge(ingredientId, qty.multiply(portions), BigDecimal::add));
+            }
+        });
+        return demand;
+    }
+
+    private BigDecimal available(Long ingredientId) {
+        return stock.getOrDefault(ingredientId, BigDecimal.ZERO)
+                .subtract(reserved.getOrDefault(ingredientId, BigDecimal.ZERO));
+    }
+
+    // Recomputes dishes that use the ingredients, returns those that crossed zero portions
+    private Set<Long> refreshPortions(Collection<Long> ingredientIds) {
+        Set<Long> changed = new HashSet<>();
+        for (Long ingredientId : ingredientIds) {
+            for (Long dishId : dishesByIngredient.getOrDefault(ingredientId, Set.of())) {
+                Portions p = compute(dishId);
+                Portions previous = portions.put(dishId, p);
+                if (previous == null || (previous.count() == 0) != (p.count() == 0)) {
+                    changed.add(dishId);
+                }
+            }
+        }
+        return changed;
+    }
+
+    private Portions compute(Long dishId) {
+        long best = Long.MAX_VALUE;
+        Long limiting = null;
+        for (Map.Entry<Long, BigDecimal> entry : recipes.get(dishId).entrySet()) {
+            BigDecimal free = available(entry.getKey());
+            long count = free.signum() <= 0 ? 0 : free.divide(entry.getValue(), 0, RoundingMode.FLOOR).longValue();
+            if (count < best) {
+                best = count;
+                limiting = entry.getKey();
+            }
+        }
+        return new Portions((int) Math.min(best, Integer.MAX_VALUE), limiting);
+    }
+
+    private void syncDishFlags(Set<Long> dishIds) {
+        if (dishIds.isEmpty()) {
+            return;
+        }
+        List<Long> exhausted = new ArrayList<>();
+        List<Long> replenished = new ArrayList<>();
+        // Decide on the current state, not the one seen when the change was made
+        synchronized (this) {
+            dishIds.forEach(dishId -> {
+                Portions p = portions.get(dishId);
+                if (p != null) {
+                    (p.count() == 0 ? exhausted : replenished).add(dishId);
+                }
+            });
+        }
+        try {
+            requiresNew().executeWithoutResult(status -> applyDishFlags(exhausted, replenished));
+        } catch (RuntimeException e) {
+            // The next rebuild applies the flags again
+            log.warn("Cannot update dish availability flags: {}", e.getMessage());
+        }
+    }
+
+    private void applyDishFlags(List<Long> exhausted, List<Long> replenished) {
+        if (!autoFlagDishes) {
+            return;
+        }
+        int disabled = exhausted.isEmpty() ? 0 : jdbcTemplate.update(
+                "UPDATE dishes SET is_available = false, auto_unavailable = true WHERE id = ANY(?) AND is_available",
+                idArray(exhausted));
+        int enabled = replenished.isEmpty() ? 0 : jdbcTemplate.update(
+                "UPDATE dishes SET is_available = true, auto_unavailable = false WHERE id = ANY(?) AND auto_unavailable",
+                idArray(replenished));
+        if (disabled + enabled > 0) {
+            log.info("Stock projection: {} dishes marked unavailable, {} available again", disabled, enabled);
+        }
+    }
+
+    private Map<Long, BigDecimal> loadStock(Collection<Long> ingredientIds) {
+        Map<Long, BigDecimal> result = new HashMap<>();
+        if (!ingredientIds.isEmpty()) {
+            requiresNew().executeWithoutResult(status -> jdbcTemplate.query(
+                    "SELECT ingredient_id, stock_quantity FROM v_ingredient_stock WHERE ingredient_id = ANY(?)",
+                    idArray(ingredientIds),
+                    rs -> { result.put(rs.getLong(1), rs.getBigDecimal(2)); }));
+        }
+        return result;
+    }
+
+    private TransactionTemplate requiresNew() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return template;
+    }
+
+    private static PreparedStatementSetter idArray(Collection<Long> ids) {
+        return ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids.toArray()));
+    }
+
+    private static String format(BigDecimal value) {
+        return value.stripTrailingZeros().toPlainString();
+    }
+
+    private DishAvailabilityDTO toDTO(Long dishId, Portions p) {
+        return DishAvailabilityDTO.builder()
+                .dishId(dishId)
+                .dishName(dishNames.get(dishId))
+                .portionsAvailable(p.count())
+                .limitingIngredientId(p.limitingIngredientId())
+                .limitingIngredientName(ingredientNames.get(p.limitingIngredientId()))
+                .build();
+    }
+
+    private record Portions(int count, Long limitingIngredientId) {
+    }
+}
@@ -0,0 +1,372 @@
+package com.restaurant.system.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.restaurant.system.dto.SupplyImportErrorDTO;
+import com.restaurant.system.dto.SupplyImportResultDTO;
+import com.restaurant.system.dto.SupplyItemDTO;
+import com.restaurant.system.entity.enums.SupplyStatus;
+import com.restaurant.system.event.DomainEventType;
+import com.restaurant.system.exception.BadRequestException;
+import com.restaurant.system.exception.ConflictException;
+import com.restaurant.system.exception.NotFoundException;
+import com.restaurant.system.service.SupplyImportService;
+import com.restaurant.system.service.OutboxService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Loads supply lines from a CSV or NDJSON stream in chunks: each chunk resolves its ingredients
+ * with one query and is written with one JDBC batch, so memory does not grow with the file
+ * (only with the number of distinct ingredients referenced). Invalid lines are reported through
+ * the error consumer as they are found and skipped; valid lines are imported.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SupplyImportServiceImpl implements SupplyImportService {
+
+    private static final String INSERT_ITEM_SQL =
+            "INSERT INTO supply_items (supply_id, ingredient_id, quantity, unit_price) VALUES (?, ?, ?, ?)";
+
+    // supply_items.quantity / unit_price are NUMERIC(12,4)
+    private static final int MAX_INTEGER_DIGITS = 8;
+
+    private static final BigDecimal MIN_VALUE = new BigDecimal("0.01");
+
+    // Name resolved to more than one ingredient
+    private static final long AMBIGUOUS = -1L;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final OutboxService outboxService;
+
+    @Value("${supply-import.chunk-size:1000}")
+    private int chunkSize;
+
+    @Override
+    @Transactional
+    public SupplyImportResultDTO importItems(Long supplyId, InputStream input, Format format,
+                                             Consumer<SupplyImportErrorDTO> errors) {
+        // Row lock: the supply cannot be confirmed half-way through the import
+        List<String> status = jdbcTemplate.queryForList(
+                "SELECT status::text FROM supplies WHERE id = ? FOR UPDATE", String.class, supplyId);
+        if (status.isEmpty()) {
+            throw new NotFoundException("Supply not found");
+        }
+        if (!SupplyStatus.PENDING.name().equals(status.get(0))) {
+            throw new ConflictException("Items can only be imported into a pending supply");
+        }
+
+        Import state = new Import(supplyId, errors);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            CsvColumns columns = null;
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (lineNumber == 1 && line.startsWith("\uFEFF")) {
+                    line = line.substring(1);
+                }
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (format == Format.CSV && columns == null) {
+                    List<String> cells = splitCsv(line);
+                    columns = CsvColumns.fromHeader(cells);
+                    if (columns != null) {
+                        continue;
+                    }
+                    columns = CsvColumns.POSITIONAL;
+                }
+                state.lines++;
+                try {
+                    SupplyItemDTO item = format == Format.CSV
+                            ? columns.toItem(splitCsv(line))
+                            : parseJson(line);
+                    validate(item);
+                    state.add(new Line(lineNumber, item));
+                } catch (BadRequestException e) {
+                    state.reject(lineNumber, e.getMessage());
+                }
+                if (state.chunk.size() >= chunkSize) {
+                    flush(state);
+                }
+            }
+        } catch (IOException e) {
+            throw new BadRequestException("Could not read the uploaded file", e);
+        }
+        flush(state);
+
+        log.info("Imported {} of {} lines into supply {}", state.imported, state.lines, supplyId);
+        SupplyImportResultDTO result = SupplyImportResultDTO.builder()
+                .supplyId(supplyId)
+                .lines(state.lines)
+                .imported(state.imported)
+                .rejected(state.rejected)
+                .build();
+        if (result.getImported() > 0) {
+            outboxService.publish(DomainEventType.SUPPLY_ITEMS_IMPORTED, supplyId, result);
+        }
+        return result;
+    }
+
+    private void flush(Import state) {
+        if (state.chunk.isEmpty()) {
+            return;
+        }
+        resolveIngredients(state);
+
+        List<Object[]> rows = new ArrayList<>(state.chunk.size());
+        for (Line line : state.chunk) {
+            SupplyItemDTO item = line.item();
+            Long ingredientId = item.getIngredientId() != null
+                    ? (state.knownIds.contains(item.getIngredientId()) ? item.getIngredientId() : null)
+                    : state.idsByName.get(nameKey(item.getIngredientName()));
+            if (ingredientId == null) {
+                state.reject(line.number(), item.getIngredientId() != null
+                        ? "Ingredient not found: " + item.getIngredientId()
+                        : "Ingredient not found: '" + item.getIngredientName() + "'");
+            } else if (ingredientId == AMBIGUOUS) {
+                state.reject(line.number(), "Several ingredients are named '" + item.getIngredientName()
+                        + "', use the ingredient id");
+            } else {
+                rows.add(new Object[]{state.supplyId, ingredientId, item.getQuantity(), item.getUnitPrice()});
+            }
+        }
+        jdbcTemplate.batchUpdate(INSERT_ITEM_SQL, rows);
+        state.imported += rows.size();
+        state.chunk.clear();
+    }
+
+    // One query per chunk for the ids and names not seen in earlier chunks
+    private void resolveIngredients(Import state) {
+        Set<Long> ids = new HashSet<>();
+        Set<String> names = new HashSet<>();
+        for (Line line : state.chunk) {
+            Long id = line.item().getIngredientId();
+            if (id != null) {
+                if (!state.knownIds.contains(id) && !state.missingIds.contains(id)) {
+                    ids.add(id);
+                }
+            } else {
+                String key = nameKey(line.item().getIngredientName());
+                if (!state.idsByName.containsKey(key) && !state.missingNames.contains(key)) {
+                    names.add(key);
+                }
+            }
+        }
+        if (ids.isEmpty() && names.isEmpty()) {
+            return;
+        }
+
+        Map<String, Long> found = new HashMap<>();
+        jdbcTemplate.query(
+                "SELECT id, lower(trim(name)) FROM ingredients WHERE id = ANY(?) OR lower(trim(name)) = ANY(?)",
+                ps -> {
+                    ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids.toArray()));
+                    ps.setArray(2, ps.getConnection().createArrayOf("text", names.toArray()));
+                },
+                rs -> {
+                    long id = rs.getLong(1);
+                    String name = rs.getString(2);
+                    if (ids.contains(id)) {
+                        state.knownIds.add(id);
+                    }
+                    if (names.contains(name)) {
+                        found.merge(name, id, (first, second) -> AMBIGUOUS);
+                    }
+                });
+
+        state.idsByName.putAll(found);
+        ids.stream().filter(id -> !state.knownIds.contains(id)).forEach(state.missingIds::add);
+        names.stream().filter(name -> !found.containsKey(name)).forEach(state.missingNames::add);
+    }
+
+    private SupplyItemDTO parseJson(String line) {
+        try {
+            return objectMapper.readValue(line, SupplyItemDTO.class);
+        } catch (JsonProcessingException e) {
+            throw new BadRequestException("Malformed JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    private static void validate(SupplyItemDTO item) {
+        if (item.getIngredientId() == null
+                && (item.getIngredientName() == null || item.getIngredientName().isBlank())) {
+            throw new BadRequestException("Ingredient id or name is required");
+        }
+        if (item.getQuantity() == null) {
+            throw new BadRequestException("Quantity is required");
+        }
+        checkAmount("Quantity", item.getQuantity());
+        if (item.getUnitPrice() != null) {
+            checkAmount("Unit price", item.getUnitPrice());
+        }
+    }
+
+    private static void checkAmount(String field, BigDecimal value) {
+        if (value.compareTo(MIN_VALUE) < 0) {
+            throw new BadRequestException(field + " must be greater than 0");
+        }
+        if (value.precision() - value.scale() > MAX_INTEGER_DIGITS) {
+            throw new BadRequestException(field + " is too large");
+        }
+    }
+
+    private static String nameKey(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // RFC 4180 cells of a single line: quoted cells may contain commas and "" escapes
+    private static List<String> splitCsv(String line) {
+        List<String> cells = new ArrayList<>();
+        StringBuilder cell = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    cell.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    cell.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                cells.add(cell.toString().trim());
+                cell.setLength(0);
+            } else {
+                cell.append(c);
+            }
+        }
+        if (quoted) {
+            throw new BadRequestException("Unterminated quoted value");
+        }
+        cells.add(cell.toString().trim());
+        return cells;
+    }
+
+    private record Line(int number, SupplyItemDTO item) {
+    }
+
+    private static final class Import {
+        private final Long supplyId;
+        private final Consumer<SupplyImportErrorDTO> errors;
+        private final List<Line> chunk = new ArrayList<>();
+
+        // Ingredient lookups carried over between chunks
+        private final Set<Long> knownIds = new HashSet<>();
+        private final Set<Long> missingIds = new HashSet<>();
+        private final Map<String, Long> idsByName = new HashMap<>();
+        private final Set<String> missingNames = new HashSet<>();
+
+        private int lines;
+        private int imported;
+        private int rejected;
+
+        private Import(Long supplyId, Consumer<SupplyImportErrorDTO> errors) {
+            this.supplyId = supplyId;
+            this.errors = errors;
+        }
+
+        private void add(Line line) {
+            chunk.add(line);
+        }
+
+        private void reject(int line, String error) {
+            rejected++;
+            errors.accept(SupplyImportErrorDTO.builder().line(line).error(error).build());
+        }
+    }
+
+    /**
+     * Column positions of a CSV file. With a header the columns are matched by name
+     * (ingredient_id, ingredient_name / ingredient, quantity, unit_price, in any order);
+     * without one the layout is ingredient,quantity,unit_price where ingredient is an id or a name.
+     */
+    private record CsvColumns(int ingredientId, int ingredientName, int ingredient, int quantity, int unitPrice) {
+
+        static final CsvColumns POSITIONAL = new CsvColumns(-1, -1, 0, 1, 2);
+
+        static CsvColumns fromHeader(List<String> cells) {
+            int ingredientId = -1, ingredientName = -1, ingredient = -1, quantity = -1, unitPrice = -1;
+            for (int i = 0; i < cells.size(); i++) {
+                switch (cells.get(i).toLowerCase(Locale.ROOT).replace("_", "").replace(" ", "")) {
+                    case "ingredientid", "id" -> ingredientId = i;
+                    case "ingredientname", "name" -> ingredientName = i;
+                    case "ingredient" -> ingredient = i;
+                    case "quantity", "qty" -> quantity = i;
+                    case "unitprice", "price" -> unitPrice = i;
+                    default -> { }
+                }
+            }
+            boolean header = quantity >= 0 && (ingredientId >= 0 || ingredientName >= 0 || ingredient >= 0);
+            return header ? new CsvColumns(ingredientId, ingredientName, ingredient, quantity, unitPrice) : null;
+        }
+
+        SupplyItemDTO toItem(List<String> cells) {
+            SupplyItemDTO item = new SupplyItemDTO();
+            String id = cell(cells, ingredientId);
+            String name = cell(cells, ingredientName);
+            String any = cell(cells, ingredient);
+            if (id == null && any != null && any.chars().allMatch(Character::isDigit)) {
+                id = any;
+            } else if (name == null) {
+                name = any;
+            }
+            if (id != null) {
+                item.setIngredientId(parseLong(id));
+            }
+            item.setIngredientName(name);
+            item.setQuantity(parseDecimal("quantity", cell(cells, quantity)));
+            item.setUnitPrice(parseDecimal("unit price", cell(cells, unitPrice)));
+            return item;
+        }
+
+        private static String cell(List<String> cells, int index) {
+            return index >= 0 && index < cells.size() && !cells.get(index).isEmpty() ? cells.get(index) : null;
+        }
+
+        private static Long parseLong(String value) {
+            try {
+                return Long.valueOf(value);
+            } catch (NumberFormatException e) {
+                throw new BadRequestException("Invalid ingredient id: '" + value + "'");
+            }
+        }
+
+        private static BigDecimal parseDecimal(String field, String value) {
+            if (value == null) {
+                return null;
+            }
+            try {
+                return new BigDecimal(value);
+            } catch (NumberFormatException e) {
+                throw new BadRequestException("Invalid " + field + ": '" + value + "'");
+            }
+        }
+    }
+}
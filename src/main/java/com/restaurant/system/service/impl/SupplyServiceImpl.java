@@ -2,11 +2,13 @@ package com.restaurant.system.service.impl;
 
 import com.restaurant.system.dto.SupplyDTO;
 import com.restaurant.system.dto.SupplyItemDTO;
+import com.restaurant.system.dto.projection.SupplyItemRow;
 import com.restaurant.system.entity.Supply;
 import com.restaurant.system.entity.SupplyItem;
 import com.restaurant.system.entity.Supplier;
 import com.restaurant.system.entity.Ingredient;
 import com.restaurant.system.entity.enums.SupplyStatus;
+import com.restaurant.system.event.DomainEventType;
 import com.restaurant.system.exception.BadRequestException;
 import com.restaurant.system.exception.ConflictException;
 import com.restaurant.system.exception.NotFoundException;
@@ -14,7 +16,10 @@ import com.restaurant.system.repository.SupplyRepository;
 import com.restaurant.system.repository.SupplyItemRepository;
 import com.restaurant.system.repository.SupplierRepository;
 import com.restaurant.system.repository.IngredientRepository;
+import com.restaurant.system.service.DishCostService;
+import com.restaurant.system.service.StockProjectionService;
 import com.restaurant.system.service.SupplyService;
+import com.restaurant.system.service.OutboxService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -23,6 +28,7 @@ import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -35,6 +41,9 @@ public class SupplyServiceImpl implements SupplyService {
     private final SupplyItemRepository supplyItemRepository;
     private final SupplierRepository supplierRepository;
     private final IngredientRepository ingredientRepository;
+    private final StockProjectionService stockProjectionService;
+    private final DishCostService dishCostService;
+    private final OutboxService outboxService;
 
     @Override
     public SupplyDTO createSupply(SupplyDTO supplyDTO) {
@@ -46,7 +55,9 @@ public class SupplyServiceImpl implements SupplyService {
         supply.setStatus(SupplyStatus.PENDING);
         supply.setNotes(supplyDTO.getNotes());
 
-        return toDTO(supplyRepository.save(supply));
+        SupplyDTO created = toDTO(supplyRepository.save(supply));
+        outboxService.publish(DomainEventType.SUPPLY_CREATED, created.getId(), created);
+        return created;
     }
 
     @Override
@@ -94,7 +105,9 @@ public class SupplyServiceImpl implements SupplyService {
             supply.setNotes(supplyDTO.getNotes());
         }
 
-        return toDTO(supplyRepository.save(supply));
+        SupplyDTO updated = toDTO(supplyRepository.saveAndFlush(supply));
+        outboxService.publish(DomainEventType.SUPPLY_UPDATED, id, updated);
+        return updated;
     }
 
     @Override
@@ -103,6 +116,7 @@ public class SupplyServiceImpl implements SupplyService {
             throw new NotFoundException("Supply not found");
         }
         supplyRepository.deleteById(id);
+        outboxService.publish(DomainEventType.SUPPLY_DELETED, id, Map.of("id", id));
     }
 
     @Override
@@ -119,14 +133,15 @@ public class SupplyServiceImpl implements SupplyService {
         item.setQuantity(itemDTO.getQuantity());
         item.setUnitPrice(itemDTO.getUnitPrice());
 
-        SupplyItem saved = supplyItemRepository.save(item);
-        return toDTO(saved);
+        SupplyItemDTO saved = toDTO(supplyItemRepository.save(item));
+        outboxService.publish(DomainEventType.SUPPLY_ITEM_ADDED, supplyId, saved);
+        return saved;
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<SupplyItemDTO> getSupplyItems(Long supplyId) {
-        return supplyItemRepository.findBySupplyId(supplyId).stream()
+        return supplyItemRepository.findRowsBySupplyId(supplyId).stream()
                 .map(this::toDTO)
                 .collect(Collectors.toList());
     }
@@ -141,6 +156,7 @@ public class SupplyServiceImpl implements SupplyService {
         }
 
         supplyItemRepository.deleteById(itemId);
+        outboxService.publish(DomainEventType.SUPPLY_ITEM_REMOVED, supplyId, Map.of("supplyId", supplyId, "itemId", itemId));
     }
 
 
@@ -155,18 +171,24 @@ public class SupplyServiceImpl implements SupplyService {
         }
 
         // Business logic: cannot confirm supply without items
-        List<SupplyItem> items = supplyItemRepository.findBySupplyId(id);
-        if (items.isEmpty()) {
+        List<Long> ingredientIds = supplyItemRepository.findIngredientIdsBySupplyId(id);
+        if (ingredientIds.isEmpty()) {
             throw new BadRequestException("Cannot confirm supply without items");
         }
 
+        // On flush trg_supplies_after_update adds the delivered quantities to stock in one grouped pass
         supply.setStatus(SupplyStatus.CONFIRMED);
-        return toDTO(supplyRepository.save(supply));
+        SupplyDTO confirmed = toDTO(supplyRepository.saveAndFlush(supply));
+        outboxService.publish(DomainEventType.SUPPLY_CONFIRMED, id, confirmed);
+
+        stockProjectionService.reloadStock(ingredientIds);
+        dishCostService.refreshIngredients(ingredientIds);
+        return confirmed;
     }
 
 
     private SupplyDTO toDTO(Supply supply) {
-        List<SupplyItemDTO> items = supplyItemRepository.findBySupplyId(supply.getId())
+        List<SupplyItemDTO> items = supplyItemRepository.findRowsBySupplyId(supply.getId())
                 .stream()
                 .map(this::toDTO)
                 .collect(Collectors.toList());
@@ -181,10 +203,22 @@ public class SupplyServiceImpl implements SupplyService {
                 .notes(supply.getNotes())
                 .receivedByUserId(supply.getReceivedBy() != null ? supply.getReceivedBy().getId() : null)
                 .createdAt(supply.getCreatedAt())
+                .version(supply.getVersion())
                 .items(items)
                 .build();
     }
 
+    private SupplyItemDTO toDTO(SupplyItemRow row) {
+        return SupplyItemDTO.builder()
+                .id(row.id())
+                .supplyId(row.supplyId())
+                .ingredientId(row.ingredientId())
+                .ingredientName(row.ingredientName())
+                .quantity(row.quantity())
+                .unitPrice(row.unitPrice())
+                .build();
+    }
+
     private SupplyItemDTO toDTO(SupplyItem item) {
         return SupplyItemDTO.builder()
                 .id(item.getId())
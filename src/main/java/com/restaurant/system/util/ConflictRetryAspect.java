@@ -0,0 +1,55 @@
+package com.restaurant.system.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+// Ordered right outside the transaction interceptor, so every attempt runs in a fresh transaction
+@Slf4j
+@Aspect
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+public class ConflictRetryAspect {
+
+    private static final long BACKOFF_MILLIS = 50;
+
+    private final Counter retries;
+
+    public ConflictRetryAspect(MeterRegistry meterRegistry) {
+        this.retries = Counter.builder("service.conflict.retries")
+                .description("Service calls re-run after losing an optimistic lock race")
+                .register(meterRegistry);
+    }
+
+    @Around("@annotation(retryOnConflict)")
+    public Object retry(ProceedingJoinPoint joinPoint, RetryOnConflict retryOnConflict) throws Throwable {
+        // Inside a caller's transaction the stale state belongs to the caller, who has to start over
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return joinPoint.proceed();
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return joinPoint.proceed();
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= retryOnConflict.attempts()) {
+                    throw e;
+                }
+                retries.increment();
+                log.debug("{} lost an update race, retrying (attempt {}): {}",
+                        joinPoint.getSignature().toShortString(), attempt + 1, e.getMessage());
+                // Jittered, so the writers that collided do not collide again
+                Thread.sleep(ThreadLocalRandom.current().nextLong(BACKOFF_MILLIS * attempt) + 1);
+            }
+        }
+    }
+}
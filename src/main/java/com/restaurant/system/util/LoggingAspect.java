@@ -1,28 +1,197 @@
 package com.restaurant.system.util;
 
-import org.aspectj.lang.JoinPoint;
-import org.aspectj.lang.annotation.After;
+import com.restaurant.system.config.ServiceTraceProperties;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
-import org.aspectj.lang.annotation.Before;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.hibernate.Hibernate;
+import org.hibernate.proxy.HibernateProxy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.stereotype.Component;
 
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Sampled tracing of service calls. Registered only when service-trace.enabled=true (see ServiceTraceConfig);
+ * for calls that are not sampled nothing is formatted and arguments are never touched.
+ */
 @Aspect
-@Component
 public class LoggingAspect {
     private static final Logger logger = LoggerFactory.getLogger(LoggingAspect.class);
 
-    @Before("execution(* com.restaurant.system.service.*.*(..))")
-    public void logServiceMethodEntry(JoinPoint joinPoint) {
-        logger.info("Entering method: {} with arguments: {}",
-                joinPoint.getSignature().getName(),
-                joinPoint.getArgs());
+    private final ServiceTraceProperties properties;
+
+    // Sample rate is resolved once per method
+    private final Map<Method, TracedMethod> methods = new ConcurrentHashMap<>();
+
+    public LoggingAspect(ServiceTraceProperties properties) {
+        this.properties = properties;
+    }
+
+    @Around("execution(* com.restaurant.system.service.*.*(..))")
+    public Object traceServiceMethod(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (!logger.isDebugEnabled()) {
+            return joinPoint.proceed();
+        }
+        Method signatureMethod = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        TracedMethod method = methods.get(signatureMethod);
+        if (method == null) {
+            // Capturing lambda only on the first call of each method
+            method = methods.computeIfAbsent(signatureMethod, m -> resolve(m, joinPoint));
+        }
+        if (method.sampleRate() <= 0.0 || ThreadLocalRandom.current().nextDouble() >= method.sampleRate()) {
+            return joinPoint.proceed();
+        }
+
+        logger.debug("Entering method: {} with arguments: {}",
+                method.name(), new RenderedArguments(joinPoint.getArgs(), properties.getMaxArgumentLength()));
+        long start = System.nanoTime();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            logger.debug("Exiting method: {} after {} µs", method.name(), (System.nanoTime() - start) / 1000);
+        }
     }
 
-    @After("execution(* com.restaurant.system.service.*.*(..))")
-    public void logServiceMethodExit(JoinPoint joinPoint) {
-        logger.info("Exiting method: {}",
-                joinPoint.getSignature().getName());
+    private TracedMethod resolve(Method method, ProceedingJoinPoint joinPoint) {
+        String className = joinPoint.getTarget() != null
+                ? joinPoint.getTarget().getClass().getSimpleName()
+                : method.getDeclaringClass().getSimpleName();
+        String name = className + "." + method.getName();
+        Map<String, Double> rates = properties.getSampleRates();
+        double rate = rates.getOrDefault(name, rates.getOrDefault(className, properties.getDefaultSampleRate()));
+        return new TracedMethod(name, rate);
+    }
+
+    private record TracedMethod(String name, double sampleRate) {
+    }
+
+    // Arguments are rendered only when the message is actually formatted, each into at most
+    // maxLength characters: rendering stops there instead of truncating a finished toString().
+    // Collections, maps and arrays are summarised by size; our own DTOs and entities are rendered
+    // field by field (one level deep), so item lists of large orders are never serialised.
+    private record RenderedArguments(Object[] args, int maxLength) {
+
+        private static final Map<Class<?>, Field[]> FIELDS = new ConcurrentHashMap<>();
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("[");
+            for (int i = 0; i < args.length; i++) {
+                if (i > 0) {
+                    sb.append(", ");
+                }
+                Budget budget = new Budget(sb, sb.length() + maxLength);
+                render(args[i], budget, true);
+                if (budget.exhausted()) {
+                    sb.append('…');
+                }
+            }
+            return sb.append(']').toString();
+        }
+
+        private static void render(Object arg, Budget budget, boolean expand) {
+            // Lazy collections and entity proxies only by type: touching them would run a query,
+            // or throw LazyInitializationException outside the session
+            if (arg != null && !Hibernate.isInitialized(arg)) {
+                Class<?> type = arg instanceof HibernateProxy proxy
+                        ? proxy.getHibernateLazyInitializer().getPersistentClass()
+                        : arg.getClass();
+                budget.append(type.getSimpleName() + "(uninitialized)");
+                return;
+            }
+            if (arg instanceof HibernateProxy proxy) {
+                arg = proxy.getHibernateLazyInitializer().getImplementation();
+            }
+            if (arg == null || arg instanceof Number || arg instanceof Boolean || arg instanceof Enum<?>
+                    || arg instanceof TemporalAccessor || arg instanceof UUID) {
+                budget.append(String.valueOf(arg));
+            } else if (arg instanceof CharSequence text) {
+                budget.append(text);
+            } else if (arg instanceof Collection<?> collection) {
+                budget.append(arg.getClass().getSimpleName() + "(size=" + collection.size() + ")");
+            } else if (arg instanceof Map<?, ?> map) {
+                budget.append(arg.getClass().getSimpleName() + "(size=" + map.size() + ")");
+            } else if (arg.getClass().isArray()) {
+                budget.append(arg.getClass().getComponentType().getSimpleName() + "[" + Array.getLength(arg) + "]");
+            } else if (arg.getClass().getName().startsWith("com.restaurant.system.")) {
+                // Nested objects only by type: no unbounded toString()
+                budget.append(arg.getClass().getSimpleName());
+                if (expand) {
+                    renderFields(arg, budget);
+                }
+            } else {
+                budget.append(arg.getClass().getSimpleName());
+            }
+        }
+
+        private static void renderFields(Object arg, Budget budget) {
+            budget.append("(");
+            Field[] fields = FIELDS.computeIfAbsent(arg.getClass(), RenderedArguments::fields);
+            for (int i = 0; i < fields.length && !budget.exhausted(); i++) {
+                if (i > 0) {
+                    budget.append(", ");
+                }
+                budget.append(fields[i].getName());
+                budget.append("=");
+                try {
+                    render(fields[i].get(arg), budget, false);
+                } catch (IllegalAccessException e) {
+                    budget.append("?");
+                }
+            }
+            budget.append(")");
+        }
+
+        private static Field[] fields(Class<?> type) {
+            List<Field> fields = new ArrayList<>();
+            for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers()) && field.trySetAccessible()) {
+                        fields.add(field);
+                    }
+                }
+            }
+            return fields.toArray(new Field[0]);
+        }
+    }
+
+    // Appends up to a fixed end position of the builder
+    private static final class Budget {
+
+        private final StringBuilder sb;
+        private final int end;
+        private boolean exhausted;
+
+        Budget(StringBuilder sb, int end) {
+            this.sb = sb;
+            this.end = end;
+        }
+
+        void append(CharSequence text) {
+            int room = end - sb.length();
+            if (text.length() > room) {
+                sb.append(text, 0, Math.max(room, 0));
+                exhausted = true;
+            } else {
+                sb.append(text);
+            }
+        }
+
+        boolean exhausted() {
+            return exhausted;
+        }
     }
 }
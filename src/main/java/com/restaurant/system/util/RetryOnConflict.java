@@ -0,0 +1,18 @@
+package com.restaurant.system.util;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Re-runs the whole transaction of a service method that lost an optimistic lock race.
+ * Only for commutative changes (deltas), whose result does not depend on which of the
+ * concurrent writers went first; everything else has to report the conflict to the client.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RetryOnConflict {
+
+    int attempts() default 5;
+}
@@ -0,0 +1,88 @@
+package com.restaurant.system.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class ServiceMetricsAspect {
+
+    private final MeterRegistry meterRegistry;
+    private final StatementBudgetGuard statementBudgetGuard;
+
+    // Meters are resolved once per method; the hot path only does a map lookup
+    private final Map<Method, MethodMeters> meters = new ConcurrentHashMap<>();
+
+    @Around("execution(* com.restaurant.system.service.*.*(..))")
+    public Object timeServiceMethod(ProceedingJoinPoint joinPoint) throws Throwable {
+        MethodSignature signature = (MethodSignature) joinPoint.getSignature();
+        MethodMeters methodMeters = meters.computeIfAbsent(signature.getMethod(), this::createMeters);
+
+        StatementBudgetGuard.MethodScope scope =
+                statementBudgetGuard.enterMethod(methodMeters.className(), methodMeters.methodName());
+        long start = System.nanoTime();
+        try {
+            Object result = joinPoint.proceed();
+            methodMeters.success().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            statementBudgetGuard.checkMethod(scope);
+            return result;
+        } catch (Throwable ex) {
+            methodMeters.error().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            Counter.builder("service.method.errors")
+                    .description("Exceptions thrown by service methods")
+                    .tag("class", methodMeters.className())
+                    .tag("method", methodMeters.methodName())
+                    .tag("exception", ex.getClass().getSimpleName())
+                    .register(meterRegistry)
+                    .increment();
+            throw ex;
+        } finally {
+            methodMeters.statements().record(statementBudgetGuard.exitMethod(scope));
+        }
+    }
+
+    private MethodMeters createMeters(Method method) {
+        String className = method.getDeclaringClass().getSimpleName();
+        String methodName = method.getName();
+        return new MethodMeters(
+                className,
+                methodName,
+                serviceTimer(className, methodName, "SUCCESS"),
+                serviceTimer(className, methodName, "ERROR"),
+                DistributionSummary.builder("service.method.db.statements")
+                        .description("SQL statements issued per service method call")
+                        .tag("class", className)
+                        .tag("method", methodName)
+                        .register(meterRegistry)
+        );
+    }
+
+    private Timer serviceTimer(String className, String methodName, String outcome) {
+        return Timer.builder("service.method")
+                .description("Service method execution time")
+                .tag("class", className)
+                .tag("method", methodName)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    private record MethodMeters(String className, String methodName,
+                                Timer success, Timer error, DistributionSummary statements) {
+    }
+}
@@ -0,0 +1,22 @@
+package com.restaurant.system.util;
+
+/**
+ * Counts SQL statements executed on the current thread, fed by StatementCountingDataSource.
+ * The counter only grows, so callers take a snapshot before a unit of work and subtract it afterwards;
+ * that keeps nested scopes (request -> service method) independent of each other.
+ */
+public final class SqlStatementCounter {
+
+    private static final ThreadLocal<long[]> STATEMENTS = ThreadLocal.withInitial(() -> new long[1]);
+
+    private SqlStatementCounter() {
+    }
+
+    public static void increment() {
+        STATEMENTS.get()[0]++;
+    }
+
+    public static long current() {
+        return STATEMENTS.get()[0];
+    }
+}
@@ -0,0 +1,102 @@
+package com.restaurant.system.util;
+
+import com.restaurant.system.config.RequestMetricsFilter;
+import com.restaurant.system.config.StatementBudgetProperties;
+import com.restaurant.system.exception.StatementBudgetExceededException;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionExecution;
+import org.springframework.transaction.TransactionExecutionListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Compares SQL statement counts of a request or a service method with the configured budget.
+ * Counts come from SqlStatementCounter snapshots taken by RequestMetricsFilter and ServiceMetricsAspect.
+ * FAIL mode only throws while the work can still be rolled back: right before a transaction
+ * commits (as a transaction listener), or at the end of a method that runs inside an open
+ * transaction. A budget found exceeded after the commit is logged, never turned into an error.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StatementBudgetGuard implements TransactionExecutionListener {
+
+    // Service methods in progress on this thread, innermost first
+    private static final ThreadLocal<Deque<MethodScope>> METHODS = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private final StatementBudgetProperties properties;
+
+    public MethodScope enterMethod(String className, String methodName) {
+        String name = className + "." + methodName;
+        MethodScope scope = new MethodScope(name, SqlStatementCounter.current(),
+                properties.getMethods().getOrDefault(name, properties.getMaxPerMethod()));
+        METHODS.get().push(scope);
+        return scope;
+    }
+
+    public void checkMethod(MethodScope scope) {
+        check("Service method " + scope.name(), SqlStatementCounter.current() - scope.statementsBefore(),
+                scope.budget(), TransactionSynchronizationManager.isActualTransactionActive());
+    }
+
+    // Returns the statements issued within the scope
+    public long exitMethod(MethodScope scope) {
+        METHODS.get().removeFirstOccurrence(scope);
+        return SqlStatementCounter.current() - scope.statementsBefore();
+    }
+
+    public void checkRequest(String method, String uri, long statements) {
+        check("Request " + method + " " + uri, statements, requestBudget(method, uri),
+                TransactionSynchronizationManager.isActualTransactionActive());
+    }
+
+    public boolean isResponseHeaderEnabled() {
+        return properties.isEnabled() && properties.isResponseHeader();
+    }
+
+    // Invoked for the outermost (and every REQUIRES_NEW) transaction; an exception here rolls it back
+    @Override
+    public void beforeCommit(TransactionExecution transaction) {
+        if (!properties.isEnabled() || properties.getMode() != StatementBudgetProperties.Mode.FAIL) {
+            return;
+        }
+        long now = SqlStatementCounter.current();
+        for (MethodScope scope : METHODS.get()) {
+            check("Service method " + scope.name(), now - scope.statementsBefore(), scope.budget(), true);
+        }
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+            HttpServletRequest request = attributes.getRequest();
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            if (pattern != null && request.getAttribute(RequestMetricsFilter.STATEMENTS_BEFORE_ATTRIBUTE) instanceof Long before) {
+                String endpoint = request.getMethod() + " " + pattern;
+                check("Request " + endpoint, now - before, requestBudget(request.getMethod(), pattern.toString()), true);
+            }
+        }
+    }
+
+    private int requestBudget(String method, String uri) {
+        return properties.getEndpoints().getOrDefault(method + " " + uri, properties.getMaxPerRequest());
+    }
+
+    private void check(String subject, long statements, int budget, boolean canRollBack) {
+        if (!properties.isEnabled() || budget <= 0 || statements <= budget) {
+            return;
+        }
+        String message = String.format("%s issued %d SQL statements, budget is %d", subject, statements, budget);
+        if (canRollBack && properties.getMode() == StatementBudgetProperties.Mode.FAIL) {
+            throw new StatementBudgetExceededException(message);
+        }
+        log.warn(message);
+    }
+
+    public record MethodScope(String name, long statementsBefore, int budget) {
+    }
+}
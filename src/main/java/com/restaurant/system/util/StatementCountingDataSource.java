@@ -0,0 +1,69 @@
+package com.restaurant.system.util;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Counts every statement executed through the wrapped data source in SqlStatementCounter,
+ * whether Hibernate, JdbcTemplate or plain JDBC issues it. Each execute call is one statement,
+ * a batch included, since that is one round trip.
+ */
+public class StatementCountingDataSource extends DelegatingDataSource {
+
+    public StatementCountingDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return countingConnection(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return countingConnection(super.getConnection(username, password));
+    }
+
+    private static Connection countingConnection(Connection target) {
+        return (Connection) Proxy.newProxyInstance(StatementCountingDataSource.class.getClassLoader(),
+                new Class<?>[] {Connection.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "createStatement", "prepareStatement", "prepareCall" -> countingStatement(
+                            (Connection) proxy, (Statement) invoke(target, method, args), method.getReturnType());
+                    default -> invoke(target, method, args);
+                });
+    }
+
+    // Proxies the interface the connection method returns: Statement, PreparedStatement or CallableStatement
+    private static Statement countingStatement(Connection connection, Statement target, Class<?> type) {
+        return (Statement) Proxy.newProxyInstance(StatementCountingDataSource.class.getClassLoader(),
+                new Class<?>[] {type}, (proxy, method, args) -> {
+                    String name = method.getName();
+                    if (name.startsWith("execute")) {
+                        SqlStatementCounter.increment();
+                    }
+                    return switch (name) {
+                        case "equals" -> proxy == args[0];
+                        case "hashCode" -> System.identityHashCode(proxy);
+                        case "getConnection" -> connection;
+                        default -> invoke(target, method, args);
+                    };
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
@@ -0,0 +1,280 @@
+-- V12__partition_orders_and_sales.sql
+-- Convert orders, order_items and sales into monthly range-partitioned tables.
+--
+-- Partition keys: orders.order_time, order_items.created_at, sales.sale_time (all UTC months).
+-- A partitioned table can only have unique constraints that contain the partition key, so the
+-- foreign keys pointing at orders(id) and the UNIQUE(sales.order_id) constraint are replaced
+-- by triggers with the same semantics and error codes.
+
+-- ============================================
+-- 1) PARTITION MAINTENANCE FUNCTIONS
+-- ============================================
+
+CREATE OR REPLACE FUNCTION fn_create_monthly_partition(p_parent TEXT, p_column TEXT, p_month DATE)
+RETURNS BOOLEAN AS $$
+DECLARE
+    v_from TIMESTAMPTZ := date_trunc('month', p_month::timestamp) AT TIME ZONE 'UTC';
+    v_to TIMESTAMPTZ := (date_trunc('month', p_month::timestamp) + INTERVAL '1 month') AT TIME ZONE 'UTC';
+    v_name TEXT := p_parent || '_p' || to_char(p_month, 'YYYY_MM');
+    v_default TEXT := p_parent || '_default';
+BEGIN
+    IF to_regclass(v_name) IS NOT NULL THEN
+        RETURN FALSE;
+    END IF;
+
+    -- Build the partition detached, so rows that already landed in the default partition
+    -- can be moved into it before it is attached
+    EXECUTE format('CREATE TABLE %I (LIKE %I INCLUDING DEFAULTS INCLUDING CONSTRAINTS)', v_name, p_parent);
+
+    IF to_regclass(v_default) IS NOT NULL THEN
+        PERFORM set_config('restaurant.moving_partition_rows', 'on', true);
+        EXECUTE format('WITH moved AS (DELETE FROM %I WHERE %I >= %L AND %I < %L RETURNING *) '
+                       'INSERT INTO %I SELECT * FROM moved',
+                       v_default, p_column, v_from, p_column, v_to, v_name);
+        PERFORM set_config('restaurant.moving_partition_rows', 'off', true);
+    END IF;
+
+    EXECUTE format('ALTER TABLE %I ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                   p_parent, v_name, v_from, v_to);
+    RETURN TRUE;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION fn_ensure_monthly_partitions(p_parent TEXT, p_column TEXT,
+                                                        p_from TIMESTAMPTZ, p_to TIMESTAMPTZ)
+RETURNS INT AS $$
+DECLARE
+    v_month DATE;
+    v_created INT := 0;
+BEGIN
+    -- Serialize maintenance runs coming from several application nodes
+    PERFORM pg_advisory_xact_lock(hashtext('fn_ensure_monthly_partitions'));
+
+    FOR v_month IN
+        SELECT generate_series(date_trunc('month', p_from AT TIME ZONE 'UTC'),
+                               date_trunc('month', p_to AT TIME ZONE 'UTC'),
+                               INTERVAL '1 month')::date
+    LOOP
+        IF fn_create_monthly_partition(p_parent, p_column, v_month) THEN
+            v_created := v_created + 1;
+        END IF;
+    END LOOP;
+
+    RETURN v_created;
+END;
+$$ LANGUAGE plpgsql;
+
+COMMENT ON FUNCTION fn_ensure_monthly_partitions(TEXT, TEXT, TIMESTAMPTZ, TIMESTAMPTZ) IS
+'Creates missing monthly partitions <parent>_pYYYY_MM covering [p_from, p_to]; called by the partition maintenance job';
+
+-- ============================================
+-- 2) MOVE EXISTING HEAP TABLES ASIDE
+-- ============================================
+
+DROP TRIGGER order_items_after_ins_upd_del ON order_items;
+DROP TRIGGER orders_after_update ON orders;
+DROP TRIGGER ts_orders ON orders;
+
+ALTER TABLE sales RENAME TO sales_legacy;
+ALTER TABLE order_items RENAME TO order_items_legacy;
+ALTER TABLE orders RENAME TO orders_legacy;
+
+-- ============================================
+-- 3) PARTITIONED TABLES
+-- ============================================
+
+CREATE TABLE orders (
+    id BIGINT NOT NULL DEFAULT nextval('orders_id_seq'),
+    order_time TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now(),
+    total NUMERIC(12,2) NOT NULL DEFAULT 0.00,
+    status order_status NOT NULL DEFAULT 'PENDING',
+
+    client_id BIGINT REFERENCES clients(id) ON DELETE SET NULL,
+    reservation_id BIGINT REFERENCES reservations(id) ON DELETE SET NULL,
+
+    notes TEXT,
+    created_by_user_id BIGINT REFERENCES users(id) ON DELETE SET NULL,
+
+    created_at TIMESTAMP WITH TIME ZONE DEFAULT now(),
+    updated_at TIMESTAMP WITH TIME ZONE DEFAULT now()
+) PARTITION BY RANGE (order_time);
+
+CREATE TABLE order_items (
+    id BIGINT NOT NULL DEFAULT nextval('order_items_id_seq'),
+    order_id BIGINT NOT NULL,
+    dish_id BIGINT NOT NULL REFERENCES dishes(id) ON DELETE RESTRICT,
+    quantity INT NOT NULL DEFAULT 1 CHECK (quantity > 0),
+    unit_price NUMERIC(12,2) NOT NULL CHECK (unit_price >= 0),
+
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now()
+) PARTITION BY RANGE (created_at);
+
+CREATE TABLE sales (
+    id BIGINT NOT NULL DEFAULT nextval('sales_id_seq'),
+    sale_time TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now(),
+    total NUMERIC(12,2) NOT NULL,
+    payment_method payment_method,
+    order_id BIGINT NOT NULL,
+    receipt_number VARCHAR(100),
+
+    processed_by_user_id BIGINT REFERENCES users(id) ON DELETE SET NULL
+) PARTITION BY RANGE (sale_time);
+
+-- Rows outside every monthly range land here until the matching partition is created
+CREATE TABLE orders_default PARTITION OF orders DEFAULT;
+CREATE TABLE order_items_default PARTITION OF order_items DEFAULT;
+CREATE TABLE sales_default PARTITION OF sales DEFAULT;
+
+SELECT fn_ensure_monthly_partitions('orders', 'order_time',
+       COALESCE((SELECT min(order_time) FROM orders_legacy), now()), now() + INTERVAL '3 months');
+SELECT fn_ensure_monthly_partitions('order_items', 'created_at',
+       COALESCE((SELECT min(COALESCE(oi.created_at, o.order_time, now()))
+                 FROM order_items_legacy oi LEFT JOIN orders_legacy o ON o.id = oi.order_id), now()),
+       now() + INTERVAL '3 months');
+SELECT fn_ensure_monthly_partitions('sales', 'sale_time',
+       COALESCE((SELECT min(sale_time) FROM sales_legacy), now()), now() + INTERVAL '3 months');
+
+-- ============================================
+-- 4) COPY DATA AND DROP HEAP TABLES
+-- ============================================
+
+INSERT INTO orders (id, order_time, total, status, client_id, reservation_id, notes,
+                    created_by_user_id, created_at, updated_at)
+SELECT id, COALESCE(order_time, created_at, now()), total, status, client_id, reservation_id, notes,
+       created_by_user_id, created_at, updated_at
+FROM orders_legacy;
+
+INSERT INTO order_items (id, order_id, dish_id, quantity, unit_price, created_at)
+SELECT oi.id, oi.order_id, oi.dish_id, oi.quantity, oi.unit_price, COALESCE(oi.created_at, o.order_time, now())
+FROM order_items_legacy oi
+LEFT JOIN orders_legacy o ON o.id = oi.order_id;
+
+INSERT INTO sales (id, sale_time, total, payment_method, order_id, receipt_number, processed_by_user_id)
+SELECT id, COALESCE(sale_time, now()), total, payment_method, order_id, receipt_number, processed_by_user_id
+FROM sales_legacy;
+
+-- Keep the id sequences alive when the heap tables are dropped
+ALTER SEQUENCE orders_id_seq OWNED BY orders.id;
+ALTER SEQUENCE order_items_id_seq OWNED BY order_items.id;
+ALTER SEQUENCE sales_id_seq OWNED BY sales.id;
+
+DROP TABLE sales_legacy;
+DROP TABLE order_items_legacy;
+DROP TABLE orders_legacy;
+
+-- ============================================
+-- 5) KEYS AND INDEXES (created per partition automatically)
+-- ============================================
+
+ALTER TABLE orders ADD PRIMARY KEY (id, order_time);
+ALTER TABLE order_items ADD PRIMARY KEY (id, created_at);
+ALTER TABLE sales ADD PRIMARY KEY (id, sale_time);
+
+CREATE INDEX idx_orders_client_id ON orders(client_id);
+CREATE INDEX idx_orders_status ON orders(status);
+CREATE INDEX idx_orders_order_time ON orders(order_time);
+CREATE INDEX idx_orders_created_by ON orders(created_by_user_id);
+CREATE INDEX idx_orders_client_status ON orders(client_id, status);
+
+CREATE INDEX idx_order_items_order_id ON order_items(order_id);
+CREATE INDEX idx_order_items_dish_id ON order_items(dish_id);
+
+CREATE INDEX idx_sales_sale_time ON sales(sale_time);
+CREATE INDEX idx_sales_payment_method ON sales(payment_method);
+CREATE INDEX idx_sales_processed_by ON sales(processed_by_user_id);
+CREATE INDEX idx_sales_order_id ON sales(order_id);
+
+-- ============================================
+-- 6) REFERENTIAL INTEGRITY FOR orders(id)
+-- ============================================
+
+CREATE OR REPLACE FUNCTION trg_order_items_check_order() RETURNS TRIGGER AS $$
+BEGIN
+    PERFORM 1 FROM orders WHERE id = NEW.order_id FOR KEY SHARE;
+    IF NOT FOUND THEN
+        RAISE EXCEPTION 'insert or update on table "order_items" violates foreign key constraint "order_items_order_id_fkey"'
+            USING ERRCODE = 'foreign_key_violation',
+                  DETAIL = format('Key (order_id)=(%s) is not present in table "orders".', NEW.order_id);
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION trg_sales_check_order() RETURNS TRIGGER AS $$
+BEGIN
+    -- Locking the order row serializes concurrent sales for the same order,
+    -- which makes the uniqueness check below race-free
+    PERFORM 1 FROM orders WHERE id = NEW.order_id FOR NO KEY UPDATE;
+    IF NOT FOUND THEN
+        RAISE EXCEPTION 'insert or update on table "sales" violates foreign key constraint "sales_order_id_fkey"'
+            USING ERRCODE = 'foreign_key_violation',
+                  DETAIL = format('Key (order_id)=(%s) is not present in table "orders".', NEW.order_id);
+    END IF;
+
+    IF EXISTS (SELECT 1 FROM sales WHERE order_id = NEW.order_id AND id <> NEW.id) THEN
+        RAISE EXCEPTION 'duplicate key value violates unique constraint "sales_order_id_key"'
+            USING ERRCODE = 'unique_violation',
+                  DETAIL = format('Key (order_id)=(%s) already exists.', NEW.order_id);
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION trg_orders_after_delete() RETURNS TRIGGER AS $$
+BEGIN
+    -- Rows moved between partitions are not real deletes
+    IF current_setting('restaurant.moving_partition_rows', true) = 'on'
+       OR EXISTS (SELECT 1 FROM orders WHERE id = OLD.id) THEN
+        RETURN OLD;
+    END IF;
+
+    DELETE FROM order_items WHERE order_id = OLD.id;
+    DELETE FROM sales WHERE order_id = OLD.id;
+    RETURN OLD;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Same as V2, but ignores rows moved out of a default partition by fn_create_monthly_partition
+CREATE OR REPLACE FUNCTION trg_order_items_changed() RETURNS TRIGGER AS $$
+BEGIN
+    IF current_setting('restaurant.moving_partition_rows', true) = 'on' THEN
+        RETURN NEW;
+    END IF;
+    PERFORM fn_update_order_total(COALESCE(NEW.order_id, OLD.order_id));
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER order_items_check_order
+BEFORE INSERT OR UPDATE OF order_id ON order_items
+FOR EACH ROW EXECUTE FUNCTION trg_order_items_check_order();
+
+CREATE TRIGGER sales_check_order
+BEFORE INSERT OR UPDATE OF order_id ON sales
+FOR EACH ROW EXECUTE FUNCTION trg_sales_check_order();
+
+CREATE TRIGGER orders_after_delete
+AFTER DELETE ON orders
+FOR EACH ROW EXECUTE FUNCTION trg_orders_after_delete();
+
+-- ============================================
+-- 7) RE-ATTACH V2 TRIGGERS
+-- ============================================
+
+CREATE TRIGGER order_items_after_ins_upd_del
+AFTER INSERT OR UPDATE OR DELETE ON order_items
+FOR EACH ROW EXECUTE FUNCTION trg_order_items_changed();
+
+CREATE TRIGGER orders_after_update
+AFTER UPDATE ON orders
+FOR EACH ROW EXECUTE FUNCTION trg_orders_after_update();
+
+CREATE TRIGGER ts_orders BEFORE UPDATE ON orders
+    FOR EACH ROW EXECUTE FUNCTION fn_update_timestamp();
+
+COMMENT ON TABLE orders IS 'Заказы клиентов (партиционировано по месяцам order_time)';
+COMMENT ON TABLE order_items IS 'Позиции в заказе (партиционировано по месяцам created_at)';
+COMMENT ON TABLE sales IS 'Оплаты (партиционировано по месяцам sale_time)';
+COMMENT ON COLUMN orders.total IS 'Auto-calculated sum of order_items. Updated by trigger fn_update_order_total';
+
+-- End of V12
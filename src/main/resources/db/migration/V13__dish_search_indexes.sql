@@ -0,0 +1,10 @@
+-- V13: Trigram indexes for the dish search endpoint (GET /api/dishes/search)
+-- idx_dishes_name_trgm already exists (V3); category and description are searched on request
+
+CREATE INDEX IF NOT EXISTS idx_dishes_category_trgm ON dishes USING gin(category gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_dishes_description_trgm ON dishes USING gin(description gin_trgm_ops);
+
+COMMENT ON INDEX idx_dishes_category_trgm IS 'Trigram index for optional dish search by category';
+COMMENT ON INDEX idx_dishes_description_trgm IS 'Trigram index for optional dish search by description';
+
+-- End of V13
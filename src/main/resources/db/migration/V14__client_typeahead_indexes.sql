@@ -0,0 +1,48 @@
+-- V14: Indexes for client typeahead lookup (GET /api/clients/search)
+
+-- ============================================
+-- Name tokens: one row per word of clients.full_name.
+-- "C" collation lets the primary key serve LIKE 'prefix%' as an ordered range scan,
+-- so LIMIT stops after the first matches even for very short prefixes.
+-- ============================================
+
+CREATE TABLE client_name_tokens (
+    token TEXT COLLATE "C" NOT NULL,
+    client_id BIGINT NOT NULL REFERENCES clients(id) ON DELETE CASCADE,
+    PRIMARY KEY (token, client_id)
+);
+
+CREATE INDEX idx_client_name_tokens_client ON client_name_tokens(client_id, token);
+
+CREATE OR REPLACE FUNCTION trg_clients_refresh_name_tokens() RETURNS TRIGGER AS $$
+BEGIN
+    DELETE FROM client_name_tokens WHERE client_id = NEW.id;
+    INSERT INTO client_name_tokens (token, client_id)
+    SELECT DISTINCT w, NEW.id
+    FROM regexp_split_to_table(lower(NEW.full_name), '[[:space:]''-]+') AS w
+    WHERE w <> '';
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER clients_refresh_name_tokens
+    AFTER INSERT OR UPDATE OF full_name ON clients
+    FOR EACH ROW EXECUTE FUNCTION trg_clients_refresh_name_tokens();
+
+INSERT INTO client_name_tokens (token, client_id)
+SELECT DISTINCT w, c.id
+FROM clients c, regexp_split_to_table(lower(c.full_name), '[[:space:]''-]+') AS w
+WHERE w <> '';
+
+-- ============================================
+-- Prefix search on email and on phone digits (formatting characters stripped)
+-- ============================================
+
+CREATE INDEX IF NOT EXISTS idx_clients_email_prefix ON clients(lower(email) text_pattern_ops);
+CREATE INDEX IF NOT EXISTS idx_clients_phone_digits ON clients(regexp_replace(phone, '\D', '', 'g') text_pattern_ops);
+
+COMMENT ON TABLE client_name_tokens IS 'Words of clients.full_name, maintained by trigger - typeahead prefix index';
+COMMENT ON INDEX idx_clients_email_prefix IS 'Prefix typeahead on client emails';
+COMMENT ON INDEX idx_clients_phone_digits IS 'Prefix typeahead on client phone digits';
+
+-- End of V14
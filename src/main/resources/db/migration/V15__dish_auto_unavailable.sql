@@ -0,0 +1,9 @@
+-- V15: Flag for dishes switched off by the stock projection (StockProjectionService)
+-- Only auto-flagged dishes are switched back on once stock is replenished,
+-- dishes disabled by a manager stay disabled
+
+ALTER TABLE dishes ADD COLUMN IF NOT EXISTS auto_unavailable BOOLEAN NOT NULL DEFAULT false;
+
+COMMENT ON COLUMN dishes.auto_unavailable IS 'true when is_available was cleared because an ingredient ran out';
+
+-- End of V15
@@ -0,0 +1,24 @@
+-- V16: Daily ingredient consumption rollup for forecasting (InventoryForecastService)
+-- Filled incrementally from completed orders (sales) x recipes, so forecasts never
+-- scan the order history itself
+
+CREATE TABLE ingredient_daily_consumption (
+    ingredient_id BIGINT NOT NULL REFERENCES ingredients(id) ON DELETE CASCADE,
+    day DATE NOT NULL,
+    quantity NUMERIC(16,4) NOT NULL,
+    PRIMARY KEY (ingredient_id, day)
+);
+
+CREATE INDEX idx_ingredient_daily_consumption_day ON ingredient_daily_consumption(day);
+
+-- Progress of incremental jobs: sales up to processed_until are in the rollup
+CREATE TABLE job_watermarks (
+    job_name VARCHAR(100) PRIMARY KEY,
+    processed_until TIMESTAMP WITH TIME ZONE NOT NULL,
+    updated_at TIMESTAMP WITH TIME ZONE DEFAULT now()
+);
+
+COMMENT ON TABLE ingredient_daily_consumption IS 'Расход ингредиентов по дням (UTC), по рецептам завершённых заказов';
+COMMENT ON TABLE job_watermarks IS 'Позиция инкрементальных фоновых задач';
+
+-- End of V16
@@ -0,0 +1,234 @@
+-- V17: Append-only stock movement ledger with snapshots (StockLedgerService)
+-- Every stock change is appended to stock_movements as a signed quantity instead of
+-- updating ingredients.stock_quantity in place. Current stock = latest snapshot + later
+-- movements; the compaction job appends snapshots so that tail stays short.
+
+CREATE TYPE stock_movement_type AS ENUM ('INITIAL', 'SUPPLY', 'SALE', 'ADJUSTMENT');
+
+-- ============================================
+-- 1) LEDGER AND SNAPSHOTS
+-- ============================================
+
+-- supply_id / order_id are plain references: orders is partitioned, and history
+-- must survive the deletion of the document that caused the movement
+CREATE TABLE stock_movements (
+    id BIGSERIAL PRIMARY KEY,
+    ingredient_id BIGINT NOT NULL REFERENCES ingredients(id) ON DELETE CASCADE,
+    movement_type stock_movement_type NOT NULL,
+    quantity NUMERIC(14,4) NOT NULL CHECK (quantity <> 0),
+    supply_id BIGINT,
+    order_id BIGINT,
+    note TEXT,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT clock_timestamp()
+);
+
+CREATE INDEX idx_stock_movements_ingredient ON stock_movements(ingredient_id, id);
+CREATE INDEX idx_stock_movements_ingredient_time ON stock_movements(ingredient_id, created_at);
+
+CREATE OR REPLACE FUNCTION trg_stock_movements_append_only() RETURNS TRIGGER AS $$
+BEGIN
+    -- Rows only go away together with their ingredient (ON DELETE CASCADE runs a trigger level down)
+    IF TG_OP = 'DELETE' AND pg_trigger_depth() > 1 THEN
+        RETURN OLD;
+    END IF;
+    RAISE EXCEPTION 'stock_movements is append-only, % is not allowed', TG_OP;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER stock_movements_append_only
+BEFORE UPDATE OR DELETE ON stock_movements
+FOR EACH ROW EXECUTE FUNCTION trg_stock_movements_append_only();
+
+-- Stock of an ingredient including every movement up to last_movement_id
+CREATE TABLE stock_snapshots (
+    ingredient_id BIGINT NOT NULL REFERENCES ingredients(id) ON DELETE CASCADE,
+    last_movement_id BIGINT NOT NULL,
+    quantity NUMERIC(14,4) NOT NULL,
+    taken_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT clock_timestamp(),
+    PRIMARY KEY (ingredient_id, last_movement_id)
+);
+
+CREATE INDEX idx_stock_snapshots_taken_at ON stock_snapshots(ingredient_id, taken_at);
+
+-- Opening balances
+INSERT INTO stock_movements (ingredient_id, movement_type, quantity, note)
+SELECT id, 'INITIAL', stock_quantity, 'Opening balance'
+FROM ingredients
+WHERE stock_quantity <> 0
+ORDER BY id;
+
+INSERT INTO stock_snapshots (ingredient_id, last_movement_id, quantity)
+SELECT i.id, COALESCE((SELECT max(id) FROM stock_movements), 0), i.stock_quantity
+FROM ingredients i;
+
+-- ============================================
+-- 2) DERIVED STOCK
+-- ============================================
+
+CREATE OR REPLACE FUNCTION fn_ingredient_stock(p_ingredient_id BIGINT) RETURNS NUMERIC AS $$
+    SELECT COALESCE(s.quantity, 0) + COALESCE((
+               SELECT SUM(m.quantity)
+               FROM stock_movements m
+               WHERE m.ingredient_id = p_ingredient_id
+                 AND m.id > COALESCE(s.last_movement_id, 0)), 0)
+    FROM (SELECT 1) one
+    LEFT JOIN LATERAL (
+        SELECT quantity, last_movement_id
+        FROM stock_snapshots
+        WHERE ingredient_id = p_ingredient_id
+        ORDER BY last_movement_id DESC
+        LIMIT 1) s ON true;
+$$ LANGUAGE sql STABLE;
+
+-- Point in time: latest snapshot taken by then + movements recorded by then
+CREATE OR REPLACE FUNCTION fn_ingredient_stock_at(p_ingredient_id BIGINT, p_at TIMESTAMP WITH TIME ZONE)
+RETURNS NUMERIC AS $$
+    SELECT COALESCE(s.quantity, 0) + COALESCE((
+               SELECT SUM(m.quantity)
+               FROM stock_movements m
+               WHERE m.ingredient_id = p_ingredient_id
+                 AND m.id > COALESCE(s.last_movement_id, 0)
+                 AND m.created_at <= p_at), 0)
+    FROM (SELECT 1) one
+    LEFT JOIN LATERAL (
+        SELECT quantity, last_movement_id
+        FROM stock_snapshots
+        WHERE ingredient_id = p_ingredient_id AND taken_at <= p_at
+        ORDER BY last_movement_id DESC
+        LIMIT 1) s ON true;
+$$ LANGUAGE sql STABLE;
+
+CREATE VIEW v_ingredient_stock AS
+SELECT i.id AS ingredient_id,
+       COALESCE(s.quantity, 0) + COALESCE(t.quantity, 0) AS stock_quantity
+FROM ingredients i
+LEFT JOIN LATERAL (
+    SELECT quantity, last_movement_id
+    FROM stock_snapshots ss
+    WHERE ss.ingredient_id = i.id
+    ORDER BY last_movement_id DESC
+    LIMIT 1) s ON true
+LEFT JOIN LATERAL (
+    SELECT SUM(m.quantity) AS quantity
+    FROM stock_movements m
+    WHERE m.ingredient_id = i.id AND m.id > COALESCE(s.last_movement_id, 0)) t ON true;
+
+-- Serializes deductions of one ingredient so that two of them cannot both pass the
+-- non-negative check. Additions (supplies) append without any lock.
+CREATE OR REPLACE FUNCTION fn_lock_ingredient_stock(p_ingredient_id BIGINT) RETURNS VOID AS $$
+    SELECT pg_advisory_xact_lock(hashtext('stock_movements'), p_ingredient_id::INT);
+$$ LANGUAGE sql;
+
+-- ingredients.stock_quantity is now the quantity of the latest snapshot, refreshed by compaction
+DROP INDEX IF EXISTS idx_ingredients_low_stock;
+
+COMMENT ON COLUMN ingredients.stock_quantity IS 'Остаток на момент последнего снимка; текущий остаток - v_ingredient_stock';
+
+-- ============================================
+-- 3) TRIGGERS APPEND INSTEAD OF UPDATING ingredients
+-- ============================================
+
+-- Rows inserted with a starting quantity (imports, fixtures) get their opening balance
+CREATE OR REPLACE FUNCTION trg_ingredients_opening_balance() RETURNS TRIGGER AS $$
+BEGIN
+    IF NEW.stock_quantity <> 0 THEN
+        INSERT INTO stock_movements (ingredient_id, movement_type, quantity, note)
+        VALUES (NEW.id, 'INITIAL', NEW.stock_quantity, 'Opening balance');
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER ingredients_opening_balance
+AFTER INSERT ON ingredients
+FOR EACH ROW EXECUTE FUNCTION trg_ingredients_opening_balance();
+
+CREATE OR REPLACE FUNCTION trg_orders_after_update() RETURNS TRIGGER AS $$
+DECLARE
+    rec RECORD;
+    v_sale_exists BOOLEAN;
+    v_current_stock NUMERIC;
+BEGIN
+    IF NEW.status = 'COMPLETED' AND OLD.status IS DISTINCT FROM NEW.status THEN
+
+        -- A) Create sale record if not exists
+        SELECT EXISTS(SELECT 1 FROM sales WHERE order_id = NEW.id) INTO v_sale_exists;
+        IF NOT v_sale_exists THEN
+            INSERT INTO sales (sale_time, total, payment_method, order_id, processed_by_user_id)
+            VALUES (now(), NEW.total, 'OTHER', NEW.id, NEW.created_by_user_id);
+        END IF;
+
+        -- B) Deduct ingredients (ascending ingredient id, so concurrent orders lock in the same order)
+        FOR rec IN
+            SELECT di.ingredient_id,
+                   SUM(oi.quantity * di.quantity) AS qty_to_deduct
+            FROM order_items oi
+            JOIN dish_ingredients di ON oi.dish_id = di.dish_id
+            WHERE oi.order_id = NEW.id
+            GROUP BY di.ingredient_id
+            ORDER BY di.ingredient_id
+        LOOP
+            PERFORM fn_lock_ingredient_stock(rec.ingredient_id);
+            v_current_stock := fn_ingredient_stock(rec.ingredient_id);
+
+            -- ⚠️ SAFETY CHECK: prevent negative stock
+            IF v_current_stock < rec.qty_to_deduct THEN
+                RAISE EXCEPTION 'Insufficient stock for ingredient_id=%: available=%, required=%',
+                    rec.ingredient_id, v_current_stock, rec.qty_to_deduct;
+            END IF;
+
+            INSERT INTO stock_movements (ingredient_id, movement_type, quantity, order_id)
+            VALUES (rec.ingredient_id, 'SALE', -rec.qty_to_deduct, NEW.id);
+        END LOOP;
+    END IF;
+
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION trg_supplies_after_update() RETURNS TRIGGER AS $$
+BEGIN
+    IF NEW.status = 'CONFIRMED' AND OLD.status IS DISTINCT FROM NEW.status THEN
+
+        INSERT INTO stock_movements (ingredient_id, movement_type, quantity, supply_id)
+        SELECT ingredient_id, 'SUPPLY', quantity, NEW.id
+        FROM supply_items
+        WHERE supply_id = NEW.id
+        ORDER BY id;
+
+        UPDATE supplies
+        SET total_cost = (SELECT COALESCE(SUM(quantity * unit_price), 0)
+                          FROM supply_items WHERE supply_id = NEW.id),
+            updated_at = now()
+        WHERE id = NEW.id;
+    END IF;
+
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION fn_get_low_stock_ingredients()
+RETURNS TABLE(ingredient_id BIGINT, ingredient_name VARCHAR, current_stock NUMERIC, min_level NUMERIC) AS $$
+BEGIN
+    RETURN QUERY
+    SELECT i.id, i.name, s.stock_quantity, i.min_stock_level
+    FROM ingredients i
+    JOIN v_ingredient_stock s ON s.ingredient_id = i.id
+    WHERE s.stock_quantity <= i.min_stock_level
+    ORDER BY s.stock_quantity ASC;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION fn_check_dish_available(p_dish_id BIGINT, p_quantity INT DEFAULT 1)
+RETURNS BOOLEAN AS $$
+    SELECT NOT EXISTS (
+        SELECT 1
+        FROM dish_ingredients di
+        WHERE di.dish_id = p_dish_id
+          AND fn_ingredient_stock(di.ingredient_id) < di.quantity * p_quantity);
+$$ LANGUAGE sql STABLE;
+
+COMMENT ON TABLE stock_movements IS 'Журнал движения остатков (только добавление): поставки, списания по заказам, корректировки';
+COMMENT ON TABLE stock_snapshots IS 'Снимки остатков, текущий остаток = последний снимок + последующие движения';
+
+-- End of V17
@@ -0,0 +1,36 @@
+-- V18: Set-based supply confirmation
+-- One grouped pass over supply_items appends one SUPPLY movement per ingredient (ascending id)
+-- and computes total_cost, instead of a movement per line. Supplies take no ingredient locks
+-- (see V17), so a large delivery no longer holds up order completions.
+
+CREATE OR REPLACE FUNCTION trg_supplies_after_update() RETURNS TRIGGER AS $$
+BEGIN
+    IF NEW.status = 'CONFIRMED' AND OLD.status IS DISTINCT FROM NEW.status THEN
+
+        WITH delivered AS (
+            SELECT ingredient_id,
+                   SUM(quantity) AS quantity,
+                   SUM(quantity * unit_price) AS cost
+            FROM supply_items
+            WHERE supply_id = NEW.id
+            GROUP BY ingredient_id
+        ), movements AS (
+            INSERT INTO stock_movements (ingredient_id, movement_type, quantity, supply_id)
+            SELECT ingredient_id, 'SUPPLY', quantity, NEW.id
+            FROM delivered
+            ORDER BY ingredient_id
+        )
+        UPDATE supplies
+        SET total_cost = (SELECT COALESCE(SUM(cost), 0) FROM delivered),
+            updated_at = now()
+        WHERE id = NEW.id;
+    END IF;
+
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+COMMENT ON FUNCTION trg_supplies_after_update() IS
+'Подтверждение поставки: одно движение SUPPLY на ингредиент и пересчет total_cost за один проход';
+
+-- End of V18
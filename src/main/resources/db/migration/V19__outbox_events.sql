@@ -0,0 +1,31 @@
+-- V19: Transactional outbox for domain events (OutboxService)
+-- Service writes insert their event in the same transaction as the change itself; the relay
+-- reads unpublished rows in id order, dispatches them and marks them published, so an event
+-- exists exactly when its change committed and is delivered at least once.
+
+CREATE TABLE outbox_events (
+    id BIGSERIAL PRIMARY KEY,
+    aggregate_type VARCHAR(50) NOT NULL,
+    aggregate_id BIGINT NOT NULL,
+    event_type VARCHAR(100) NOT NULL,
+    payload JSONB NOT NULL,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT clock_timestamp(),
+    published_at TIMESTAMP WITH TIME ZONE,
+    attempts INT NOT NULL DEFAULT 0,
+    last_error TEXT,
+    -- Set once attempts reach the limit: the event is parked and no longer blocks the ones after it
+    failed_at TIMESTAMP WITH TIME ZONE
+);
+
+-- Only the backlog is indexed for the relay, so the index stays small however long history is kept
+CREATE INDEX idx_outbox_events_pending ON outbox_events(id)
+    WHERE published_at IS NULL AND failed_at IS NULL;
+CREATE INDEX idx_outbox_events_aggregate ON outbox_events(aggregate_type, aggregate_id, id);
+CREATE INDEX idx_outbox_events_published_at ON outbox_events(published_at)
+    WHERE published_at IS NOT NULL;
+
+COMMENT ON TABLE outbox_events IS 'Исходящие доменные события (заказы, продажи, бронирования, поставки), записываются в одной транзакции с изменением';
+COMMENT ON COLUMN outbox_events.published_at IS 'Время доставки подписчикам; NULL - ещё не доставлено';
+COMMENT ON COLUMN outbox_events.failed_at IS 'Доставка прекращена после исчерпания попыток';
+
+-- End of V19
@@ -0,0 +1,21 @@
+-- V20: Idempotency keys for retried POST requests (IdempotencyService)
+-- One row per (user, Idempotency-Key): claimed before the request runs, completed with the
+-- response it produced. Keys and request fingerprints are stored as SHA-256 digests.
+
+CREATE TABLE idempotency_keys (
+    key_hash BYTEA PRIMARY KEY,
+    request_hash BYTEA NOT NULL,
+    -- NULL until the first request has finished
+    status_code SMALLINT,
+    content_type VARCHAR(100),
+    body BYTEA,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now(),
+    completed_at TIMESTAMP WITH TIME ZONE
+);
+
+CREATE INDEX idx_idempotency_keys_created_at ON idempotency_keys(created_at);
+
+COMMENT ON TABLE idempotency_keys IS 'Ключи идемпотентности POST-запросов и сохранённые ответы для повторов';
+COMMENT ON COLUMN idempotency_keys.request_hash IS 'Отпечаток запроса (метод, путь, тело): тот же ключ с другим запросом отклоняется';
+
+-- End of V20
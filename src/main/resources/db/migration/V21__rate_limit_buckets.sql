@@ -0,0 +1,20 @@
+-- V21: Rate limit buckets shared by all backend nodes (RateLimitInterceptor, bucket4j JDBC)
+-- One row per client key; bucket4j locks it with SELECT ... FOR UPDATE and stores the
+-- serialized bucket in state. Rows idle for longer than a refill period describe a full
+-- bucket and are purged.
+
+CREATE TABLE rate_limit_buckets (
+    id VARCHAR(255) PRIMARY KEY,
+    state BYTEA,
+    updated_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now()
+);
+
+CREATE INDEX idx_rate_limit_buckets_updated_at ON rate_limit_buckets(updated_at);
+
+CREATE TRIGGER ts_rate_limit_buckets BEFORE UPDATE ON rate_limit_buckets
+    FOR EACH ROW EXECUTE FUNCTION fn_update_timestamp();
+
+COMMENT ON TABLE rate_limit_buckets IS 'Состояние ограничителей частоты запросов, общее для всех узлов';
+COMMENT ON COLUMN rate_limit_buckets.state IS 'Сериализованное состояние bucket4j';
+
+-- End of V21
@@ -0,0 +1,19 @@
+-- V22: Hourly sales and covers rollup for the weekday x hour heatmap (SalesHeatmapService)
+-- One row per local day and hour (statistics.heatmap.time-zone). Recent days are rebuilt
+-- incrementally from sales and reservations; the heatmap sums whole weeks of rows, so it
+-- never scans the history itself.
+
+CREATE TABLE hourly_activity (
+    day DATE NOT NULL,
+    hour SMALLINT NOT NULL CHECK (hour BETWEEN 0 AND 23),
+    sales_count INT NOT NULL DEFAULT 0,
+    revenue NUMERIC(14,2) NOT NULL DEFAULT 0,
+    reservations_count INT NOT NULL DEFAULT 0,
+    covers INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (day, hour)
+);
+
+COMMENT ON TABLE hourly_activity IS 'Продажи и гости по бронированиям по часам местного времени (для тепловой карты загрузки)';
+COMMENT ON COLUMN hourly_activity.covers IS 'Число гостей (party_size) по неотменённым бронированиям, начавшимся в этот час';
+
+-- End of V22
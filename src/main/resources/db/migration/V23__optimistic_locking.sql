@@ -0,0 +1,17 @@
+-- V23: Row versions for optimistic locking (JPA @Version) on orders, reservations, ingredients
+-- and supplies. Every update through the application bumps the version and checks the one it
+-- read, so concurrent read-modify-write requests fail with 409 instead of overwriting each other.
+-- Trigger-maintained columns (orders.total, supplies.total_cost, ingredients.stock_quantity)
+-- are written without bumping the version.
+
+ALTER TABLE orders ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE reservations ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE ingredients ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE supplies ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+
+COMMENT ON COLUMN orders.version IS 'Версия строки для оптимистической блокировки';
+COMMENT ON COLUMN reservations.version IS 'Версия строки для оптимистической блокировки';
+COMMENT ON COLUMN ingredients.version IS 'Версия строки для оптимистической блокировки';
+COMMENT ON COLUMN supplies.version IS 'Версия строки для оптимистической блокировки';
+
+-- End of V23
@@ -0,0 +1,18 @@
+-- V24: Per-day receipt number counters (ReceiptNumberService)
+-- Nodes reserve blocks of numbers by advancing next_value in a short transaction of its own
+-- and hand them out from memory, so checkouts do not queue on this row. A block that was
+-- reserved last and not used up is given back on shutdown and at the end of the day.
+
+CREATE TABLE receipt_counters (
+    business_day DATE PRIMARY KEY,
+    next_value BIGINT NOT NULL CHECK (next_value > 0),
+    updated_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now()
+);
+
+CREATE TRIGGER ts_receipt_counters BEFORE UPDATE ON receipt_counters
+    FOR EACH ROW EXECUTE FUNCTION fn_update_timestamp();
+
+COMMENT ON TABLE receipt_counters IS 'Счётчики номеров чеков по рабочим дням';
+COMMENT ON COLUMN receipt_counters.next_value IS 'Первый номер, ещё не выделенный ни одному узлу';
+
+-- End of V24
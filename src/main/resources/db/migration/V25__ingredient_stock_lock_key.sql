@@ -0,0 +1,14 @@
+-- V25: fn_lock_ingredient_stock without narrowing the ingredient id to INT
+-- The two-int form cast p_ingredient_id::INT, which fails with "integer out of range" once ids
+-- pass 2^31. The lock now takes a single 64-bit key: the namespace hash in the high 32 bits,
+-- the low 32 bits of the id below it. Ids that differ by a multiple of 2^32 share a lock, which
+-- only serializes their deductions.
+
+CREATE OR REPLACE FUNCTION fn_lock_ingredient_stock(p_ingredient_id BIGINT) RETURNS VOID AS $$
+    SELECT pg_advisory_xact_lock(
+        (hashtext('stock_movements')::BIGINT << 32) | (p_ingredient_id & x'FFFFFFFF'::BIGINT));
+$$ LANGUAGE sql;
+
+COMMENT ON FUNCTION fn_lock_ingredient_stock(BIGINT) IS 'Блокировка списаний одного ингредиента до конца транзакции';
+
+-- End of V25
@@ -0,0 +1,56 @@
+-- V26: Unique receipt numbers
+-- sales is partitioned by sale_time, and a unique index on a partitioned table has to contain the
+-- partition key, which would make it unique per (number, moment) only. The numbers are therefore
+-- kept unique in a plain table maintained by a trigger on sales. A receipt number starts with its
+-- business day (20261019-000042), so the key is (business day, number per day). Numbers of
+-- archived partitions stay here, so they are never issued again.
+
+CREATE TABLE sale_receipt_numbers (
+    receipt_number VARCHAR(100) PRIMARY KEY,
+    sale_id BIGINT NOT NULL
+);
+
+CREATE INDEX idx_sale_receipt_numbers_sale ON sale_receipt_numbers(sale_id);
+
+CREATE OR REPLACE FUNCTION trg_sales_receipt_number() RETURNS TRIGGER AS $$
+BEGIN
+    -- Rows moved out of a default partition by fn_create_monthly_partition keep their number
+    IF current_setting('restaurant.moving_partition_rows', true) = 'on' THEN
+        RETURN NULL;
+    END IF;
+    IF TG_OP <> 'INSERT' AND OLD.receipt_number IS NOT NULL THEN
+        DELETE FROM sale_receipt_numbers WHERE receipt_number = OLD.receipt_number AND sale_id = OLD.id;
+    END IF;
+    -- A number already used by another sale fails here with a unique violation
+    IF TG_OP <> 'DELETE' AND NEW.receipt_number IS NOT NULL THEN
+        INSERT INTO sale_receipt_numbers (receipt_number, sale_id) VALUES (NEW.receipt_number, NEW.id);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER sales_receipt_number
+AFTER INSERT OR DELETE OR UPDATE OF receipt_number ON sales
+FOR EACH ROW EXECUTE FUNCTION trg_sales_receipt_number();
+
+-- Numbers sent by clients before V24 may repeat; the oldest sale keeps such a number
+DO $$
+DECLARE
+    v_duplicates BIGINT;
+BEGIN
+    INSERT INTO sale_receipt_numbers (receipt_number, sale_id)
+    SELECT DISTINCT ON (receipt_number) receipt_number, id
+    FROM sales
+    WHERE receipt_number IS NOT NULL
+    ORDER BY receipt_number, id;
+
+    SELECT count(*) - (SELECT count(*) FROM sale_receipt_numbers) INTO v_duplicates
+    FROM sales WHERE receipt_number IS NOT NULL;
+    IF v_duplicates > 0 THEN
+        RAISE NOTICE '% sales share a receipt number with an older sale', v_duplicates;
+    END IF;
+END $$;
+
+COMMENT ON TABLE sale_receipt_numbers IS 'Выданные номера чеков, уникальность по дню и номеру';
+
+-- End of V26
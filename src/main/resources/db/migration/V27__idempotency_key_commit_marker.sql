@@ -0,0 +1,15 @@
+-- V27: Idempotency claims bound to the business transaction (IdempotencyService)
+-- The response is stored after the business transaction has committed. A claim that stayed
+-- incomplete past the in-flight timeout used to be taken over and the request run again, even
+-- when its first run had committed. Each claim now carries a token, and every transaction of
+-- the owning request marks the key in the same transaction: a marked key is never taken over,
+-- and a run whose claim was taken over cannot commit.
+
+ALTER TABLE idempotency_keys
+    ADD COLUMN claim_token UUID,
+    ADD COLUMN committed_at TIMESTAMP WITH TIME ZONE;
+
+COMMENT ON COLUMN idempotency_keys.claim_token IS 'Владелец ключа: меняется, когда незавершённый ключ перехватывает повтор';
+COMMENT ON COLUMN idempotency_keys.committed_at IS 'Время первой фиксации транзакции запроса: такой ключ больше не перехватывается';
+
+-- End of V27
@@ -0,0 +1,21 @@
+-- V28: Ledger-wide lock for large stocktakes
+-- A stocktake locked every counted ingredient, one advisory lock each, and those share the
+-- server's lock table (max_locks_per_transaction x connections), so a full-inventory count could
+-- exhaust it. Every per-ingredient lock now also takes one shared ledger lock; a large stocktake
+-- takes that lock exclusively instead: it waits for the deductions in progress and holds new
+-- ones back until it commits, using a single lock. Supplies append without locking, as before.
+
+CREATE OR REPLACE FUNCTION fn_lock_ingredient_stock(p_ingredient_id BIGINT) RETURNS VOID AS $$
+    SELECT pg_advisory_xact_lock_shared(hashtext('stock_ledger'), 0);
+    SELECT pg_advisory_xact_lock(
+        (hashtext('stock_movements')::BIGINT << 32) | (p_ingredient_id & x'FFFFFFFF'::BIGINT));
+$$ LANGUAGE sql;
+
+CREATE OR REPLACE FUNCTION fn_lock_stock_ledger() RETURNS VOID AS $$
+    SELECT pg_advisory_xact_lock(hashtext('stock_ledger'), 0);
+$$ LANGUAGE sql;
+
+COMMENT ON FUNCTION fn_lock_ingredient_stock(BIGINT) IS 'Блокировка списаний одного ингредиента до конца транзакции';
+COMMENT ON FUNCTION fn_lock_stock_ledger() IS 'Блокировка списаний всех ингредиентов до конца транзакции (большая инвентаризация)';
+
+-- End of V28
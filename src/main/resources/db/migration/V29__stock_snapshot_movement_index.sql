@@ -0,0 +1,8 @@
+-- V29: Stock snapshots by last movement id
+-- The integrity audit checks stock snapshots in ranges of stock_movements ids: each snapshot
+-- against the previous one plus the movements in between. The ranges are looked up by
+-- last_movement_id alone, which the (ingredient_id, last_movement_id) key does not serve.
+
+CREATE INDEX idx_stock_snapshots_last_movement ON stock_snapshots(last_movement_id);
+
+-- End of V29
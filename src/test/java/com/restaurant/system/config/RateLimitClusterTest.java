@@ -0,0 +1,97 @@
+package com.restaurant.system.config;
+
+import com.restaurant.system.RestaurantSystemApplication;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Two application instances on one database, like two replicas behind a load balancer
+@Testcontainers(disabledWithoutDocker = true)
+class RateLimitClusterTest {
+
+    private static final int AUTH_ATTEMPTS = 5;
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16");
+
+    private static final List<ConfigurableApplicationContext> nodes = new ArrayList<>();
+    private static final HttpClient http = HttpClient.newHttpClient();
+
+    @BeforeAll
+    static void startNodes() {
+        for (int i = 0; i < 2; i++) {
+            nodes.add(new SpringApplicationBuilder(RestaurantSystemApplication.class).run(
+                    "--server.port=0",
+                    "--spring.datasource.url=" + postgres.getJdbcUrl(),
+                    "--spring.datasource.username=" + postgres.getUsername(),
+                    "--spring.datasource.password=" + postgres.getPassword(),
+                    "--rate-limit.auth-attempts=" + AUTH_ATTEMPTS));
+        }
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        nodes.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    void limitIsSharedAcrossNodes() throws Exception {
+        int allowed = 0;
+        for (int i = 0; i < 4 * AUTH_ATTEMPTS; i++) {
+            if (signIn(nodes.get(i % 2), "203.0.113.7") != 429) {
+                allowed++;
+            }
+        }
+
+        assertThat(allowed).isEqualTo(AUTH_ATTEMPTS);
+        // Another client still has its own budget, on either node
+        assertThat(signIn(nodes.get(0), "203.0.113.8")).isNotEqualTo(429);
+        assertThat(signIn(nodes.get(1), "203.0.113.8")).isNotEqualTo(429);
+    }
+
+    @Test
+    void rejectedClientsAreAnsweredWithoutTheDatabase() throws Exception {
+        String ip = "198.51.100.23";
+        for (int i = 0; i < AUTH_ATTEMPTS + 1; i++) {
+            signIn(nodes.get(0), ip);
+        }
+        JdbcTemplate jdbcTemplate = nodes.get(0).getBean(JdbcTemplate.class);
+        byte[] state = jdbcTemplate.queryForObject(
+                "SELECT state FROM rate_limit_buckets WHERE id = ?", byte[].class, "auth:" + ip);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(signIn(nodes.get(0), ip)).isEqualTo(429);
+        }
+
+        // Bucket state is unchanged: the repeated rejections never reached the table
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT state FROM rate_limit_buckets WHERE id = ?", byte[].class, "auth:" + ip)).isEqualTo(state);
+    }
+
+    private static int signIn(ConfigurableApplicationContext node, String clientIp) throws IOException, InterruptedException {
+        int port = ((WebServerApplicationContext) node).getWebServer().getPort();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/auth/signin"))
+                .header("Content-Type", "application/json")
+                .header("X-Forwarded-For", clientIp)
+                .POST(HttpRequest.BodyPublishers.ofString("{\"username\":\"nobody\",\"password\":\"wrong-password\"}"))
+                .build();
+        return http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
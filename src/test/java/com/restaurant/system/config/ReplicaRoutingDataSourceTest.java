@@ -0,0 +1,133 @@
+package com.restaurant.system.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.Network;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.containers.wait.strategy.Wait;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.MountableFile;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Primary + hot standby built with pg_basebackup, streaming from the primary over a shared network
+@Testcontainers(disabledWithoutDocker = true)
+class ReplicaRoutingDataSourceTest {
+
+    private static final Network network = Network.newNetwork();
+
+    @Container
+    private static final PostgreSQLContainer<?> primary = new PostgreSQLContainer<>("postgres:16")
+            .withNetwork(network)
+            .withNetworkAliases("primary")
+            .withCommand("postgres", "-c", "wal_level=replica", "-c", "max_wal_senders=4", "-c", "hot_standby=on")
+            .withCopyToContainer(
+                    MountableFile.forClasspathResource("replication/allow-replication.sh", 0755),
+                    "/docker-entrypoint-initdb.d/allow-replication.sh");
+
+    @Container
+    private static final GenericContainer<?> replica = new GenericContainer<>("postgres:16")
+            .dependsOn(primary)
+            .withNetwork(network)
+            .withExposedPorts(5432)
+            .withCreateContainerCmdModifier(cmd -> cmd.withUser("postgres"))
+            .withEnv("PGPASSWORD", "test")
+            .withCommand("bash", "-c",
+                    "until pg_basebackup -h primary -U test -D /tmp/replica -R -X stream; do sleep 1; done; " +
+                    "chmod 700 /tmp/replica; exec postgres -D /tmp/replica")
+            .waitingFor(Wait.forLogMessage(".*ready to accept read-only connections.*", 1)
+                    .withStartupTimeout(Duration.ofMinutes(2)));
+
+    private HikariDataSource primaryPool;
+    private HikariDataSource replicaPool;
+    private ReplicaRoutingDataSource routingDataSource;
+    private SimpleMeterRegistry meterRegistry;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readOnlyTx;
+    private TransactionTemplate readWriteTx;
+
+    @BeforeEach
+    void setUp() {
+        primaryPool = pool(primary.getJdbcUrl());
+        replicaPool = pool("jdbc:postgresql://" + replica.getHost() + ":" + replica.getMappedPort(5432) + "/test");
+        meterRegistry = new SimpleMeterRegistry();
+
+        routingDataSource = new ReplicaRoutingDataSource(primaryPool, Map.of("replica-1", replicaPool), meterRegistry);
+        routingDataSource.afterPropertiesSet();
+
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        readOnlyTx = new TransactionTemplate(transactionManager);
+        readOnlyTx.setReadOnly(true);
+        readWriteTx = new TransactionTemplate(transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        primaryPool.close();
+        replicaPool.close();
+    }
+
+    @Test
+    void readOnlyTransactionsAreServedByReplica() {
+        Boolean readOnlyInRecovery = readOnlyTx.execute(status -> isInRecovery());
+        Boolean readWriteInRecovery = readWriteTx.execute(status -> isInRecovery());
+
+        assertThat(readOnlyInRecovery).isTrue();
+        assertThat(readWriteInRecovery).isFalse();
+        assertThat(routedConnections("replica-1")).isEqualTo(1.0);
+        assertThat(routedConnections(ReplicaRoutingDataSource.PRIMARY)).isEqualTo(1.0);
+    }
+
+    @Test
+    void readsFallBackToPrimaryWhenReplicaLagExceedsThreshold() {
+        // A negative threshold makes even a fully caught-up replica count as lagging
+        ReplicaLagMonitor monitor = new ReplicaLagMonitor(
+                routingDataSource, Map.of("replica-1", replicaPool), -1, meterRegistry);
+        monitor.checkReplicas();
+
+        assertThat(monitor.getLagSeconds("replica-1")).isGreaterThanOrEqualTo(0.0);
+        assertThat(routingDataSource.getHealthyReplicas()).isEmpty();
+        Boolean servedByReplica = readOnlyTx.execute(status -> isInRecovery());
+        assertThat(servedByReplica).isFalse();
+
+        ReplicaLagMonitor relaxed = new ReplicaLagMonitor(
+                routingDataSource, Map.of("replica-1", replicaPool), 60, meterRegistry);
+        relaxed.checkReplicas();
+
+        assertThat(routingDataSource.getHealthyReplicas()).containsExactly("replica-1");
+        servedByReplica = readOnlyTx.execute(status -> isInRecovery());
+        assertThat(servedByReplica).isTrue();
+    }
+
+    private Boolean isInRecovery() {
+        return jdbcTemplate.queryForObject("SELECT pg_is_in_recovery()", Boolean.class);
+    }
+
+    private double routedConnections(String pool) {
+        return meterRegistry.get("datasource.routing.connections").tag("pool", pool).counter().count();
+    }
+
+    private static HikariDataSource pool(String jdbcUrl) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(jdbcUrl);
+        dataSource.setUsername("test");
+        dataSource.setPassword("test");
+        dataSource.setMaximumPoolSize(2);
+        return dataSource;
+    }
+}
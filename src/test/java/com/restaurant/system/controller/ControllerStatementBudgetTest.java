@@ -0,0 +1,346 @@
+package com.restaurant.system.controller;
+
+import com.restaurant.system.service.DishCostService;
+import com.restaurant.system.service.StockProjectionService;
+import com.restaurant.system.support.MaxStatements;
+import com.restaurant.system.support.StatementCountExtension;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Pins the number of SQL statements issued by each read endpoint against a data set with
+ * several rows per aggregate, so a lazy association touched in a toDTO method fails the build.
+ * Budgets are the counts measured today - lower them when an endpoint gets cheaper.
+ */
+@SpringBootTest(properties = {
+        "statement-budget.mode=FAIL",
+        "statement-budget.response-header=true"
+})
+@AutoConfigureMockMvc
+@Testcontainers(disabledWithoutDocker = true)
+@ExtendWith(StatementCountExtension.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@WithMockUser(roles = "ADMIN")
+class ControllerStatementBudgetTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private StockProjectionService stockProjectionService;
+
+    @Autowired
+    private DishCostService dishCostService;
+
+    @BeforeAll
+    void seed() throws Exception {
+        try (Connection connection = dataSource.getConnection()) {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("statement-budget/seed.sql"));
+        }
+        stockProjectionService.rebuild();
+        dishCostService.rebuild();
+    }
+
+    // Clients
+
+    @Test
+    @MaxStatements(1)
+    void getAllClients() throws Exception {
+        fetch("/api/clients");
+    }
+
+    @Test
+    @MaxStatements(1)
+    void getClientById() throws Exception {
+        fetch("/api/clients/1001");
+    }
+
+    @Test
+    @MaxStatements(1)
+    void searchClients() throws Exception {
+        fetch("/api/clients/search?q=budget cl");
+    }
+
+    // Dishes
+
+    @Test
+    @MaxStatements(1)
+    void getAllDishes() throws Exception {
+        fetch("/api/dishes");
+    }
+
+    @Test
+    @MaxStatements(1)
+    void getDishById() throws Exception {
+        fetch("/api/dishes/1001");
+    }
+
+    @Test
+    @MaxStatements(1)
+    void getDishesByCategory() throws Exception {
+        fetch("/api/dishes/category/Budget");
+    }
+
+    @Test
+    @MaxStatements(1)
+    void getAvailableDishes() throws Exception {
+        fetch("/api/dishes/available");
+    }
+
+    @Test
+    @MaxStatements(1)
+    void getAvailableDishesByCategory() throws Exception {
+        fetch("/api/dishes/available/category/Budget");
+    }
+
+    @Test
+    @MaxStatements(2)
+    void searchDishes() throws Exception {
+        fetch("/api/dishes/search?q=budget stek&searchCategory=true&searchDescription=true");
+    }
+
+    // Served from the in-memory stock projection
+    @Test
+    @MaxStatements(0)
+    void getDishAvailability() throws Exception {
+        fetch("/api/dishes/availability");
+    }
+
+    @Test
+    @MaxStatements(0)
+    void getDishAvailabilityById() throws Exception {
+        fetch("/api/dishes/1001/availability");
+    }
+
+    @Test
+    @MaxStatements(0)
+    void getDishCost() throws Exception {
+        fetch("/api/dishes/1002/cost");
+    }
+
+    // Ingredients
+
+    @Test
+    @MaxStatements(1)
+    void getAllIngredients() throws Exception {
+        fetch("/api/ingredients");
+    }
+
+    @Test
+    @MaxStatements(1)
+    void getIngredientById() throws Exception {
+        fetch("/api/ingredients/1001");
+    }
+
+    @Test
+    @MaxStatements(1)
+    void getLowStockIngredients() throws Exception {
+        fetch("/api/ingredients/low-stock");
+    }
+
+    @Test
+    @MaxStatements(2)
+    void getStockMovements() throws Exception {
+        fetch("/api/ingredients/1001/movements");
+    }
+
+    @Test
+    @MaxStatements(1)
+    void getIngredientStock() throws Exception {
+        fetch("/api/ingredients/1001/stock");
+    }
+
+    // Orders
+
+    @Test
+    @MaxStatements(7)
+    void getAllOrders() throws Exception {
+        fetch("/api/orders");
+    }
+
+    @Test
+    @MaxStatements(4)
+    void getOrderById() throws Exception {
+        fetch("/api/orders/1001");
+    }
+
+    @Test
+    @MaxStatements(4)
+    void getOrdersByClient() throws Exception {
+        fetch("/api/orders/client/1001");
+    }
+
+    @Test
+    @MaxStatements(6)
+    void getOrdersByStatus() throws Exception {
+        fetch("/api/orders/status/COMPLETED");
+    }
+
+    @Test
+    @MaxStatements(3)
+    void getOrderItems() throws Exception {
+        fetch("/api/orders/1001/items");
+    }
+
+    // Reservations
+
+    @Test
+    @MaxStatements(1)
+    void getAllReservations() throws Exception {
+        fetch("/api/reservations");
+    }
+
+    @Test
+    @MaxStatements(2)
+    void getReservationById() throws Exception {
+        fetch("/api/reservations/1001");
+    }
+
+    @Test
+    @MaxStatements(2)
+    void getReservationsByClient() throws Exception {
+        fetch("/api/reservations/client/1001");
+    }
+
+    @Test
+    @MaxStatements(4)
+    void getReservationsByStatus() throws Exception {
+        fetch("/api/reservations/status/ACTIVE");
+    }
+
+    @Test
+    @MaxStatements(2)
+    void getAvailableSlots() throws Exception {
+        OffsetDateTime start = OffsetDateTime.now().plusDays(10);
+        fetch("/api/reservations/available?tableId=1001&startTime={start}&endTime={end}",
+                start, start.plusHours(2));
+    }
+
+    // Sales
+
+    @Test
+    @MaxStatements(1)
+    void getAllSales() throws Exception {
+        fetch("/api/sales");
+    }
+
+    @Test
+    @MaxStatements(1)
+    void getSaleById() throws Exception {
+        fetch("/api/sales/1001");
+    }
+
+    @Test
+    @MaxStatements(2)
+    void getSaleByOrder() throws Exception {
+        fetch("/api/sales/order/1001");
+    }
+
+    @Test
+    @MaxStatements(3)
+    void getSalesBetweenDates() throws Exception {
+        OffsetDateTime now = OffsetDateTime.now();
+        fetch("/api/sales/between?start={start}&end={end}", now.minusDays(1), now.plusDays(1));
+    }
+
+    // Supplies
+
+    @Test
+    @MaxStatements(5)
+    void getAllSupplies() throws Exception {
+        fetch("/api/supplies");
+    }
+
+    @Test
+    @MaxStatements(3)
+    void getSupplyById() throws Exception {
+        fetch("/api/supplies/1001");
+    }
+
+    @Test
+    @MaxStatements(5)
+    void getSuppliesByStatus() throws Exception {
+        fetch("/api/supplies/status/PENDING");
+    }
+
+    @Test
+    @MaxStatements(5)
+    void getSuppliesBySupplier() throws Exception {
+        fetch("/api/supplies/supplier/1001");
+    }
+
+    @Test
+    @MaxStatements(1)
+    void getSupplyItems() throws Exception {
+        fetch("/api/supplies/1001/items");
+    }
+
+    // Statistics
+
+    @Test
+    @MaxStatements(6)
+    void getDashboardStats() throws Exception {
+        fetch("/api/admin/statistics/dashboard");
+    }
+
+    @Test
+    @MaxStatements(2)
+    void getSalesStats() throws Exception {
+        LocalDate today = LocalDate.now();
+        fetch("/api/admin/statistics/sales?from={from}&to={to}", today.minusDays(7), today.plusDays(1));
+    }
+
+    @Test
+    @MaxStatements(0)
+    void getDishMargins() throws Exception {
+        fetch("/api/admin/statistics/dish-margins?sortBy=margin&direction=desc");
+    }
+
+    @Test
+    @MaxStatements(1)
+    void getHeatmap() throws Exception {
+        fetch("/api/admin/statistics/heatmap?weeks=4");
+    }
+
+    private void fetch(String url, Object... uriVariables) throws Exception {
+        mockMvc.perform(get(url, uriVariables))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("X-SQL-Statement-Count"));
+    }
+}
@@ -0,0 +1,120 @@
+package com.restaurant.system.service;
+
+import com.restaurant.system.dto.StocktakeResultDTO;
+import com.restaurant.system.dto.StocktakeVarianceDTO;
+import com.restaurant.system.entity.enums.StockMovementType;
+import com.restaurant.system.exception.NotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * The stocktake variance CTE against a real ledger: counts above, below and equal to the system
+ * stock, with per-ingredient locks (two counts) and with the ledger lock (three counts).
+ */
+@SpringBootTest(properties = "stock-ledger.stocktake.ledger-lock-threshold=2")
+@Testcontainers(disabledWithoutDocker = true)
+class StocktakeVarianceTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private StockLedgerService stockLedgerService;
+
+    private Long flour;
+    private Long sugar;
+    private Long salt;
+
+    @BeforeEach
+    void seed() {
+        flour = ingredient("Flour", "2.50");
+        sugar = ingredient("Sugar", "4.00");
+        salt = ingredient("Salt", null);
+        stockLedgerService.record(flour, StockMovementType.SUPPLY, new BigDecimal("10"), null);
+        stockLedgerService.record(flour, StockMovementType.SALE, new BigDecimal("-2.5"), null);
+        stockLedgerService.record(sugar, StockMovementType.SUPPLY, new BigDecimal("5"), null);
+        stockLedgerService.record(salt, StockMovementType.SUPPLY, new BigDecimal("1"), null);
+    }
+
+    @Test
+    void perIngredientLocks() {
+        StocktakeResultDTO result = stockLedgerService.stocktake(
+                Map.of(sugar, new BigDecimal("5"), flour, new BigDecimal("8")), "Weekly count");
+
+        assertThat(result.getCounted()).isEqualTo(2);
+        assertThat(result.getAdjusted()).isEqualTo(1);
+        assertThat(result.getVariances()).extracting(StocktakeVarianceDTO::getIngredientId)
+                .containsExactly(flour, sugar);
+        StocktakeVarianceDTO flourVariance = result.getVariances().get(0);
+        assertThat(flourVariance.getSystemQuantity()).isEqualByComparingTo("7.5");
+        assertThat(flourVariance.getVariance()).isEqualByComparingTo("0.5");
+        assertThat(flourVariance.getVarianceCost()).isEqualByComparingTo("1.25");
+        assertThat(result.getVariances().get(1).getVariance()).isZero();
+        assertThat(result.getTotalVarianceCost()).isEqualByComparingTo("1.25");
+
+        assertThat(stockLedgerService.getStock(flour, null)).isEqualByComparingTo("8");
+        assertThat(adjustments(flour)).containsExactly(new BigDecimal("0.5000"));
+        assertThat(adjustments(sugar)).isEmpty();
+    }
+
+    @Test
+    void ledgerLock() {
+        StocktakeResultDTO result = stockLedgerService.stocktake(Map.of(
+                flour, new BigDecimal("7.5"), sugar, new BigDecimal("3"), salt, new BigDecimal("1.5")), null);
+
+        assertThat(result.getCounted()).isEqualTo(3);
+        assertThat(result.getAdjusted()).isEqualTo(2);
+        // Sugar: -2 x 4.00; salt has no cost, so its variance costs nothing
+        assertThat(result.getTotalVarianceCost()).isEqualByComparingTo("-8.00");
+        assertThat(stockLedgerService.getStock(sugar, null)).isEqualByComparingTo("3");
+        assertThat(stockLedgerService.getStock(salt, null)).isEqualByComparingTo("1.5");
+        assertThat(adjustments(flour)).isEmpty();
+    }
+
+    @Test
+    void unknownIngredientAppendsNothing() {
+        long missing = salt + 1000;
+        assertThatThrownBy(() -> stockLedgerService.stocktake(
+                Map.of(flour, BigDecimal.ONE, missing, BigDecimal.ONE), null))
+                .isInstanceOf(NotFoundException.class)
+                .hasMessageContaining(String.valueOf(missing));
+        assertThat(adjustments(flour)).isEmpty();
+    }
+
+    private Long ingredient(String name, String costPerUnit) {
+        return jdbcTemplate.queryForObject(
+                "INSERT INTO ingredients (name, unit, stock_quantity, cost_per_unit) VALUES (?, 'kg', 0, ?) RETURNING id",
+                Long.class, name + " " + System.nanoTime(), costPerUnit != null ? new BigDecimal(costPerUnit) : null);
+    }
+
+    private List<BigDecimal> adjustments(Long ingredientId) {
+        return jdbcTemplate.queryForList(
+                "SELECT quantity FROM stock_movements WHERE ingredient_id = ? AND movement_type = 'ADJUSTMENT'",
+                BigDecimal.class, ingredientId);
+    }
+}
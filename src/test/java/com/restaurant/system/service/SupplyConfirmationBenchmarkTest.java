@@ -0,0 +1,215 @@
+package com.restaurant.system.service;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Confirms a 5,000-line supply while other threads complete orders that use the same
+ * ingredients, and reports how long the confirmation took and how order completion latency
+ * looked while it ran. Correctness is asserted, timings are only printed.
+ * Run with ./gradlew benchmark (needs Docker).
+ */
+@Tag("benchmark")
+@SpringBootTest
+@Testcontainers(disabledWithoutDocker = true)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class SupplyConfirmationBenchmarkTest {
+
+    private static final int INGREDIENTS = 50;
+    private static final int SUPPLY_LINES = 5_000;
+    private static final int ORDERS = 400;
+    private static final int ORDER_THREADS = 8;
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.datasource.hikari.maximum-pool-size", () -> ORDER_THREADS + 4);
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SupplyService supplyService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private StockProjectionService stockProjectionService;
+
+    private Long supplyId;
+    private List<Long> orderIds;
+
+    // Every dish uses three neighbouring ingredients, every order three dishes,
+    // so orders and the supply contend on the same ingredients
+    @BeforeAll
+    void seed() {
+        jdbcTemplate.update(
+                "INSERT INTO ingredients (name, unit, stock_quantity, cost_per_unit) " +
+                "SELECT 'Bench ingredient ' || n, 'kg', 1000, 1 FROM generate_series(1, ?) n", INGREDIENTS);
+        jdbcTemplate.update(
+                "INSERT INTO dishes (name, category, price) " +
+                "SELECT 'Bench dish ' || n, 'Bench', 10 FROM generate_series(1, ?) n", INGREDIENTS);
+        jdbcTemplate.update(
+                "INSERT INTO dish_ingredients (dish_id, ingredient_id, quantity, unit) " +
+                "SELECT d.id, i.id, 0.1, 'kg' " +
+                "FROM (SELECT id, row_number() OVER (ORDER BY id) - 1 AS n FROM dishes) d " +
+                "JOIN (SELECT id, row_number() OVER (ORDER BY id) - 1 AS n FROM ingredients) i " +
+                "  ON i.n IN (d.n, (d.n + 1) % ?, (d.n + 2) % ?)", INGREDIENTS, INGREDIENTS);
+        Long clientId = jdbcTemplate.queryForObject(
+                "INSERT INTO clients (full_name, phone) VALUES ('Bench client', '+70000009999') RETURNING id", Long.class);
+
+        orderIds = jdbcTemplate.queryForList(
+                "INSERT INTO orders (status, client_id) SELECT 'PENDING', ? FROM generate_series(1, ?) RETURNING id",
+                Long.class, clientId, ORDERS);
+        jdbcTemplate.update(
+                "INSERT INTO order_items (order_id, dish_id, quantity, unit_price) " +
+                "SELECT o.id, d.id, 1, 10 " +
+                "FROM (SELECT id, row_number() OVER (ORDER BY id) AS n FROM orders WHERE status = 'PENDING') o " +
+                "JOIN (SELECT id, row_number() OVER (ORDER BY id) - 1 AS n FROM dishes) d " +
+                "  ON d.n IN (o.n % ?, (o.n * 7) % ?, (o.n * 13) % ?)", INGREDIENTS, INGREDIENTS, INGREDIENTS);
+
+        Long supplierId = jdbcTemplate.queryForObject(
+                "INSERT INTO suppliers (name) VALUES ('Bench supplier') RETURNING id", Long.class);
+        supplyId = jdbcTemplate.queryForObject(
+                "INSERT INTO supplies (supplier_id, status) VALUES (?, 'PENDING') RETURNING id", Long.class, supplierId);
+        jdbcTemplate.update(
+                "INSERT INTO supply_items (supply_id, ingredient_id, quantity, unit_price) " +
+                "SELECT ?, i.id, 2, 1.5 " +
+                "FROM generate_series(0, ? - 1) n " +
+                "JOIN (SELECT id, row_number() OVER (ORDER BY id) - 1 AS k FROM ingredients) i ON i.k = n % ?",
+                supplyId, SUPPLY_LINES, INGREDIENTS);
+
+        stockProjectionService.rebuild();
+    }
+
+    @Test
+    void confirmLargeSupplyWhileOrdersComplete() throws Exception {
+        Map<Long, BigDecimal> stockBefore = stock();
+        ConcurrentLinkedQueue<long[]> completions = new ConcurrentLinkedQueue<>();
+        ConcurrentLinkedQueue<Long> pending = new ConcurrentLinkedQueue<>(orderIds);
+        CountDownLatch started = new CountDownLatch(ORDER_THREADS);
+        AtomicLong confirmStart = new AtomicLong();
+        AtomicLong confirmEnd = new AtomicLong();
+
+        ExecutorService executor = Executors.newFixedThreadPool(ORDER_THREADS + 1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < ORDER_THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                started.countDown();
+                Long orderId;
+                while ((orderId = pending.poll()) != null) {
+                    long start = System.nanoTime();
+                    orderService.completeOrder(orderId);
+                    completions.add(new long[]{start, System.nanoTime()});
+                }
+                return null;
+            }));
+        }
+        futures.add(executor.submit(() -> {
+            started.await();
+            // Let the order threads get going first
+            while (completions.size() < ORDERS / 10) {
+                Thread.onSpinWait();
+            }
+            confirmStart.set(System.nanoTime());
+            supplyService.confirmSupply(supplyId);
+            confirmEnd.set(System.nanoTime());
+            return null;
+        }));
+        for (Future<?> future : futures) {
+            future.get(5, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        List<Long> all = new ArrayList<>();
+        List<Long> duringConfirm = new ArrayList<>();
+        for (long[] completion : completions) {
+            long latency = completion[1] - completion[0];
+            all.add(latency);
+            if (completion[1] >= confirmStart.get() && completion[0] <= confirmEnd.get()) {
+                duringConfirm.add(latency);
+            }
+        }
+        System.out.printf("Supply confirmation (%d lines): %.1f ms%n", SUPPLY_LINES,
+                (confirmEnd.get() - confirmStart.get()) / 1e6);
+        System.out.println("Order completion, all:            " + summary(all));
+        System.out.println("Order completion, during confirm: " + summary(duringConfirm));
+
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM orders WHERE status = 'COMPLETED' AND id = ANY(?)", Long.class,
+                (Object) orderIds.toArray(new Long[0]))).isEqualTo(ORDERS);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT status::text FROM supplies WHERE id = ?", String.class, supplyId)).isEqualTo("CONFIRMED");
+        // One grouped movement per ingredient, not one per supply line
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM stock_movements WHERE supply_id = ?", Long.class, supplyId)).isEqualTo(INGREDIENTS);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT total_cost FROM supplies WHERE id = ?", BigDecimal.class, supplyId))
+                .isEqualByComparingTo(BigDecimal.valueOf(SUPPLY_LINES * 3L));
+
+        // Stock = before + delivered - consumed by the completed orders
+        Map<Long, BigDecimal> expected = new HashMap<>(stockBefore);
+        jdbcTemplate.query(
+                "SELECT ingredient_id, SUM(quantity) FROM supply_items WHERE supply_id = ? GROUP BY ingredient_id",
+                rs -> { expected.merge(rs.getLong(1), rs.getBigDecimal(2), BigDecimal::add); }, supplyId);
+        jdbcTemplate.query(
+                "SELECT di.ingredient_id, SUM(oi.quantity * di.quantity) FROM order_items oi " +
+                "JOIN dish_ingredients di ON di.dish_id = oi.dish_id WHERE oi.order_id = ANY(?) GROUP BY 1",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", orderIds.toArray())),
+                rs -> { expected.merge(rs.getLong(1), rs.getBigDecimal(2).negate(), BigDecimal::add); });
+        Map<Long, BigDecimal> actual = stock();
+        expected.forEach((ingredientId, quantity) ->
+                assertThat(actual.get(ingredientId)).as("stock of %d", ingredientId).isEqualByComparingTo(quantity));
+    }
+
+    private Map<Long, BigDecimal> stock() {
+        Map<Long, BigDecimal> stock = new HashMap<>();
+        jdbcTemplate.query("SELECT ingredient_id, stock_quantity FROM v_ingredient_stock",
+                rs -> { stock.put(rs.getLong(1), rs.getBigDecimal(2)); });
+        return stock;
+    }
+
+    private static String summary(List<Long> latencies) {
+        if (latencies.isEmpty()) {
+            return "no samples";
+        }
+        Collections.sort(latencies);
+        return String.format("n=%d p50=%.1f ms p95=%.1f ms max=%.1f ms", latencies.size(),
+                latencies.get(latencies.size() / 2) / 1e6,
+                latencies.get((int) (latencies.size() * 0.95)) / 1e6,
+                latencies.get(latencies.size() - 1) / 1e6);
+    }
+}
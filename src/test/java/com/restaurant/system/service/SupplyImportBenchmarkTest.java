@@ -0,0 +1,113 @@
+package com.restaurant.system.service;
+
+import com.restaurant.system.dto.SupplyImportErrorDTO;
+import com.restaurant.system.dto.SupplyImportResultDTO;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Imports a 10,000-line CSV into one supply, half of the lines naming the ingredient by id and
+ * half by name, with a few broken lines mixed in. The best of a few runs is printed; correctness
+ * is asserted. Run with ./gradlew benchmark (needs Docker).
+ */
+@Tag("benchmark")
+@SpringBootTest
+@Testcontainers(disabledWithoutDocker = true)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class SupplyImportBenchmarkTest {
+
+    private static final int INGREDIENTS = 500;
+    private static final int LINES = 10_000;
+    // Every BROKEN_EVERY-th line names an ingredient that does not exist
+    private static final int BROKEN_EVERY = 1_000;
+    private static final int RUNS = 3;
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SupplyImportService supplyImportService;
+
+    private Long supplierId;
+    private byte[] csv;
+
+    @BeforeAll
+    void seed() {
+        jdbcTemplate.update(
+                "INSERT INTO ingredients (name, unit, stock_quantity, cost_per_unit) " +
+                "SELECT 'Import ingredient ' || n, 'kg', 0, 1 FROM generate_series(1, ?) n", INGREDIENTS);
+        List<Long> ids = jdbcTemplate.queryForList(
+                "SELECT id FROM ingredients WHERE name LIKE 'Import ingredient %' ORDER BY id", Long.class);
+        supplierId = jdbcTemplate.queryForObject(
+                "INSERT INTO suppliers (name) VALUES ('Import supplier') RETURNING id", Long.class);
+
+        StringBuilder file = new StringBuilder("ingredient,quantity,unit_price\n");
+        for (int n = 1; n <= LINES; n++) {
+            int k = n % INGREDIENTS;
+            if (n % BROKEN_EVERY == 0) {
+                file.append("No such ingredient,1,1\n");
+            } else if (n % 2 == 0) {
+                file.append(ids.get(k)).append(",2,1.5\n");
+            } else {
+                file.append("import ingredient ").append(k + 1).append(",2,1.5\n");
+            }
+        }
+        csv = file.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void importLargeCsv() {
+        int broken = LINES / BROKEN_EVERY;
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+            Long supplyId = jdbcTemplate.queryForObject(
+                    "INSERT INTO supplies (supplier_id, status) VALUES (?, 'PENDING') RETURNING id", Long.class, supplierId);
+            List<SupplyImportErrorDTO> errors = new ArrayList<>();
+
+            long start = System.nanoTime();
+            SupplyImportResultDTO result = supplyImportService.importItems(supplyId,
+                    new ByteArrayInputStream(csv), SupplyImportService.Format.CSV, errors::add);
+            best = Math.min(best, System.nanoTime() - start);
+
+            assertThat(result.getLines()).isEqualTo(LINES);
+            assertThat(result.getImported()).isEqualTo(LINES - broken);
+            assertThat(result.getRejected()).isEqualTo(broken);
+            assertThat(errors).hasSize(broken);
+            assertThat(jdbcTemplate.queryForObject(
+                    "SELECT count(*) FROM supply_items WHERE supply_id = ?", Long.class, supplyId))
+                    .isEqualTo(LINES - broken);
+            assertThat(jdbcTemplate.queryForObject(
+                    "SELECT SUM(quantity) FROM supply_items WHERE supply_id = ?", BigDecimal.class, supplyId))
+                    .isEqualByComparingTo(BigDecimal.valueOf(2L * (LINES - broken)));
+        }
+        System.out.printf("Supply import (%d CSV lines): best of %d %.1f ms%n", LINES, RUNS, best / 1e6);
+    }
+}
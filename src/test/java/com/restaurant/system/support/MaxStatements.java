@@ -0,0 +1,15 @@
+package com.restaurant.system.support;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Upper bound of SQL statements the annotated test may issue; enforced by {@link StatementCountExtension}.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface MaxStatements {
+    int value();
+}
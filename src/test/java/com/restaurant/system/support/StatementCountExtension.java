@@ -0,0 +1,36 @@
+package com.restaurant.system.support;
+
+import com.restaurant.system.util.SqlStatementCounter;
+import org.junit.jupiter.api.extension.AfterTestExecutionCallback;
+import org.junit.jupiter.api.extension.BeforeTestExecutionCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.platform.commons.support.AnnotationSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Counts SQL statements issued on the test thread while the test method body runs
+ * (MockMvc executes the whole request on that thread) and checks them against {@link MaxStatements}.
+ * Setup in @BeforeEach / @BeforeAll is not counted.
+ */
+public class StatementCountExtension implements BeforeTestExecutionCallback, AfterTestExecutionCallback {
+
+    private static final ExtensionContext.Namespace NAMESPACE =
+            ExtensionContext.Namespace.create(StatementCountExtension.class);
+
+    @Override
+    public void beforeTestExecution(ExtensionContext context) {
+        context.getStore(NAMESPACE).put(context.getUniqueId(), SqlStatementCounter.current());
+    }
+
+    @Override
+    public void afterTestExecution(ExtensionContext context) {
+        long start = context.getStore(NAMESPACE).remove(context.getUniqueId(), Long.class);
+        long statements = SqlStatementCounter.current() - start;
+
+        AnnotationSupport.findAnnotation(context.getRequiredTestMethod(), MaxStatements.class)
+                .ifPresent(budget -> assertThat(statements)
+                        .as("SQL statements issued by %s", context.getDisplayName())
+                        .isLessThanOrEqualTo(budget.value()));
+    }
+}
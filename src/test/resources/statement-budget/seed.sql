@@ -0,0 +1,56 @@
+-- Three rows per aggregate: enough for an N+1 access pattern to show up in statement counts
+INSERT INTO clients (id, full_name, phone, email) VALUES
+    (1001, 'Budget Client 1', '+70000001001', 'budget1@example.com'),
+    (1002, 'Budget Client 2', '+70000001002', 'budget2@example.com'),
+    (1003, 'Budget Client 3', '+70000001003', 'budget3@example.com');
+
+INSERT INTO restaurant_tables (id, table_number, capacity, location) VALUES
+    (1001, 'B-1', 2, 'Main hall'),
+    (1002, 'B-2', 4, 'Main hall'),
+    (1003, 'B-3', 6, 'Terrace');
+
+INSERT INTO reservations (id, reservation_time, party_size, client_id, table_id) VALUES
+    (1001, now() + interval '1 day', 2, 1001, 1001),
+    (1002, now() + interval '2 days', 4, 1002, 1002),
+    (1003, now() + interval '3 days', 6, 1003, 1003);
+
+INSERT INTO dishes (id, name, category, price) VALUES
+    (1001, 'Budget Soup', 'Budget', 100.00),
+    (1002, 'Budget Steak', 'Budget', 300.00),
+    (1003, 'Budget Cake', 'Budget', 150.00);
+
+INSERT INTO ingredients (id, name, unit, stock_quantity, cost_per_unit, min_stock_level) VALUES
+    (1001, 'Budget Beef', 'kg', 100.000, 10.0000, 5.000),
+    (1002, 'Budget Flour', 'kg', 1.000, 1.0000, 5.000),
+    (1003, 'Budget Beet', 'kg', 100.000, 2.0000, 5.000);
+
+INSERT INTO dish_ingredients (dish_id, ingredient_id, quantity, unit) VALUES
+    (1001, 1003, 0.2000, 'kg'),
+    (1002, 1001, 0.3000, 'kg'),
+    (1003, 1002, 0.1000, 'kg');
+
+INSERT INTO orders (id, status, client_id, reservation_id) VALUES
+    (1001, 'COMPLETED', 1001, 1001),
+    (1002, 'COMPLETED', 1002, 1002),
+    (1003, 'PENDING', 1003, 1003);
+
+INSERT INTO order_items (order_id, dish_id, quantity, unit_price) VALUES
+    (1001, 1001, 1, 100.00), (1001, 1002, 1, 300.00),
+    (1002, 1002, 2, 300.00), (1002, 1003, 1, 150.00),
+    (1003, 1001, 1, 100.00), (1003, 1003, 2, 150.00);
+
+INSERT INTO sales (id, total, payment_method, order_id, receipt_number) VALUES
+    (1001, 400.00, 'CARD', 1001, 'B-0001'),
+    (1002, 750.00, 'CASH', 1002, 'B-0002');
+
+INSERT INTO suppliers (id, name) VALUES (1001, 'Budget Supplier');
+
+INSERT INTO supplies (id, supplier_id, notes) VALUES
+    (1001, 1001, 'first'),
+    (1002, 1001, 'second'),
+    (1003, 1001, 'third');
+
+INSERT INTO supply_items (supply_id, ingredient_id, quantity, unit_price) VALUES
+    (1001, 1001, 10.0000, 10.0000), (1001, 1002, 5.0000, 1.0000),
+    (1002, 1002, 10.0000, 1.0000), (1002, 1003, 5.0000, 2.0000),
+    (1003, 1003, 10.0000, 2.0000), (1003, 1001, 5.0000, 10.0000);